@@ -0,0 +1,70 @@
+package com.company.benchmark;
+
+import com.company.model.Location;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a single distance evaluation. Run with {@code -prof gc}: the boxed variant allocates a Double per call
+ * once the value escapes, the primitive and squared variants report ~0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistanceBenchmark {
+
+    private final EuclideanDistanceFindingStrategy euclidean = new EuclideanDistanceFindingStrategy();
+    private Location[] from;
+    private Location[] to;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(Fleet.SEED);
+        from = new Location[1024];
+        to = new Location[1024];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = new Location(random.nextInt(10000), random.nextInt(10000));
+            to[i] = new Location(random.nextInt(10000), random.nextInt(10000));
+        }
+    }
+
+    @Benchmark
+    public Double euclideanBoxed() {
+        int i = next++ & 1023;
+        return euclidean.distanceBetweenLocations(from[i], to[i]);
+    }
+
+    @Benchmark
+    public double euclideanPrimitive() {
+        int i = next++ & 1023;
+        return euclidean.distance(from[i], to[i]);
+    }
+
+    @Benchmark
+    public double euclideanSquared() {
+        int i = next++ & 1023;
+        return euclidean.squaredDistance(from[i].getLatitude(), from[i].getLongitude(),
+                to[i].getLatitude(), to[i].getLongitude());
+    }
+
+    @Benchmark
+    public boolean euclideanWithinRadius() {
+        int i = next++ & 1023;
+        return euclidean.isWithinRadius(from[i], to[i], 5000);
+    }
+}
@@ -0,0 +1,81 @@
+package com.company.benchmark;
+
+import com.company.events.EventBus;
+import com.company.events.EventFileSink;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of publishing a driver location on the event bus with a subscriber draining it, either doing nothing with
+ * the events or recording them to files. Publishers never wait, whatever the subscriber can't keep up with is
+ * dropped: the dropped count is printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class EventBusBenchmark {
+
+    @Param({"none", "file"})
+    String subscriber;
+
+    private EventBus bus;
+    private EventFileSink sink;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        bus = new EventBus();
+        if (subscriber.equals("file")) {
+            directory = Files.createTempDirectory("events");
+            sink = new EventFileSink(directory);
+            bus.subscribe("file", sink);
+        } else {
+            bus.subscribe("noop", batch -> { });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        bus.close();
+        System.out.println("Dropped " + bus.getDropped() + " of " + (bus.getCursor() + 1 + bus.getDropped())
+                + " events");
+        if (sink != null) {
+            sink.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean publish() {
+        return bus.publishDriverLocation(7, 100, 200);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean publishContended() {
+        return bus.publishDriverLocation(7, 100, 200);
+    }
+}
@@ -0,0 +1,61 @@
+package com.company.benchmark;
+
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import java.util.Random;
+
+/**
+ * Deterministic fleet used by the benchmarks. Drivers are spread uniformly over a square whose side is chosen so
+ * that the fleet has the requested density (drivers per unit square), so a fixed radius sees the same number of
+ * drivers whatever the fleet size.
+ */
+final class Fleet {
+
+    static final long SEED = 20201L;
+    static final String PASSWORD = "pwd";
+
+    final DriverManager driverManager;
+    final RiderManager riderManager;
+    final int side;
+    final Random random;
+
+    private Fleet(final DriverManager driverManager, final RiderManager riderManager, final int side,
+            final Random random) {
+        this.driverManager = driverManager;
+        this.riderManager = riderManager;
+        this.side = side;
+        this.random = random;
+    }
+
+    static Fleet create(final int fleetSize, final double density, final int riders) {
+        Random random = new Random(SEED);
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(fleetSize / density)));
+
+        DriverManager driverManager = new DriverManager();
+        for (int id = 1; id <= fleetSize; id++) {
+            CarType carType = id % 3 == 0 ? CarType.SEDAN : CarType.HATCHBACK;
+            driverManager.createDriver(new Driver(id, "driver-" + id, PASSWORD, new Car(carType, "REG-" + id)));
+            driverManager.makeAvailable(id, new Location(random.nextInt(side), random.nextInt(side)));
+        }
+
+        RiderManager riderManager = new RiderManager();
+        for (int id = 1; id <= riders; id++) {
+            riderManager.createRider(new Rider(id, "rider-" + id, PASSWORD));
+        }
+        return new Fleet(driverManager, riderManager, side, random);
+    }
+
+    /** Pre-generated random locations inside the fleet area, so the benchmarks don't measure the generator. */
+    Location[] randomLocations(final int count) {
+        Location[] locations = new Location[count];
+        for (int i = 0; i < count; i++) {
+            locations[i] = new Location(random.nextInt(side), random.nextInt(side));
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,78 @@
+package com.company.benchmark;
+
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full fleet scan for available drivers of a car type within a radius: the driver state table of DriverManager
+ * against walking the driver objects, as the scan did before the table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FleetScanBenchmark {
+
+    @Param({"100000", "1000000"})
+    int fleetSize;
+
+    @Param({"10"})
+    double radius;
+
+    private Fleet fleet;
+    private List<Driver> drivers;
+    private Location[] origins;
+    private int next;
+    private final EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+
+    @Setup
+    public void setup() {
+        fleet = Fleet.create(fleetSize, 0.1, 0);
+        fleet.driverManager.setUseSpatialIndex(false);
+        // shuffled like the heap of a long running process, registration order would flatter the object walk
+        drivers = new ArrayList<>(fleet.driverManager.getAllDrivers());
+        Collections.shuffle(drivers, fleet.random);
+        origins = fleet.randomLocations(1024);
+    }
+
+    @Benchmark
+    public List<Driver> stateTableScan() {
+        Location origin = origins[next++ & 1023];
+        return fleet.driverManager.getAvailableDriversWithinRadius(origin, radius, CarType.SEDAN,
+                distanceFindingStrategy);
+    }
+
+    @Benchmark
+    public List<Driver> objectScan() {
+        Location origin = origins[next++ & 1023];
+        List<Driver> result = new ArrayList<>();
+        for (Driver driver : drivers) {
+            long location = driver.getPackedLocation();
+            if (driver.getCar().getCarType() == CarType.SEDAN && driver.isAvailable()
+                    && location != Location.NO_LOCATION && distanceFindingStrategy.isWithinRadius(
+                            Location.latitudeOf(location), Location.longitudeOf(location), origin, radius)) {
+                result.add(driver);
+            }
+        }
+        return result;
+    }
+}
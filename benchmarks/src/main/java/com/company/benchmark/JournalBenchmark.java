@@ -0,0 +1,123 @@
+package com.company.benchmark;
+
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.model.Location;
+import com.company.persistence.Journal;
+import com.company.persistence.WriteAheadLog.Durability;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Journal write throughput, driver location updates from several threads with and without waiting for the fsync,
+ * and recovery time of a log of location updates.
+ */
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class JournalBenchmark {
+
+    private static final int FLEET_SIZE = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Journaled {
+        @Param({"ASYNC", "SYNC"})
+        Durability durability;
+
+        Path directory;
+        Journal journal;
+        Fleet fleet;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("journal-benchmark");
+            fleet = Fleet.create(FLEET_SIZE, 1, 0);
+            journal = new Journal(directory, durability);
+            journal.recover(new TripManager(fleet.riderManager, fleet.driverManager));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovery {
+        @Param({"1000000"})
+        int events;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("journal-recovery-benchmark");
+            Fleet fleet = Fleet.create(FLEET_SIZE, 1, 0);
+            try (Journal journal = new Journal(directory, Durability.ASYNC)) {
+                journal.recover(new TripManager(new RiderManager(), new DriverManager()));
+                // registrations go through the journal so recovery has drivers to move
+                for (int id = 1; id <= FLEET_SIZE; id++) {
+                    journal.driverCreated(fleet.driverManager.getDriver(id));
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < events; i++) {
+                    journal.driverLocation(1 + random.nextInt(FLEET_SIZE),
+                            new Location(random.nextInt(fleet.side), random.nextInt(fleet.side)));
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void updateDriverLocation(final Journaled journaled) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        journaled.fleet.driverManager.updateDriverLocation(1 + random.nextInt(FLEET_SIZE),
+                new Location(random.nextInt(journaled.fleet.side), random.nextInt(journaled.fleet.side)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long recover(final Recovery recovery) throws IOException {
+        try (Journal journal = new Journal(recovery.directory, Durability.ASYNC)) {
+            return journal.recover(new TripManager(new RiderManager(), new DriverManager()));
+        }
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
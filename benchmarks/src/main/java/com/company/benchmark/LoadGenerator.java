@@ -0,0 +1,170 @@
+package com.company.benchmark;
+
+import com.company.http.RideServer;
+import com.company.manager.TripManager;
+import com.company.model.CarType;
+import com.company.model.Location;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local load harness for the HTTP front end: starts a {@link RideServer} over a benchmark fleet in process and books
+ * trips over HTTP at increasing request rates, printing the p50 / p99 / p999 booking latency of each rate.
+ *
+ * <p>The load is open loop: requests go out on a fixed schedule whatever the server's pace, and latency is measured
+ * from the time a request was due rather than the time it was sent, so a stalling server shows up in the numbers
+ * instead of silently slowing the generator down (coordinated omission). Each booked trip is withdrawn afterwards,
+ * off the clock, so the fleet stays available.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.company.benchmark.LoadGenerator [rates] [seconds] [fleetSize]
+ * </pre>
+ * where rates is a comma separated list of requests per second, 500,1000,2000,4000 by default.
+ */
+public final class LoadGenerator {
+
+    private static final double DENSITY = 0.05;
+    private static final int RIDERS = 1_000;
+    private static final int LOCATIONS = 1 << 14;
+    private static final int MAX_OFFSET = 50;
+    private static final int WARMUP_RATE = 200;
+    private static final Pattern TRIP_ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+
+    private LoadGenerator() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        int[] rates = Arrays.stream((args.length > 0 ? args[0] : "500,1000,2000,4000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int fleetSize = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        Fleet fleet = Fleet.create(fleetSize, DENSITY, RIDERS);
+        Location[] locations = fleet.randomLocations(LOCATIONS);
+        TripManager tripManager = new TripManager(fleet.riderManager, fleet.driverManager);
+
+        try (RideServer server = new RideServer(tripManager, new DefaultPricingStrategy(),
+                new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy());
+                ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.start(new InetSocketAddress("127.0.0.1", 0));
+            HttpClient client = HttpClient.newBuilder().executor(clients).build();
+            String base = "http://127.0.0.1:" + server.getPort();
+
+            System.out.printf("%8s %8s %8s %8s %10s %10s %10s %10s%n",
+                    "rate/s", "sent", "booked", "failed", "p50 us", "p99 us", "p999 us", "max us");
+            // let the JIT settle first, the warm-up numbers are not reported
+            run(client, clients, base, locations, WARMUP_RATE, Math.min(seconds, 5));
+            for (int rate : rates) {
+                run(client, clients, base, locations, rate, seconds).print(rate);
+            }
+        }
+    }
+
+    private static Result run(final HttpClient client, final ExecutorService clients, final String base,
+            final Location[] locations, final int rate, final int seconds) throws InterruptedException {
+        int requests = rate * seconds;
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long[] latencies = new long[requests];
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        for (int i = 0; i < requests; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int request = i;
+            clients.execute(() -> {
+                HttpRequest booking = HttpRequest.newBuilder(URI.create(base + "/trips"))
+                        .header(RideServer.PASSWORD_HEADER, Fleet.PASSWORD)
+                        .POST(HttpRequest.BodyPublishers.ofString(bookingBody(locations, request)))
+                        .build();
+                try {
+                    HttpResponse<String> response = client.send(booking, HttpResponse.BodyHandlers.ofString());
+                    latencies[request] = System.nanoTime() - due;
+                    if (response.statusCode() == 201) {
+                        booked.incrementAndGet();
+                        withdraw(client, base, response.body());
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    latencies[request] = System.nanoTime() - due;
+                    failed.incrementAndGet();
+                } finally {
+                    done.incrementAndGet();
+                }
+            });
+        }
+        while (done.get() < requests) {
+            Thread.sleep(10);
+        }
+        return new Result(requests, booked.get(), failed.get(), latencies);
+    }
+
+    private static String bookingBody(final Location[] locations, final int request) {
+        Location origin = locations[request & (LOCATIONS - 1)];
+        // destination a short ride away, bookings beyond the maximum trip distance would be rejected
+        int latitudeOffset = request % (2 * MAX_OFFSET + 1) - MAX_OFFSET;
+        int longitudeOffset = (request * 7) % (2 * MAX_OFFSET + 1) - MAX_OFFSET;
+        return "{\"riderId\":" + (request % RIDERS + 1)
+                + ",\"originLatitude\":" + origin.getLatitude()
+                + ",\"originLongitude\":" + origin.getLongitude()
+                + ",\"destinationLatitude\":" + (origin.getLatitude() + latitudeOffset)
+                + ",\"destinationLongitude\":" + (origin.getLongitude() + longitudeOffset)
+                + ",\"carType\":\"" + (request % 3 == 0 ? CarType.SEDAN : CarType.HATCHBACK) + "\"}";
+    }
+
+    private static void withdraw(final HttpClient client, final String base, final String trip) throws Exception {
+        Matcher matcher = TRIP_ID.matcher(trip);
+        if (matcher.find()) {
+            client.send(HttpRequest.newBuilder(URI.create(base + "/trips/" + matcher.group(1) + "/withdraw"))
+                    .header(RideServer.PASSWORD_HEADER, Fleet.PASSWORD)
+                    .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    private static final class Result {
+        private final int sent;
+        private final int booked;
+        private final int failed;
+        private final long[] latencies;
+
+        Result(final int sent, final int booked, final int failed, final long[] latencies) {
+            this.sent = sent;
+            this.booked = booked;
+            this.failed = failed;
+            this.latencies = latencies;
+        }
+
+        void print(final int rate) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf("%8d %8d %8d %8d %10d %10d %10d %10d%n", rate, sent, booked, failed,
+                    micros(sorted, 0.50), micros(sorted, 0.99), micros(sorted, 0.999),
+                    TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length - 1]));
+        }
+
+        private static long micros(final long[] sorted, final double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, index)]);
+        }
+    }
+}
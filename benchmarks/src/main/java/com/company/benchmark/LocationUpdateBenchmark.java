@@ -0,0 +1,99 @@
+package com.company.benchmark;
+
+import com.company.manager.LocationBatch;
+import com.company.model.Location;
+import com.company.persistence.DriverLocationStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GPS pings through DriverManager.updateDriverLocation one at a time and through updateDriverLocations in
+ * batches, with and without the memory-mapped location store. Run with {@code -prof gc} to see the allocation per
+ * update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LocationUpdateBenchmark {
+
+    private static final int BATCH_SIZE = 1024;
+
+    @Param({"100000"})
+    int fleetSize;
+
+    @Param({"false", "true"})
+    boolean mappedStore;
+
+    private Fleet fleet;
+    private Path storeFile;
+    private DriverLocationStore store;
+    // pings are pre-generated: driver id, latitude and longitude in consecutive slots
+    private int[] pings;
+    private int next;
+    private LocationBatch batch;
+    private long timestamp;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fleet = Fleet.create(fleetSize, 1, 0);
+        if (mappedStore) {
+            storeFile = Files.createTempFile("driver-locations", ".bin");
+            store = DriverLocationStore.open(storeFile, fleetSize);
+            fleet.driverManager.setLocationStore(store);
+        }
+        pings = new int[3 * 4096];
+        for (int i = 0; i < pings.length; i += 3) {
+            int driverId = 1 + fleet.random.nextInt(fleetSize);
+            Location location = fleet.driverManager.getDriver(driverId).getCurrentLocation();
+            // a few units away from where the driver started, like consecutive GPS fixes
+            pings[i] = driverId;
+            pings[i + 1] = location.getLatitude() + fleet.random.nextInt(5) - 2;
+            pings[i + 2] = location.getLongitude() + fleet.random.nextInt(5) - 2;
+        }
+        batch = new LocationBatch(BATCH_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (store != null) {
+            store.close();
+            Files.deleteIfExists(storeFile);
+        }
+    }
+
+    @Benchmark
+    public void updateDriverLocation() {
+        int i = (next++ & 4095) * 3;
+        fleet.driverManager.updateDriverLocation(pings[i], pings[i + 1], pings[i + 2]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int updateDriverLocations() {
+        batch.clear();
+        for (int n = 0; n < BATCH_SIZE; n++) {
+            int i = (next++ & 4095) * 3;
+            batch.add(pings[i], pings[i + 1], pings[i + 2], ++timestamp);
+        }
+        return fleet.driverManager.updateDriverLocations(batch);
+    }
+}
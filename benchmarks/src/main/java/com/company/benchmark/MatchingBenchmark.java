@@ -0,0 +1,68 @@
+package com.company.benchmark;
+
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** OptimalDriverStrategy.findDriver over the nearby drivers a booking would see at the given density. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingBenchmark {
+
+    @Param({"10000"})
+    int fleetSize;
+
+    @Param({"0.1", "2"})
+    double density;
+
+    @Param({"HATCHBACK", "SEDAN"})
+    CarType requestedCarType;
+
+    private final OptimalDriverStrategy strategy = new OptimalDriverStrategy();
+    private Rider rider;
+    private Location destination;
+    private Location[] origins;
+    private List<Driver>[] nearbyDrivers;
+    private int next;
+
+    @Setup
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setup() {
+        Fleet fleet = Fleet.create(fleetSize, density, 1);
+        rider = fleet.riderManager.getRider(1);
+        destination = new Location(0, 0);
+        origins = fleet.randomLocations(256);
+        nearbyDrivers = new List[origins.length];
+        EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+        for (int i = 0; i < origins.length; i++) {
+            nearbyDrivers[i] = fleet.driverManager.getDriversWithinRadius(origins[i], 10, distanceFindingStrategy);
+        }
+    }
+
+    @Benchmark
+    public Optional<Driver> findDriver() {
+        int i = next++ & 255;
+        return strategy.findDriver(rider, nearbyDrivers[i], origins[i], destination, requestedCarType);
+    }
+}
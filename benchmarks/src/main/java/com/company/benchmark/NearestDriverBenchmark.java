@@ -0,0 +1,69 @@
+package com.company.benchmark;
+
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Nearest available drivers of one car type: every driver within the booking radius sorted by distance, against the
+ * ring-expanding search stopping once the k nearest are known.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class NearestDriverBenchmark {
+
+    @Param({"100000"})
+    int fleetSize;
+
+    // drivers per unit square
+    @Param({"0.1", "2"})
+    double density;
+
+    @Param({"5"})
+    int count;
+
+    private static final double RADIUS = 10;
+
+    private Fleet fleet;
+    private Location[] origins;
+    private int next;
+    private final EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+
+    @Setup
+    public void setup() {
+        fleet = Fleet.create(fleetSize, density, 0);
+        origins = fleet.randomLocations(1024);
+    }
+
+    @Benchmark
+    public List<Driver> allWithinRadius() {
+        Location origin = origins[next++ & 1023];
+        return fleet.driverManager.getAvailableDriversWithinRadius(origin, RADIUS, CarType.HATCHBACK,
+                distanceFindingStrategy);
+    }
+
+    @Benchmark
+    public List<Driver> nearest() {
+        Location origin = origins[next++ & 1023];
+        return fleet.driverManager.getNearestAvailableDrivers(origin, count, RADIUS, CarType.HATCHBACK,
+                distanceFindingStrategy);
+    }
+}
@@ -0,0 +1,73 @@
+package com.company.benchmark;
+
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full fleet radius scan split over a fork-join pool of increasing parallelism, 1 being the sequential scan. Run it
+ * on a machine with at least as many cores as the largest pool, pools larger than the core count only add overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParallelScanBenchmark {
+
+    @Param({"1000000", "4000000"})
+    int fleetSize;
+
+    @Param({"1", "4", "16", "64"})
+    int parallelism;
+
+    // a city wide sweep, most of the work is the scan rather than the results
+    @Param({"50"})
+    double radius;
+
+    private Fleet fleet;
+    private ForkJoinPool pool;
+    private Location[] origins;
+    private int next;
+    private final EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+
+    @Setup
+    public void setup() {
+        fleet = Fleet.create(fleetSize, 0.1, 0);
+        fleet.driverManager.setUseSpatialIndex(false);
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+            fleet.driverManager.setScanPool(pool, 0);
+        }
+        origins = fleet.randomLocations(1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public List<Driver> driversWithinRadius() {
+        Location origin = origins[next++ & 1023];
+        return fleet.driverManager.getDriversWithinRadius(origin, radius, distanceFindingStrategy);
+    }
+}
@@ -0,0 +1,65 @@
+package com.company.benchmark;
+
+import com.company.model.CarType;
+import com.company.model.Location;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.TablePricingStrategy;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** DefaultPricingStrategy against the table driven TablePricingStrategy, over trips spread across all tiers. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"HATCHBACK", "SEDAN"})
+    CarType carType;
+
+    private final DefaultPricingStrategy pricingStrategy = new DefaultPricingStrategy();
+    private final TablePricingStrategy tablePricingStrategy = TablePricingStrategy.fromDefaultTables();
+    private final EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+    private Location[] origins;
+    private Location[] destinations;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(Fleet.SEED);
+        origins = new Location[1024];
+        destinations = new Location[1024];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = new Location(random.nextInt(100), random.nextInt(100));
+            // trips of up to ~10 units so that every tier gets hit
+            destinations[i] = new Location(origins[i].getLatitude() + random.nextInt(8),
+                    origins[i].getLongitude() + random.nextInt(8));
+        }
+    }
+
+    @Benchmark
+    public double calculateFare() {
+        int i = next++ & 1023;
+        return pricingStrategy.calculateFare(carType, origins[i], destinations[i], distanceFindingStrategy);
+    }
+
+    @Benchmark
+    public double calculateFareFromTable() {
+        int i = next++ & 1023;
+        return tablePricingStrategy.calculateFare(carType, origins[i], destinations[i], distanceFindingStrategy);
+    }
+}
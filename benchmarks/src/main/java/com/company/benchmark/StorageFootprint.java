@@ -0,0 +1,114 @@
+package com.company.benchmark;
+
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.model.Trip;
+import com.company.storage.IdMap;
+import com.company.storage.IntMap;
+import com.company.storage.StorageMode;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Heap footprint of the trip, driver and rider storage modes, measured as the heap retained after a full collection
+ * once the maps are filled. Trips are stored three ways:
+ * <ul>
+ *   <li>uuid-hash: a concurrent hash map keyed by UUID strings, the layout before compact ids,</li>
+ *   <li>hash: {@link StorageMode#HASH_MAP}, a concurrent hash map keyed by compact id strings,</li>
+ *   <li>compact: {@link StorageMode#COMPACT}, ids held as longs in open addressing tables.</li>
+ * </ul>
+ * Every trip shares the same rider, driver and locations, so the numbers are the trip objects plus the storage.
+ *
+ * <pre>
+ * java -Xmx4g -cp benchmarks/target/benchmarks.jar com.company.benchmark.StorageFootprint [counts]
+ * </pre>
+ * where counts is a comma separated list of entity counts, 1000000,10000000 by default.
+ */
+public final class StorageFootprint {
+
+    private static final Rider RIDER = new Rider(1, "rider", "pwd");
+    private static final Car CAR = new Car(CarType.SEDAN, "REG-1");
+    private static final Driver DRIVER = new Driver(1, "driver", "pwd", CAR);
+    private static final Location ORIGIN = new Location(2, 3);
+    private static final Location DESTINATION = new Location(4, 5);
+
+    private StorageFootprint() {
+    }
+
+    public static void main(final String[] args) {
+        int[] counts = Arrays.stream((args.length > 0 ? args[0] : "1000000,10000000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-10s %-12s %12s %12s%n", "count", "storage", "heap MB", "bytes/entry");
+        for (int count : counts) {
+            measure(count, "uuid-hash", () -> uuidTrips(count));
+            measure(count, "hash", () -> trips(StorageMode.HASH_MAP, count));
+            measure(count, "compact", () -> trips(StorageMode.COMPACT, count));
+            measure(count, "int-hash", () -> drivers(StorageMode.HASH_MAP, count));
+            measure(count, "int-compact", () -> drivers(StorageMode.COMPACT, count));
+        }
+    }
+
+    private static void measure(final int count, final String storage, final Supplier<Object> fill) {
+        long before = usedHeap();
+        Object retained;
+        try {
+            retained = fill.get();
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%-10d %-12s %12s%n", count, storage, "out of heap");
+            return;
+        }
+        long after = usedHeap();
+        // keep the maps reachable until measured
+        if (retained.hashCode() == 42) {
+            System.out.print("");
+        }
+        double bytes = after - before;
+        System.out.printf("%-10d %-12s %12.1f %12.1f%n", count, storage, bytes / (1 << 20), bytes / count);
+    }
+
+    private static Map<String, Trip> uuidTrips(final int count) {
+        Map<String, Trip> trips = new ConcurrentHashMap<>();
+        for (int i = 0; i < count; i++) {
+            trips.put(UUID.randomUUID().toString(), newTrip(i));
+        }
+        return trips;
+    }
+
+    private static Map<String, Trip> trips(final StorageMode mode, final int count) {
+        IdMap<Trip> trips = mode.newIdMap(Trip::getKey, Trip::getId);
+        for (int i = 0; i < count; i++) {
+            trips.putValue(newTrip(i));
+        }
+        return trips;
+    }
+
+    // the value is shared, only the map's own cost per driver id is measured
+    private static IntMap<Driver> drivers(final StorageMode mode, final int count) {
+        IntMap<Driver> drivers = mode.newIntMap();
+        for (int i = 0; i < count; i++) {
+            drivers.put(i, DRIVER);
+        }
+        return drivers;
+    }
+
+    private static Trip newTrip(final int i) {
+        return new Trip(RIDER, DRIVER, ORIGIN, DESTINATION, i, CAR);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,137 @@
+package com.company.benchmark;
+
+import com.company.exception.DriverNotFoundException;
+import com.company.manager.TripManager;
+import com.company.model.CarType;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import com.company.strategy.PricingStrategy;
+import com.company.surge.SurgePricingStrategy;
+import com.company.surge.SurgeTracker;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the surge counters: recording and reading them on their own, from one thread and from many threads
+ * hitting the same few cells, and a booking with and without a tracker attached to the managers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SurgeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Counters {
+        final SurgeTracker surgeTracker = new SurgeTracker();
+        // 16 cells, so concurrent threads keep colliding on the same counters
+        final Location[] locations = new Location[1024];
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < locations.length; i++) {
+                locations[i] = new Location((i & 3) * SurgeTracker.DEFAULT_CELL_SIZE,
+                        ((i >> 2) & 3) * SurgeTracker.DEFAULT_CELL_SIZE);
+            }
+            for (Location location : locations) {
+                surgeTracker.recordDemand(location);
+            }
+            // a fixed supply, the cost of counting drivers is the index's and shows in bookStartEnd
+            surgeTracker.setSupply((minLatitude, minLongitude, size) -> 16);
+        }
+
+        Location next() {
+            return locations[ThreadLocalRandom.current().nextInt(locations.length)];
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Bookings {
+        private static final int RIDERS = 1024;
+
+        @Param({"false", "true"})
+        boolean surge;
+
+        final DefaultPricingStrategy basePricingStrategy = new DefaultPricingStrategy();
+        final EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+        final OptimalDriverStrategy driverMatchingStrategy = new OptimalDriverStrategy();
+
+        TripManager tripManager;
+        PricingStrategy pricingStrategy;
+        Rider[] riders;
+        Location[] origins;
+        Location[] destinations;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            Fleet fleet = Fleet.create(10_000, 2, RIDERS);
+            tripManager = new TripManager(fleet.riderManager, fleet.driverManager);
+            pricingStrategy = basePricingStrategy;
+            if (surge) {
+                SurgeTracker surgeTracker = new SurgeTracker();
+                tripManager.setSurgeTracker(surgeTracker);
+                fleet.driverManager.setSurgeTracker(surgeTracker);
+                pricingStrategy = new SurgePricingStrategy(basePricingStrategy, surgeTracker);
+            }
+            riders = new Rider[RIDERS];
+            for (int id = 1; id <= RIDERS; id++) {
+                riders[id - 1] = fleet.riderManager.getRider(id);
+            }
+            origins = fleet.randomLocations(1024);
+            destinations = new Location[origins.length];
+            for (int i = 0; i < origins.length; i++) {
+                destinations[i] = new Location(origins[i].getLatitude() + 3, origins[i].getLongitude() + 4);
+            }
+        }
+    }
+
+    @Benchmark
+    public void recordDemand(final Counters counters) {
+        counters.surgeTracker.recordDemand(counters.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordDemandContended(final Counters counters) {
+        counters.surgeTracker.recordDemand(counters.next());
+    }
+
+    @Benchmark
+    public double multiplierAt(final Counters counters) {
+        return counters.surgeTracker.multiplierAt(counters.next());
+    }
+
+    /** Book, start and end a trip, pricing counts the drivers available around the origin. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double bookStartEnd(final Bookings bookings) {
+        int i = bookings.next++ & 1023;
+        try {
+            String tripId = bookings.tripManager.createTrip(bookings.riders[i], bookings.origins[i],
+                    bookings.destinations[i], bookings.pricingStrategy, bookings.distanceFindingStrategy,
+                    bookings.driverMatchingStrategy, CarType.HATCHBACK);
+            bookings.tripManager.startTrip(tripId);
+            return bookings.tripManager.endTrip(tripId);
+        } catch (DriverNotFoundException noDriverNearby) {
+            return -1;
+        }
+    }
+}
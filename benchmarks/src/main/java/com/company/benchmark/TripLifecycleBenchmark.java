@@ -0,0 +1,103 @@
+package com.company.benchmark;
+
+import com.company.exception.DriverNotFoundException;
+import com.company.index.AdaptiveRadius;
+import com.company.manager.TripManager;
+import com.company.model.CarType;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full booking cycle: createTrip, startTrip and endTrip. The driver ends up at the destination and is free again,
+ * so the fleet stays the same size while the trip history grows, which is why the fleet is rebuilt per iteration.
+ * The distance evaluations and radius expansions a booking needed on average are printed after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TripLifecycleBenchmark {
+
+    @Param({"1000", "100000"})
+    int fleetSize;
+
+    @Param({"0.1", "2"})
+    double density;
+
+    @Param({"HATCHBACK", "SEDAN"})
+    CarType requestedCarType;
+
+    // fixed booking radius, or one learned per cell
+    @Param({"false", "true"})
+    boolean adaptiveRadius;
+
+    private static final int RIDERS = 1024;
+
+    private final DefaultPricingStrategy pricingStrategy = new DefaultPricingStrategy();
+    private final EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+    private final OptimalDriverStrategy driverMatchingStrategy = new OptimalDriverStrategy();
+
+    private TripManager tripManager;
+    private Rider[] riders;
+    private Location[] origins;
+    private Location[] destinations;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Fleet fleet = Fleet.create(fleetSize, density, RIDERS);
+        tripManager = new TripManager(fleet.riderManager, fleet.driverManager);
+        if (adaptiveRadius) {
+            tripManager.setAdaptiveRadius(new AdaptiveRadius());
+        }
+        riders = new Rider[RIDERS];
+        for (int id = 1; id <= RIDERS; id++) {
+            riders[id - 1] = fleet.riderManager.getRider(id);
+        }
+        origins = fleet.randomLocations(1024);
+        destinations = new Location[origins.length];
+        for (int i = 0; i < origins.length; i++) {
+            destinations[i] = new Location(origins[i].getLatitude() + 3, origins[i].getLongitude() + 4);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        System.out.printf("%.1f distance evaluations, %.2f radius expansions per booking%n",
+                tripManager.getAverageDistanceEvaluationsPerBooking(),
+                tripManager.getAverageRingExpansionsPerBooking());
+    }
+
+    @Benchmark
+    public double bookStartEnd() {
+        int i = next++ & 1023;
+        try {
+            String tripId = tripManager.createTrip(riders[i], origins[i], destinations[i], pricingStrategy,
+                    distanceFindingStrategy, driverMatchingStrategy, requestedCarType);
+            tripManager.startTrip(tripId);
+            return tripManager.endTrip(tripId);
+        } catch (DriverNotFoundException noDriverNearby) {
+            // sparse areas legitimately have no driver, that outcome is part of what is measured
+            return -1;
+        }
+    }
+}
@@ -1,7 +1,28 @@
 package com.company;
 
+import com.company.http.RideServer;
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
 public class RideApp {
-	public static void main(String[] args) {
-		// ...
+
+	private static final int DEFAULT_PORT = 8080;
+
+	/** Serves the ride APIs over HTTP, on the port given as first argument or 8080. */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+		TripManager tripManager = new TripManager(new RiderManager(), new DriverManager());
+		RideServer server = new RideServer(tripManager, new DefaultPricingStrategy(),
+				new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy());
+		server.start(new InetSocketAddress(port));
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close, "ride-server-shutdown"));
+		System.out.println("Ride server listening on port " + server.getPort());
 	}
 }
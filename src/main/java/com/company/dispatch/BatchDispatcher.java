@@ -0,0 +1,266 @@
+package com.company.dispatch;
+
+import com.company.manager.DriverManager;
+import com.company.manager.TripManager;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.strategy.DistanceFindingStrategy;
+import com.company.strategy.DriverMatchingStrategy;
+import com.company.strategy.PricingStrategy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects ride requests over a short window and matches the whole window in one pass.
+ *
+ * <p>Every window the riders and the drivers near any of them form a cost matrix of pickup distances, which is
+ * solved as a global minimum cost assignment. Trips are then created through
+ * {@link TripManager#createTripWithDriver}, which falls back to the matching strategy when the assigned driver was
+ * taken in the meantime by the one-at-a-time path. Riders left without a driver go through
+ * {@link TripManager#createTrip}.
+ */
+public class BatchDispatcher implements AutoCloseable {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 200;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    public static final double DEFAULT_SEARCH_RADIUS = 10.0;
+
+    // longest the dispatcher waits for more requests before checking whether it was closed
+    private static final long SHUTDOWN_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // cost of a pair that must never be used, kept finite so the assignment arithmetic stays well defined
+    private static final double NOT_ALLOWED = 1e12;
+
+    private final TripManager tripManager;
+    private final PricingStrategy pricingStrategy;
+    private final DistanceFindingStrategy distanceFindingStrategy;
+    private final DriverMatchingStrategy fallbackMatchingStrategy;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final double searchRadius;
+
+    private final BlockingQueue<RideRequest> pendingRequests = new LinkedBlockingQueue<>();
+    private final DispatchMetrics metrics = new DispatchMetrics();
+    private final Thread dispatcherThread;
+    private volatile boolean running = true;
+
+    // held while checking running and enqueueing, so no request slips in after close() stopped the dispatcher
+    private final Object shutdownLock = new Object();
+
+    public BatchDispatcher(final TripManager tripManager, final PricingStrategy pricingStrategy,
+            final DistanceFindingStrategy distanceFindingStrategy,
+            final DriverMatchingStrategy fallbackMatchingStrategy) {
+        this(tripManager, pricingStrategy, distanceFindingStrategy, fallbackMatchingStrategy, DEFAULT_WINDOW_MILLIS,
+                DEFAULT_MAX_BATCH_SIZE, DEFAULT_SEARCH_RADIUS);
+    }
+
+    /**
+     * @param windowMillis how long requests are collected, counted from the first request of the batch.
+     * @param maxBatchSize a batch is dispatched as soon as it holds this many requests, even inside the window.
+     * @param searchRadius only drivers within this distance of a rider's origin are considered for him.
+     */
+    public BatchDispatcher(final TripManager tripManager, final PricingStrategy pricingStrategy,
+            final DistanceFindingStrategy distanceFindingStrategy,
+            final DriverMatchingStrategy fallbackMatchingStrategy, final long windowMillis, final int maxBatchSize,
+            final double searchRadius) {
+        if (windowMillis < 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Window should be >= 0 and batch size > 0");
+        }
+        this.tripManager = tripManager;
+        this.pricingStrategy = pricingStrategy;
+        this.distanceFindingStrategy = distanceFindingStrategy;
+        this.fallbackMatchingStrategy = fallbackMatchingStrategy;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.searchRadius = searchRadius;
+
+        this.dispatcherThread = new Thread(this::run, "batch-dispatcher");
+        this.dispatcherThread.setDaemon(true);
+        this.dispatcherThread.start();
+    }
+
+    /**
+     * Queue a ride request for the next batch.
+     *
+     * @return future completed with the trip id, or exceptionally with the same exceptions createTrip throws.
+     */
+    public CompletableFuture<String> submit(final Rider rider, final Location origin, final Location destination,
+            final CarType requestedCarType) {
+        RideRequest request = new RideRequest(rider, origin, destination, requestedCarType);
+        synchronized (shutdownLock) {
+            if (!running) {
+                throw new IllegalStateException("Dispatcher has been shut down");
+            }
+            metrics.recordSubmitted();
+            pendingRequests.add(request);
+        }
+        return request.getTripId();
+    }
+
+    public DispatchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Stops accepting requests, dispatches whatever is still queued and waits for the dispatcher thread. If the
+     * wait is interrupted the interrupt flag is restored and the requests not picked up yet are failed.
+     */
+    @Override
+    public void close() {
+        synchronized (shutdownLock) {
+            running = false;
+        }
+        try {
+            dispatcherThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // left behind by a dispatcher thread stopped early, or still queued when the wait was interrupted
+        failPending(new IllegalStateException("Dispatcher has been shut down"));
+    }
+
+    private void run() {
+        List<RideRequest> batch = new ArrayList<>();
+        while (running || !pendingRequests.isEmpty()) {
+            try {
+                RideRequest first = pendingRequests.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = first.getSubmittedAtNanos() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    pendingRequests.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    // once closed nothing more is coming, the window is dispatched right away
+                    if (batch.size() >= maxBatchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    RideRequest next = pendingRequests.poll(Math.min(remaining, SHUTDOWN_CHECK_NANOS),
+                            TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (shutdownLock) {
+                    running = false;
+                }
+                IllegalStateException shutDown = new IllegalStateException("Dispatcher has been interrupted");
+                failBatch(batch, shutDown);
+                failPending(shutDown);
+                return;
+            } catch (RuntimeException e) {
+                // never let one bad batch kill the dispatcher, fail its requests instead
+                failBatch(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void failBatch(final List<RideRequest> batch, final RuntimeException e) {
+        for (RideRequest request : batch) {
+            if (!request.getTripId().isDone()) {
+                metrics.recordFailed(request);
+                request.getTripId().completeExceptionally(e);
+            }
+        }
+    }
+
+    // requests polled off the queue here are no longer visible to the dispatcher thread, each one is failed once
+    private void failPending(final RuntimeException e) {
+        RideRequest request;
+        while ((request = pendingRequests.poll()) != null) {
+            metrics.recordFailed(request);
+            request.getTripId().completeExceptionally(e);
+        }
+    }
+
+    private void dispatch(final List<RideRequest> batch) {
+        long matchingStart = System.nanoTime();
+
+        // candidate drivers of the whole window, deduplicated by driver id
+        DriverManager driverManager = tripManager.getDriverManager();
+        Map<Integer, Driver> candidates = new LinkedHashMap<>();
+        for (RideRequest request : batch) {
+            for (Driver driver : driverManager.getDriversWithinRadius(request.getOrigin(), searchRadius,
+                    distanceFindingStrategy)) {
+                if (driver.isAvailable()) {
+                    candidates.putIfAbsent(driver.getId(), driver);
+                }
+            }
+        }
+        List<Driver> drivers = new ArrayList<>(candidates.values());
+
+        double[][] cost = new double[batch.size()][drivers.size()];
+        for (int row = 0; row < batch.size(); row++) {
+            RideRequest request = batch.get(row);
+            for (int column = 0; column < drivers.size(); column++) {
+                cost[row][column] = pickupCost(request, drivers.get(column));
+            }
+        }
+        int[] assignment = HungarianAssignment.solve(cost);
+        metrics.recordBatch(batch.size(), System.nanoTime() - matchingStart);
+
+        for (int row = 0; row < batch.size(); row++) {
+            RideRequest request = batch.get(row);
+            int column = assignment[row];
+            Driver driver = column >= 0 && cost[row][column] < NOT_ALLOWED ? drivers.get(column) : null;
+            complete(request, driver);
+        }
+    }
+
+    /** Pickup distance, upgrades are allowed but cost as much as the search radius so exact matches win. */
+    private double pickupCost(final RideRequest request, final Driver driver) {
+        CarType carType = driver.getCar().getCarType();
+        boolean upgrade = request.getRequestedCarType() == CarType.HATCHBACK && carType == CarType.SEDAN;
+        if (carType != request.getRequestedCarType() && !upgrade) {
+            return NOT_ALLOWED;
+        }
+
+        long location = driver.getPackedLocation();
+        double distance = distanceFindingStrategy.distance(Location.latitudeOf(location),
+                Location.longitudeOf(location), request.getOrigin().getLatitude(), request.getOrigin().getLongitude());
+        if (distance > searchRadius) {
+            return NOT_ALLOWED;
+        }
+        return upgrade ? distance + searchRadius : distance;
+    }
+
+    private void complete(final RideRequest request, final Driver assignedDriver) {
+        try {
+            String tripId;
+            boolean batchMatched = false;
+            if (assignedDriver != null) {
+                // falls back to matching when the assigned driver got booked meanwhile, counted once as demand
+                tripId = tripManager.createTripWithDriver(request.getRider(), assignedDriver, request.getOrigin(),
+                        request.getDestination(), pricingStrategy, distanceFindingStrategy,
+                        fallbackMatchingStrategy, request.getRequestedCarType());
+                batchMatched = tripManager.getTripOrThrow(tripId).getDriver() == assignedDriver;
+            } else {
+                // no driver left for this rider in the batch
+                tripId = tripManager.createTrip(request.getRider(), request.getOrigin(), request.getDestination(),
+                        pricingStrategy, distanceFindingStrategy, fallbackMatchingStrategy,
+                        request.getRequestedCarType());
+            }
+            metrics.recordCompleted(request, batchMatched);
+            request.getTripId().complete(tripId);
+        } catch (RuntimeException e) {
+            metrics.recordFailed(request);
+            request.getTripId().completeExceptionally(e);
+        }
+    }
+}
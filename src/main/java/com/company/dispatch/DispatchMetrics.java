@@ -0,0 +1,109 @@
+package com.company.dispatch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Throughput and latency counters of the batch dispatcher, cheap to update from any thread. */
+public class DispatchMetrics {
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder batchMatched = new LongAdder();
+    private final LongAdder fallbackMatched = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRequests = new LongAdder();
+    private final LongAdder matchingNanos = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+    private final long createdAtNanos = System.nanoTime();
+
+    void recordSubmitted() {
+        submitted.increment();
+    }
+
+    void recordBatch(final int size, final long matchingTimeNanos) {
+        batches.increment();
+        batchedRequests.add(size);
+        matchingNanos.add(matchingTimeNanos);
+    }
+
+    void recordCompleted(final RideRequest request, final boolean matchedInBatch) {
+        if (matchedInBatch) {
+            batchMatched.increment();
+        } else {
+            fallbackMatched.increment();
+        }
+        recordLatency(request);
+    }
+
+    void recordFailed(final RideRequest request) {
+        failed.increment();
+        recordLatency(request);
+    }
+
+    private void recordLatency(final RideRequest request) {
+        long latency = System.nanoTime() - request.getSubmittedAtNanos();
+        latencyNanos.add(latency);
+        maxLatencyNanos.accumulate(latency);
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    /** Requests that got a driver from the global assignment. */
+    public long getBatchMatched() {
+        return batchMatched.sum();
+    }
+
+    /** Requests left unmatched by the batch, or whose driver was taken meanwhile, booked one at a time instead. */
+    public long getFallbackMatched() {
+        return fallbackMatched.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public double getAverageBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) batchedRequests.sum() / count;
+    }
+
+    /** Average time spent building and solving the assignment of one batch. */
+    public double getAverageMatchingMillis() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) matchingNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /** Average time between submitting a request and it being completed, including the time spent in the window. */
+    public double getAverageLatencyMillis() {
+        long count = batchMatched.sum() + fallbackMatched.sum() + failed.sum();
+        return count == 0 ? 0 : (double) latencyNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxLatencyMillis() {
+        return (double) maxLatencyNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /** Completed requests per second since the dispatcher was created. */
+    public double getThroughputPerSecond() {
+        long elapsed = System.nanoTime() - createdAtNanos;
+        long completed = batchMatched.sum() + fallbackMatched.sum() + failed.sum();
+        return elapsed == 0 ? 0 : completed * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchMetrics{submitted=" + getSubmitted() + ", batchMatched=" + getBatchMatched()
+                + ", fallbackMatched=" + getFallbackMatched() + ", failed=" + getFailed() + ", batches=" + getBatches()
+                + ", avgBatchSize=" + getAverageBatchSize() + ", avgMatchingMs=" + getAverageMatchingMillis()
+                + ", avgLatencyMs=" + getAverageLatencyMillis() + ", maxLatencyMs=" + getMaxLatencyMillis()
+                + ", throughputPerSec=" + getThroughputPerSecond() + "}";
+    }
+}
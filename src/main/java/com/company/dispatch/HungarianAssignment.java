@@ -0,0 +1,105 @@
+package com.company.dispatch;
+
+import java.util.Arrays;
+
+/** Minimum cost assignment of rows to columns using the Hungarian algorithm, O(rows^2 * columns). */
+public final class HungarianAssignment {
+
+    private HungarianAssignment() {
+    }
+
+    /**
+     * Solves the assignment problem for the given cost matrix.
+     *
+     * @param cost rows x columns matrix, all rows must have the same length.
+     * @return for every row the column assigned to it, or -1 if the row is left unassigned because there are fewer
+     *     columns than rows.
+     */
+    public static int[] solve(final double[][] cost) {
+        int rows = cost.length;
+        if (rows == 0) {
+            return new int[0];
+        }
+        int columns = cost[0].length;
+        if (columns == 0) {
+            int[] unassigned = new int[rows];
+            Arrays.fill(unassigned, -1);
+            return unassigned;
+        }
+
+        // the algorithm needs rows <= columns, solve the transposed problem otherwise
+        if (rows > columns) {
+            double[][] transposed = new double[columns][rows];
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    transposed[column][row] = cost[row][column];
+                }
+            }
+            int[] columnToRow = solve(transposed);
+            int[] rowToColumn = new int[rows];
+            Arrays.fill(rowToColumn, -1);
+            for (int column = 0; column < columns; column++) {
+                rowToColumn[columnToRow[column]] = column;
+            }
+            return rowToColumn;
+        }
+
+        // potentials and matching are 1-based, index 0 is the virtual starting row / column
+        double[] rowPotential = new double[rows + 1];
+        double[] columnPotential = new double[columns + 1];
+        int[] columnMatch = new int[columns + 1];
+        int[] way = new int[columns + 1];
+        double[] minSlack = new double[columns + 1];
+        boolean[] used = new boolean[columns + 1];
+
+        for (int row = 1; row <= rows; row++) {
+            columnMatch[0] = row;
+            int column0 = 0;
+            Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                used[column0] = true;
+                int row0 = columnMatch[column0];
+                double delta = Double.POSITIVE_INFINITY;
+                int column1 = 0;
+                for (int column = 1; column <= columns; column++) {
+                    if (!used[column]) {
+                        double slack = cost[row0 - 1][column - 1] - rowPotential[row0] - columnPotential[column];
+                        if (slack < minSlack[column]) {
+                            minSlack[column] = slack;
+                            way[column] = column0;
+                        }
+                        if (minSlack[column] < delta) {
+                            delta = minSlack[column];
+                            column1 = column;
+                        }
+                    }
+                }
+                for (int column = 0; column <= columns; column++) {
+                    if (used[column]) {
+                        rowPotential[columnMatch[column]] += delta;
+                        columnPotential[column] -= delta;
+                    } else {
+                        minSlack[column] -= delta;
+                    }
+                }
+                column0 = column1;
+            } while (columnMatch[column0] != 0);
+
+            do {
+                int column1 = way[column0];
+                columnMatch[column0] = columnMatch[column1];
+                column0 = column1;
+            } while (column0 != 0);
+        }
+
+        int[] rowToColumn = new int[rows];
+        Arrays.fill(rowToColumn, -1);
+        for (int column = 1; column <= columns; column++) {
+            if (columnMatch[column] != 0) {
+                rowToColumn[columnMatch[column] - 1] = column - 1;
+            }
+        }
+        return rowToColumn;
+    }
+}
@@ -0,0 +1,31 @@
+package com.company.dispatch;
+
+import com.company.model.CarType;
+import com.company.model.Location;
+import com.company.model.Rider;
+import java.util.concurrent.CompletableFuture;
+import lombok.Getter;
+
+/** A ride request waiting in the batch dispatcher, completed with the trip id once it has been dispatched. */
+@Getter
+public class RideRequest {
+
+    private final Rider rider;
+    private final Location origin;
+    private final Location destination;
+    private final CarType requestedCarType;
+
+    // System.nanoTime() when the request was submitted, used for the latency metrics
+    private final long submittedAtNanos;
+
+    private final CompletableFuture<String> tripId = new CompletableFuture<>();
+
+    public RideRequest(final Rider rider, final Location origin, final Location destination,
+            final CarType requestedCarType) {
+        this.rider = rider;
+        this.origin = origin;
+        this.destination = destination;
+        this.requestedCarType = requestedCarType;
+        this.submittedAtNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,142 @@
+package com.company.events;
+
+import com.company.model.Location;
+import com.company.model.Trip;
+import com.company.model.TripIds;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * One trip or driver state transition. Events are slots of the {@link EventBus} ring, filled in place and reused
+ * once every subscriber has seen them, so a handler must {@link #copy} an event it wants to keep past its batch.
+ *
+ * <p>Trip events carry the trip, its rider, driver, fare and route. Driver events carry the driver and either its
+ * new location or its availability. Locations are packed, see {@link Location#pack}.
+ */
+@Getter
+public final class Event {
+
+    private long sequence;
+    private long timestamp;
+    private EventType type;
+    // trip id as its compact key, the string form is only built when asked for. Trips restored with an id that
+    // isn't compact carry that id instead
+    @Getter(AccessLevel.NONE) private long tripKey = TripIds.NOT_COMPACT;
+    @Getter(AccessLevel.NONE) private String legacyTripId;
+    private int riderId;
+    private int driverId;
+    private double fare;
+    // driver location, or trip origin
+    private long location = Location.NO_LOCATION;
+    // trip destination
+    private long destination = Location.NO_LOCATION;
+    private boolean available;
+
+    /** Detached copy, safe to keep after the batch has been handled. */
+    public Event copy() {
+        Event copy = new Event();
+        copy.sequence = sequence;
+        copy.timestamp = timestamp;
+        copy.type = type;
+        copy.tripKey = tripKey;
+        copy.legacyTripId = legacyTripId;
+        copy.riderId = riderId;
+        copy.driverId = driverId;
+        copy.fare = fare;
+        copy.location = location;
+        copy.destination = destination;
+        copy.available = available;
+        return copy;
+    }
+
+    /** Id of the trip of a trip event, null for driver events. */
+    public String getTripId() {
+        if (legacyTripId != null) {
+            return legacyTripId;
+        }
+        return tripKey == TripIds.NOT_COMPACT ? null : TripIds.format(tripKey);
+    }
+
+    void setTrip(final long sequence, final long timestamp, final EventType type, final Trip trip) {
+        begin(sequence, timestamp, type);
+        tripKey = trip.getKey();
+        legacyTripId = tripKey == TripIds.NOT_COMPACT ? trip.getId() : null;
+        riderId = trip.getRider().getId();
+        driverId = trip.getDriver().getId();
+        fare = trip.getFare();
+        location = Location.pack(trip.getOrigin().getLatitude(), trip.getOrigin().getLongitude());
+        destination = Location.pack(trip.getDestination().getLatitude(), trip.getDestination().getLongitude());
+    }
+
+    void setDriverLocation(final long sequence, final long timestamp, final int driverId, final int latitude,
+            final int longitude) {
+        begin(sequence, timestamp, EventType.DRIVER_LOCATION);
+        this.driverId = driverId;
+        location = Location.pack(latitude, longitude);
+    }
+
+    void setDriverAvailability(final long sequence, final long timestamp, final int driverId,
+            final boolean available) {
+        begin(sequence, timestamp, EventType.DRIVER_AVAILABILITY);
+        this.driverId = driverId;
+        this.available = available;
+    }
+
+    void encode(final ByteBuffer buffer) {
+        buffer.put((byte) type.ordinal());
+        buffer.putLong(sequence);
+        buffer.putLong(timestamp);
+        buffer.putInt(riderId);
+        buffer.putInt(driverId);
+        buffer.putDouble(fare);
+        buffer.putLong(location);
+        buffer.putLong(destination);
+        buffer.put((byte) (available ? 1 : 0));
+        String tripId = getTripId();
+        if (tripId == null) {
+            buffer.putShort((short) -1);
+        } else {
+            byte[] bytes = tripId.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    void decode(final ByteBuffer buffer) {
+        type = EventType.values()[buffer.get()];
+        sequence = buffer.getLong();
+        timestamp = buffer.getLong();
+        riderId = buffer.getInt();
+        driverId = buffer.getInt();
+        fare = buffer.getDouble();
+        location = buffer.getLong();
+        destination = buffer.getLong();
+        available = buffer.get() == 1;
+        short length = buffer.getShort();
+        tripKey = TripIds.NOT_COMPACT;
+        legacyTripId = null;
+        if (length >= 0) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            String tripId = new String(bytes, StandardCharsets.UTF_8);
+            tripKey = TripIds.parse(tripId);
+            legacyTripId = tripKey == TripIds.NOT_COMPACT ? tripId : null;
+        }
+    }
+
+    private void begin(final long sequence, final long timestamp, final EventType type) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        tripKey = TripIds.NOT_COMPACT;
+        legacyTripId = null;
+        riderId = -1;
+        driverId = -1;
+        fare = 0;
+        location = Location.NO_LOCATION;
+        destination = Location.NO_LOCATION;
+        available = false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.company.events;
+
+/** Run of consecutive events handed to an {@link EventHandler}, a window on the bus ring rather than a copy. */
+public final class EventBatch {
+
+    private final Event[] entries;
+    private final int mask;
+    private long firstSequence;
+    private int size;
+
+    EventBatch(final Event[] entries) {
+        this.entries = entries;
+        this.mask = entries.length - 1;
+    }
+
+    void reset(final long firstSequence, final int size) {
+        this.firstSequence = firstSequence;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Event get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("No event " + index + " in a batch of " + size);
+        }
+        return entries[(int) ((firstSequence + index) & mask)];
+    }
+
+    /** Sequence of the first event, the others follow without gaps. */
+    public long getFirstSequence() {
+        return firstSequence;
+    }
+}
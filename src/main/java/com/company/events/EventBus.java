@@ -0,0 +1,270 @@
+package com.company.events;
+
+import com.company.model.Trip;
+import java.lang.System.Logger.Level;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process bus for trip and driver state transitions, built on a preallocated ring of {@link Event} slots in the
+ * style of a disruptor.
+ *
+ * <p>Publishers claim the next sequence with a compare-and-set, fill the slot in place and publish it with an
+ * ordered write of its sequence, no lock is taken and nothing is allocated. Every {@link Subscription} reads the
+ * ring on its own thread and gets the events in batches of whatever has been published since its last batch.
+ *
+ * <p>A slot is only reused once every subscriber has moved past it. When the slowest subscriber is a whole ring
+ * behind the publisher does not wait: the event is dropped and counted in {@link #getDropped()}, so a slow consumer
+ * never holds up a booking.
+ */
+public class EventBus implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(EventBus.class.getName());
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int DEFAULT_MAX_BATCH = 1024;
+
+    private static final int SPIN_ROUNDS = 100;
+    private static final int YIELD_ROUNDS = 200;
+    private static final long PARK_NANOS = 100_000;
+
+    private final Event[] entries;
+    private final int mask;
+    // sequence held by each slot once it is readable, -1 before the first use
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final LongSupplier clock;
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    // last known position of the slowest subscriber, refreshed only when the ring looks full
+    private volatile long gatingSequence = -1;
+
+    public EventBus() {
+        this(DEFAULT_CAPACITY, System::currentTimeMillis);
+    }
+
+    /** @param capacity number of slots in the ring, a power of two. */
+    public EventBus(final int capacity, final LongSupplier clock) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity should be a power of two");
+        }
+        this.entries = new Event[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Event();
+        }
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * Starts delivering events published from now on to the handler, on a thread of its own.
+     *
+     * @param maxBatch most events handed over in one call.
+     */
+    public synchronized Subscription subscribe(final String name, final EventHandler handler, final int maxBatch) {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("Batch size should be positive");
+        }
+        Subscription subscription = new Subscription(name, handler, maxBatch, claimed.get());
+        Subscription[] current = subscriptions;
+        Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscription;
+        subscriptions = updated;
+        subscription.thread.start();
+        return subscription;
+    }
+
+    public Subscription subscribe(final String name, final EventHandler handler) {
+        return subscribe(name, handler, DEFAULT_MAX_BATCH);
+    }
+
+    /** @return false if the ring was full and the event dropped. */
+    public boolean publishTrip(final EventType type, final Trip trip) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return false;
+        }
+        int index = (int) (sequence & mask);
+        entries[index].setTrip(sequence, clock.getAsLong(), type, trip);
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    /** @return false if the ring was full and the event dropped. */
+    public boolean publishDriverLocation(final int driverId, final int latitude, final int longitude) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return false;
+        }
+        int index = (int) (sequence & mask);
+        entries[index].setDriverLocation(sequence, clock.getAsLong(), driverId, latitude, longitude);
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    /** @return false if the ring was full and the event dropped. */
+    public boolean publishDriverAvailability(final int driverId, final boolean available) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return false;
+        }
+        int index = (int) (sequence & mask);
+        entries[index].setDriverAvailability(sequence, clock.getAsLong(), driverId, available);
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    /** Events dropped because a subscriber was a whole ring behind. */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** Sequence of the last event claimed by a publisher, -1 before the first. */
+    public long getCursor() {
+        return claimed.get();
+    }
+
+    /** Stops every subscription once it has handled the events published so far. */
+    @Override
+    public synchronized void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    private long claim() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            long wrapPoint = next - entries.length;
+            if (wrapPoint > gatingSequence) {
+                long slowest = slowestSequence(current);
+                gatingSequence = slowest;
+                if (wrapPoint > slowest) {
+                    dropped.increment();
+                    return -1;
+                }
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long slowestSequence(final long cursor) {
+        long slowest = cursor;
+        for (Subscription subscription : subscriptions) {
+            slowest = Math.min(slowest, subscription.sequence);
+        }
+        return slowest;
+    }
+
+    private synchronized void unsubscribe(final Subscription subscription) {
+        Subscription[] current = subscriptions;
+        Subscription[] updated = new Subscription[current.length - 1];
+        int i = 0;
+        for (Subscription other : current) {
+            if (other != subscription) {
+                updated[i++] = other;
+            }
+        }
+        subscriptions = updated;
+    }
+
+    /** A handler reading the bus on its own thread. */
+    public final class Subscription implements AutoCloseable {
+
+        private final String name;
+        private final EventHandler handler;
+        private final int maxBatch;
+        private final EventBatch batch = new EventBatch(entries);
+        private final Thread thread;
+
+        // last sequence handled, slots up to it can be reused by publishers
+        private volatile long sequence;
+        private volatile boolean running = true;
+        // cursor when the subscription was closed, events up to it are still handled
+        private volatile long stopSequence = Long.MAX_VALUE;
+
+        private Subscription(final String name, final EventHandler handler, final int maxBatch,
+                final long startSequence) {
+            this.name = name;
+            this.handler = handler;
+            this.maxBatch = maxBatch;
+            this.sequence = startSequence;
+            this.thread = new Thread(this::run, "event-bus-" + name);
+            thread.setDaemon(true);
+        }
+
+        /** Events published but not handled yet. */
+        public long getLag() {
+            return Math.max(0, claimed.get() - sequence);
+        }
+
+        /** Handles the events published so far, then stops the thread. */
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (!running) {
+                    return;
+                }
+                stopSequence = claimed.get();
+                running = false;
+            }
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            unsubscribe(this);
+        }
+
+        private void run() {
+            long next = sequence + 1;
+            int idleRounds = 0;
+            while (running || next <= stopSequence) {
+                int count = 0;
+                while (count < maxBatch && published.get((int) ((next + count) & mask)) == next + count) {
+                    count++;
+                }
+                if (count == 0) {
+                    idle(++idleRounds);
+                    continue;
+                }
+                idleRounds = 0;
+                batch.reset(next, count);
+                try {
+                    handler.onEvents(batch);
+                } catch (RuntimeException e) {
+                    // a failing handler loses its batch but keeps the subscription alive
+                    LOGGER.log(Level.ERROR, "Event handler " + name + " failed on events " + next + " to "
+                            + (next + count - 1), e);
+                }
+                next += count;
+                sequence = next - 1;
+            }
+        }
+
+        private void idle(final int rounds) {
+            if (rounds < SPIN_ROUNDS) {
+                Thread.onSpinWait();
+            } else if (rounds < YIELD_ROUNDS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.company.events;
+
+import com.company.persistence.WriteAheadLog;
+import com.company.persistence.WriteAheadLog.Durability;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Handler recording the events it gets to segment files in a directory, in the {@link WriteAheadLog} format, so
+ * they can be replayed locally later. Subscribe it to the bus like any other handler, writing happens on the
+ * subscription's thread and never slows down publishers.
+ */
+public class EventFileSink implements EventHandler, AutoCloseable {
+
+    private static final int MAX_EVENT_SIZE = 1 << 10;
+
+    private final WriteAheadLog log;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_EVENT_SIZE);
+
+    /**
+     * Sink appending to the directory, created if needed. Events recorded by earlier sinks are kept.
+     *
+     * @throws IOException if the directory or the first segment can't be created.
+     */
+    public EventFileSink(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> segments = WriteAheadLog.segments(directory);
+        long nextSegment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+        this.log = new WriteAheadLog(directory, nextSegment, Durability.ASYNC);
+    }
+
+    @Override
+    public void onEvents(final EventBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            buffer.clear();
+            batch.get(i).encode(buffer);
+            buffer.flip();
+            log.append(buffer);
+        }
+    }
+
+    /** Waits until every event handled so far is on disk. */
+    public void sync() {
+        log.sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Hands every event recorded in the directory to the consumer, oldest first. The event passed is reused between
+     * calls, {@link Event#copy} it to keep it. A record torn by a crash ends the replay of its segment.
+     *
+     * @return number of events replayed.
+     * @throws IOException if the files can't be read.
+     */
+    public static long replay(final Path directory, final Consumer<Event> consumer) throws IOException {
+        Event event = new Event();
+        long events = 0;
+        for (long segment : WriteAheadLog.segments(directory)) {
+            events += WriteAheadLog.replay(directory, segment, true, record -> {
+                event.decode(record);
+                consumer.accept(event);
+            });
+        }
+        return events;
+    }
+}
@@ -0,0 +1,12 @@
+package com.company.events;
+
+/** Consumer of the events of an {@link EventBus}, called from the subscription's own thread. */
+@FunctionalInterface
+public interface EventHandler {
+
+    /**
+     * Handles the events published since the previous batch, in publishing order. The batch and its events are only
+     * valid during the call.
+     */
+    void onEvents(EventBatch batch);
+}
@@ -0,0 +1,12 @@
+package com.company.events;
+
+/** State transitions published on the {@link EventBus}. */
+public enum EventType {
+    TRIP_BOOKED,
+    TRIP_UPDATED,
+    TRIP_STARTED,
+    TRIP_COMPLETED,
+    TRIP_WITHDRAWN,
+    DRIVER_LOCATION,
+    DRIVER_AVAILABILITY
+}
@@ -0,0 +1,227 @@
+package com.company.history;
+
+import com.company.model.CarType;
+import com.company.model.Location;
+import com.company.model.TripIds;
+import com.company.model.TripStatus;
+import com.company.storage.CompactLongMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Append-only local file holding the trips that fell out of the in-memory history windows.
+ *
+ * <p>Every record points back at the previous record of the same owner (a rider or a driver), so the archived
+ * history of an owner is a chain walked from its newest record without any index on disk. Only the offset of the
+ * newest record per owner is kept in memory and it is rebuilt by scanning the file when the archive is reopened.
+ * A record cut short by a crash is dropped at that point.
+ *
+ * <p>The archive also finds the newest record of a trip archived once finished by the trip's compact id, so finished
+ * trips can be dropped from memory and read back from here. That index holds a key and an offset per such trip and
+ * is rebuilt with the heads.
+ *
+ * <p>Appends are serialized, reads use positional I/O and can run concurrently with them.
+ */
+public class TripArchive implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(TripArchive.class.getName());
+
+    /** Offset marking the end of an owner's chain. */
+    public static final long NONE = -1;
+
+    private static final int RIDER_OWNER = 1;
+    private static final int DRIVER_OWNER = 2;
+
+    private final Path path;
+    private final FileChannel channel;
+    // owner key to offset of the owner's newest record
+    private final Map<Long, Long> heads = new ConcurrentHashMap<>();
+    // owner key to sequence of the owner's newest record, lets a history replayed after a restart skip trips that
+    // were archived before it
+    private final Map<Long, Long> headSequences = new ConcurrentHashMap<>();
+    // compact trip id to offset of the trip's newest record archived as completed or withdrawn
+    private final CompactLongMap<Long> finished = new CompactLongMap<>();
+    private long end;
+
+    private TripArchive(final Path path, final FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the archive file, creating it if needed.
+     *
+     * @throws IOException if the file can't be opened or read.
+     */
+    public static TripArchive open(final Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        TripArchive archive = new TripArchive(path, channel);
+        try {
+            archive.recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return archive;
+    }
+
+    public static long riderKey(final int riderId) {
+        return ((long) RIDER_OWNER << 32) | (riderId & 0xFFFFFFFFL);
+    }
+
+    public static long driverKey(final int driverId) {
+        return ((long) DRIVER_OWNER << 32) | (driverId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Appends a trip to the owner's chain, sequence is the trip's position in the owner's history. Trips at or below
+     * the owner's newest archived sequence are already there and skipped.
+     */
+    public synchronized void append(final long ownerKey, final long sequence, final TripRecord trip) {
+        if (sequence <= headSequences.getOrDefault(ownerKey, -1L)) {
+            return;
+        }
+        long previous = heads.getOrDefault(ownerKey, NONE);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeLong(ownerKey);
+            out.writeLong(previous);
+            out.writeLong(sequence);
+            out.writeUTF(trip.getId());
+            out.writeInt(trip.getRiderId());
+            out.writeInt(trip.getDriverId());
+            out.writeInt(trip.getOrigin().getLatitude());
+            out.writeInt(trip.getOrigin().getLongitude());
+            out.writeInt(trip.getDestination().getLatitude());
+            out.writeInt(trip.getDestination().getLongitude());
+            out.writeDouble(trip.getFare());
+            out.writeByte(trip.getCarType().ordinal());
+            out.writeByte(trip.getStatus().ordinal());
+
+            ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+            record.putInt(0, record.remaining() - Integer.BYTES);
+            long offset = end;
+            while (record.hasRemaining()) {
+                end += channel.write(record, end);
+            }
+            heads.put(ownerKey, offset);
+            headSequences.put(ownerKey, sequence);
+            indexFinished(trip, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to trip archive " + path, e);
+        }
+    }
+
+    /** Offset of the owner's newest archived trip, {@link #NONE} if nothing was archived for it. */
+    public long head(final long ownerKey) {
+        return heads.getOrDefault(ownerKey, NONE);
+    }
+
+    /**
+     * Newest record of the trip archived as completed or withdrawn, null if there is none or the id isn't a compact
+     * one.
+     */
+    public TripRecord findFinished(final long tripKey) {
+        Long offset = tripKey == TripIds.NOT_COMPACT ? null : finished.get(tripKey);
+        return offset == null ? null : read(offset).getTrip();
+    }
+
+    /** Reads the record written at the offset. */
+    public ArchivedTrip read(final long offset) {
+        try {
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            readFully(length, offset);
+            ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+            readFully(payload, offset + Integer.BYTES);
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+            in.readLong();
+            long previous = in.readLong();
+            long sequence = in.readLong();
+            TripRecord trip = new TripRecord(in.readUTF(), in.readInt(), in.readInt(),
+                    new Location(in.readInt(), in.readInt()), new Location(in.readInt(), in.readInt()),
+                    in.readDouble(), CarType.values()[in.readByte()], TripStatus.values()[in.readByte()]);
+            return new ArchivedTrip(trip, sequence, previous);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read trip archive " + path + " at " + offset, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private void recover() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 3 * Long.BYTES);
+        long offset = 0;
+        while (offset + header.capacity() <= size) {
+            header.clear();
+            readFully(header, offset);
+            long recordEnd = offset + Integer.BYTES + header.getInt(0);
+            if (recordEnd > size) {
+                break;
+            }
+            long ownerKey = header.getLong(Integer.BYTES);
+            heads.put(ownerKey, offset);
+            headSequences.put(ownerKey, header.getLong(Integer.BYTES + 2 * Long.BYTES));
+            indexFinished(read(offset).getTrip(), offset);
+            offset = recordEnd;
+        }
+        if (offset < size) {
+            LOGGER.log(Level.WARNING, "Dropping incomplete record at the end of trip archive {0}", path);
+            channel.truncate(offset);
+        }
+        end = offset;
+    }
+
+    private void indexFinished(final TripRecord trip, final long offset) {
+        TripStatus status = trip.getStatus();
+        long key = TripIds.parse(trip.getId());
+        if ((status == TripStatus.COMPLETED || status == TripStatus.WITHDRAWN) && key != TripIds.NOT_COMPACT) {
+            finished.put(key, offset);
+        }
+    }
+
+    private void readFully(final ByteBuffer buffer, final long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of trip archive " + path);
+            }
+            position += read;
+        }
+    }
+
+    /** An archived trip with its place in the owner's chain. */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static final class ArchivedTrip {
+        private final TripRecord trip;
+        private final long sequence;
+        private final long previousOffset;
+    }
+}
@@ -0,0 +1,180 @@
+package com.company.history;
+
+import com.company.model.Trip;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trip history of one rider or driver: only the most recent trips stay in memory, older ones are spilled to a
+ * {@link TripArchive} when one is attached and forgotten otherwise.
+ *
+ * <p>Trips are numbered in the order they were added. Pages are read newest first and the cursor of a page is the
+ * sequence number to continue below, or the archive offset to continue from once paging has reached the archive,
+ * so a page costs O(page size) however long the history is. Spilled trips are archived as they were when they
+ * left the window; the window should be large enough for them to be finished by then.
+ */
+public class TripHistory {
+
+    public static final int DEFAULT_WINDOW = 50;
+
+    /** Cursor of the first page. */
+    public static final long FIRST_PAGE = Long.MAX_VALUE;
+    /** Cursor returned once there is nothing left to read. */
+    public static final long END = -1;
+
+    // ring buffer of the recent trips, oldest at start
+    private Trip[] window;
+    private int start;
+    private int size;
+    // number of trips ever added, the next trip gets this sequence number
+    private long total;
+
+    private TripArchive archive;
+    private long ownerKey;
+
+    public TripHistory() {
+        this(DEFAULT_WINDOW);
+    }
+
+    public TripHistory(final int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("History window should be positive");
+        }
+        this.window = new Trip[windowSize];
+    }
+
+    /**
+     * Resizes the in-memory window and sets where trips leaving it go, a null archive drops them. Trips that no
+     * longer fit are spilled right away.
+     */
+    public synchronized void configure(final int windowSize, final TripArchive archive, final long ownerKey) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("History window should be positive");
+        }
+        this.archive = archive;
+        this.ownerKey = ownerKey;
+        while (size > windowSize) {
+            evictOldest();
+        }
+        Trip[] resized = new Trip[windowSize];
+        for (int i = 0; i < size; i++) {
+            resized[i] = window[(start + i) % window.length];
+        }
+        window = resized;
+        start = 0;
+    }
+
+    /** Adds the newest trip, returns the trip it pushed out of the window or null if there was room. */
+    public synchronized Trip add(final Trip trip) {
+        Trip spilled = size == window.length ? evictOldest() : null;
+        window[(start + size) % window.length] = trip;
+        size++;
+        total++;
+        return spilled;
+    }
+
+    /**
+     * Replaces the history with restored state, nothing is archived: the trips older than the recent ones are
+     * expected to be in the archive already.
+     *
+     * @param total number of trips ever added.
+     * @param recent the trips still held in memory, oldest first.
+     */
+    public synchronized void restore(final long total, final List<Trip> recent) {
+        Arrays.fill(window, null);
+        start = 0;
+        size = 0;
+        for (int i = Math.max(0, recent.size() - window.length); i < recent.size(); i++) {
+            window[size++] = recent.get(i);
+        }
+        this.total = Math.max(total, size);
+    }
+
+    /** Number of trips ever added, archived or dropped ones included. */
+    public synchronized long size() {
+        return total;
+    }
+
+    /** Whether the trip is still held in memory. */
+    public synchronized boolean contains(final Trip trip) {
+        for (int i = 0; i < size; i++) {
+            if (window[(start + i) % window.length] == trip) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The trips still held in memory, oldest first. */
+    public synchronized List<Trip> recent() {
+        List<Trip> trips = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            trips.add(window[(start + i) % window.length]);
+        }
+        return trips;
+    }
+
+    /**
+     * Reads up to pageSize trips, newest first.
+     *
+     * @param cursor {@link #FIRST_PAGE} or the next cursor of the previous page.
+     */
+    public TripHistoryPage page(final long cursor, final int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size should be positive");
+        }
+        if (cursor == END) {
+            return new TripHistoryPage(new ArrayList<>(), END);
+        }
+
+        List<TripRecord> trips = new ArrayList<>(Math.min(pageSize, DEFAULT_WINDOW));
+        long below;
+        long offset;
+        TripArchive source;
+        synchronized (this) {
+            source = archive;
+            if (cursor >= 0) {
+                long windowStart = total - size;
+                long sequence = Math.min(cursor, total) - 1;
+                for (; sequence >= windowStart && trips.size() < pageSize; sequence--) {
+                    trips.add(TripRecord.of(window[(int) ((start + sequence - windowStart) % window.length)]));
+                }
+                below = sequence + 1;
+                offset = source == null ? TripArchive.NONE : source.head(ownerKey);
+                if (trips.size() == pageSize) {
+                    return new TripHistoryPage(trips, below > windowStart || offset != TripArchive.NONE
+                            ? below : END);
+                }
+            } else {
+                below = Long.MAX_VALUE;
+                offset = -cursor - 2;
+            }
+        }
+        if (source == null) {
+            return new TripHistoryPage(trips, END);
+        }
+
+        // older trips come from the archive chain, newer archived ones may have been spilled since the cursor
+        // was handed out and are skipped
+        while (offset != TripArchive.NONE && trips.size() < pageSize) {
+            TripArchive.ArchivedTrip archived = source.read(offset);
+            if (archived.getSequence() < below) {
+                trips.add(archived.getTrip());
+            }
+            offset = archived.getPreviousOffset();
+        }
+        return new TripHistoryPage(trips, offset == TripArchive.NONE ? END : -offset - 2);
+    }
+
+    private Trip evictOldest() {
+        Trip oldest = window[start];
+        window[start] = null;
+        start = (start + 1) % window.length;
+        size--;
+        if (archive != null) {
+            archive.append(ownerKey, total - size - 1, TripRecord.of(oldest));
+        }
+        return oldest;
+    }
+}
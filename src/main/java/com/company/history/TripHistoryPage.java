@@ -0,0 +1,18 @@
+package com.company.history;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** One page of a trip history, newest trip first, plus the cursor to pass back for the next page. */
+@Getter
+@AllArgsConstructor
+public class TripHistoryPage {
+
+    private final List<TripRecord> trips;
+    private final long nextCursor;
+
+    public boolean hasMore() {
+        return nextCursor != TripHistory.END;
+    }
+}
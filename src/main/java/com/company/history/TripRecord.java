@@ -0,0 +1,31 @@
+package com.company.history;
+
+import com.company.model.CarType;
+import com.company.model.Location;
+import com.company.model.Trip;
+import com.company.model.TripStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Flat snapshot of a trip as returned by history queries. Unlike {@link Trip} it holds no reference to the rider or
+ * driver objects, so it can be read back from the archive and dropped again without pinning anything on the heap.
+ */
+@Getter
+@AllArgsConstructor
+public class TripRecord {
+
+    private final String id;
+    private final int riderId;
+    private final int driverId;
+    private final Location origin;
+    private final Location destination;
+    private final double fare;
+    private final CarType carType;
+    private final TripStatus status;
+
+    public static TripRecord of(final Trip trip) {
+        return new TripRecord(trip.getId(), trip.getRider().getId(), trip.getDriver().getId(), trip.getOrigin(),
+                trip.getDestination(), trip.getFare(), trip.getCar().getCarType(), trip.getStatus());
+    }
+}
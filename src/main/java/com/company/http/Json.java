@@ -0,0 +1,270 @@
+package com.company.http;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the HTTP front end: request bodies are flat objects of strings, numbers, booleans and nulls,
+ * responses are built with {@link #object()}. Keeps the service free of a JSON library.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Parses a flat JSON object, nested objects and arrays are rejected.
+     *
+     * @throws IllegalArgumentException if the text is not such an object.
+     */
+    static Map<String, Object> parseObject(final String text) {
+        Parser parser = new Parser(text);
+        Map<String, Object> object = parser.object();
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error("Unexpected trailing content");
+        }
+        return object;
+    }
+
+    static Builder object() {
+        return new Builder();
+    }
+
+    /** Builds a JSON object, fields are written in the order they are added. */
+    static final class Builder {
+        private final StringBuilder json = new StringBuilder("{");
+
+        Builder put(final String name, final String value) {
+            field(name);
+            if (value == null) {
+                json.append("null");
+            } else {
+                quote(value);
+            }
+            return this;
+        }
+
+        Builder put(final String name, final long value) {
+            field(name);
+            json.append(value);
+            return this;
+        }
+
+        Builder put(final String name, final double value) {
+            field(name);
+            json.append(Double.isFinite(value) ? Double.toString(value) : "null");
+            return this;
+        }
+
+        Builder put(final String name, final boolean value) {
+            field(name);
+            json.append(value);
+            return this;
+        }
+
+        /** Adds an array of already built objects. */
+        Builder putArray(final String name, final List<Builder> values) {
+            field(name);
+            json.append('[');
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(values.get(i).toString());
+            }
+            json.append(']');
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return json.toString() + "}";
+        }
+
+        private void field(final String name) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            quote(name);
+            json.append(':');
+        }
+
+        private void quote(final String value) {
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        json.append("\\\"");
+                        break;
+                    case '\\':
+                        json.append("\\\\");
+                        break;
+                    case '\n':
+                        json.append("\\n");
+                        break;
+                    case '\r':
+                        json.append("\\r");
+                        break;
+                    case '\t':
+                        json.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                }
+            }
+            json.append('"');
+        }
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(final String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> object() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                object.put(name, value());
+                skipWhitespace();
+                char next = next();
+                if (next == '}') {
+                    return object;
+                }
+                if (next != ',') {
+                    throw error("Expected , or }");
+                }
+            }
+        }
+
+        private Object value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (text.startsWith("true", position)) {
+                position += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", position)) {
+                position += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", position)) {
+                position += 4;
+                return null;
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                int start = position;
+                while (!atEnd() && "+-.eE0123456789".indexOf(text.charAt(position)) >= 0) {
+                    position++;
+                }
+                try {
+                    return Double.parseDouble(text.substring(start, position));
+                } catch (NumberFormatException e) {
+                    throw error("Invalid number");
+                }
+            }
+            throw error("Unsupported value");
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Truncated escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        boolean atEnd() {
+            return position >= text.length();
+        }
+
+        private char peek() {
+            if (atEnd()) {
+                throw error("Unexpected end of JSON");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private void expect(final char expected) {
+            if (next() != expected) {
+                throw error("Expected " + expected);
+            }
+        }
+
+        IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(message + " at offset " + position);
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.company.http;
+
+import com.company.exception.CarAlreadyPresentException;
+import com.company.exception.DriverAlreadyPresentException;
+import com.company.exception.DriverNotFoundException;
+import com.company.exception.InvalidCarTypeException;
+import com.company.exception.InvalidPasswordException;
+import com.company.exception.InvalidRideParamException;
+import com.company.exception.RiderAlreadyPresentException;
+import com.company.exception.RiderNotFoundException;
+import com.company.exception.TripNotFoundException;
+import com.company.exception.TripStatusException;
+import com.company.history.TripHistory;
+import com.company.history.TripHistoryPage;
+import com.company.history.TripRecord;
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.model.Trip;
+import com.company.strategy.DistanceFindingStrategy;
+import com.company.strategy.DriverMatchingStrategy;
+import com.company.strategy.PricingStrategy;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.System.Logger.Level;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP / JSON front end over {@link TripManager} and the rider and driver managers it works with.
+ *
+ * <p>Built on the JDK's own HTTP server so the service needs no web framework. Every exchange runs on a virtual
+ * thread of its own, so the number of requests in flight is not capped by a pool size. Virtual threads don't make
+ * lock waits free though: on JDK 21 a virtual thread blocked in or on a {@code synchronized} section pins its carrier
+ * thread, and the managers guard driver stripes, trips, available-driver stripes and trip histories with monitors.
+ * Those sections are short, but a history spilling to the trip archive writes to its file and a journal append
+ * waits for room when the log buffer is full, both while holding a monitor. Contended bookings therefore still take
+ * carrier threads, of which there are as many as cores by default.
+ *
+ * <p>Routes, bodies are flat JSON objects:
+ * <pre>
+ * POST /riders                         {id, name, password}
+ * POST /drivers                        {id, name, password, carType, registrationNumber}
+ * PUT  /drivers/{id}/location          {latitude, longitude}
+ *                                                  driver password
+ * PUT  /drivers/{id}/availability      {available[, latitude, longitude]}
+ *                                                  driver password
+ * POST /trips                          {riderId, originLatitude, originLongitude, destinationLatitude,
+ *                                       destinationLongitude, carType}
+ *                                                  rider password
+ * GET  /trips/{id}                                rider or driver password
+ * PUT  /trips/{id}                     {originLatitude, originLongitude, destinationLatitude, destinationLongitude}
+ *                                                  rider password
+ * POST /trips/{id}/start | end                     driver password
+ * POST /trips/{id}/withdraw                        rider password
+ * GET  /riders/{id}/trips[?cursor=&amp;pageSize=]   rider password
+ * GET  /health
+ * </pre>
+ * The rider password goes in the X-Rider-Password header, the driver password in X-Driver-Password. Trip ids are
+ * sequential, so a trip route answers 404 unless the caller proves to be the trip's rider or driver as listed,
+ * telling apart someone else's trip from one that doesn't exist would let ids be enumerated. The other routes
+ * answer 403 to a missing or wrong password.
+ *
+ * <p>Errors are answered as {@code {"error": message}} with a status matching the exception: 404 for unknown ids,
+ * 409 for duplicates and invalid trip transitions, 400 for bad parameters, 403 for a wrong password and 503 when no
+ * driver could be found for a booking.
+ */
+public class RideServer implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(RideServer.class.getName());
+
+    public static final String PASSWORD_HEADER = "X-Rider-Password";
+    public static final String DRIVER_PASSWORD_HEADER = "X-Driver-Password";
+
+    private static final int MAX_BODY_BYTES = 1 << 16;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final TripManager tripManager;
+    private final RiderManager riderManager;
+    private final DriverManager driverManager;
+    private final PricingStrategy pricingStrategy;
+    private final DistanceFindingStrategy distanceFindingStrategy;
+    private final DriverMatchingStrategy driverMatchingStrategy;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public RideServer(final TripManager tripManager, final PricingStrategy pricingStrategy,
+            final DistanceFindingStrategy distanceFindingStrategy, final DriverMatchingStrategy driverMatchingStrategy) {
+        this.tripManager = tripManager;
+        this.riderManager = tripManager.getRiderManager();
+        this.driverManager = tripManager.getDriverManager();
+        this.pricingStrategy = pricingStrategy;
+        this.distanceFindingStrategy = distanceFindingStrategy;
+        this.driverMatchingStrategy = driverMatchingStrategy;
+    }
+
+    /**
+     * Starts serving on the address, port 0 picks a free port.
+     *
+     * @throws IOException if the address can't be bound.
+     */
+    public synchronized void start(final InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /** Port the server listens on, the picked one when started on port 0. */
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("Server not started");
+        }
+        return server.getAddress().getPort();
+    }
+
+    /** Stops accepting requests and waits a second at most for the ones in flight. */
+    @Override
+    public synchronized void close() {
+        if (server == null) {
+            return;
+        }
+        server.stop(1);
+        executor.close();
+        server = null;
+        executor = null;
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            String[] path = segments(exchange.getRequestURI().getPath());
+            Response response = route(exchange.getRequestMethod(), path, exchange);
+            send(exchange, response.status, response.body);
+        } catch (DriverNotFoundException | RiderNotFoundException | TripNotFoundException e) {
+            send(exchange, 404, error(e));
+        } catch (RiderAlreadyPresentException | DriverAlreadyPresentException | CarAlreadyPresentException
+                | TripStatusException e) {
+            send(exchange, 409, error(e));
+        } catch (InvalidRideParamException | InvalidCarTypeException | IllegalArgumentException e) {
+            send(exchange, 400, error(e));
+        } catch (InvalidPasswordException e) {
+            send(exchange, 403, error(e));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.ERROR, "Request " + exchange.getRequestMethod() + " " + exchange.getRequestURI()
+                    + " failed", e);
+            send(exchange, 500, error(e));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response route(final String method, final String[] path, final HttpExchange exchange)
+            throws IOException {
+        if (path.length == 0) {
+            return notFound();
+        }
+        switch (path[0]) {
+            case "health":
+                if (path.length == 1 && method.equals("GET")) {
+                    return ok(Json.object().put("status", "UP"));
+                }
+                break;
+            case "riders":
+                if (path.length == 1 && method.equals("POST")) {
+                    return createRider(body(exchange));
+                }
+                if (path.length == 3 && path[2].equals("trips") && method.equals("GET")) {
+                    return riderTrips(intId(path[1]), exchange);
+                }
+                break;
+            case "drivers":
+                if (path.length == 1 && method.equals("POST")) {
+                    return createDriver(body(exchange));
+                }
+                if (path.length == 3 && path[2].equals("location") && method.equals("PUT")) {
+                    return updateDriverLocation(ownDriver(intId(path[1]), exchange), body(exchange));
+                }
+                if (path.length == 3 && path[2].equals("availability") && method.equals("PUT")) {
+                    return updateDriverAvailability(ownDriver(intId(path[1]), exchange), body(exchange));
+                }
+                break;
+            case "trips":
+                if (path.length == 1 && method.equals("POST")) {
+                    return createTrip(body(exchange), exchange);
+                }
+                if (path.length == 2 && method.equals("GET")) {
+                    return ok(trip(ownedTrip(path[1], exchange, true, true)));
+                }
+                if (path.length == 2 && method.equals("PUT")) {
+                    ownedTrip(path[1], exchange, true, false);
+                    return updateTrip(path[1], body(exchange));
+                }
+                if (path.length == 3 && method.equals("POST")) {
+                    return tripAction(path[1], path[2], exchange);
+                }
+                break;
+            default:
+                break;
+        }
+        return notFound();
+    }
+
+    private Response createRider(final Map<String, Object> body) {
+        riderManager.createRider(new Rider(intField(body, "id"), stringField(body, "name"),
+                stringField(body, "password")));
+        return new Response(201, Json.object().put("id", intField(body, "id")));
+    }
+
+    private Response createDriver(final Map<String, Object> body) {
+        Car car = new Car(carType(stringField(body, "carType")), stringField(body, "registrationNumber"));
+        driverManager.createDriver(new Driver(intField(body, "id"), stringField(body, "name"),
+                stringField(body, "password"), car));
+        return new Response(201, Json.object().put("id", intField(body, "id")));
+    }
+
+    private Response updateDriverLocation(final int driverId, final Map<String, Object> body) {
+        driverManager.updateDriverLocation(driverId, intField(body, "latitude"), intField(body, "longitude"));
+        return ok(Json.object().put("id", driverId));
+    }
+
+    // going available with a location places the driver and opens him to bookings in one step
+    private Response updateDriverAvailability(final int driverId, final Map<String, Object> body) {
+        boolean available = booleanField(body, "available");
+        if (available && body.containsKey("latitude")) {
+            driverManager.makeAvailable(driverId, location(body, "latitude", "longitude"));
+        } else {
+            driverManager.updateDriverAvailability(driverId, available);
+        }
+        return ok(Json.object().put("id", driverId).put("available", available));
+    }
+
+    private Response createTrip(final Map<String, Object> body, final HttpExchange exchange) {
+        Rider rider = riderManager.getRider(intField(body, "riderId"));
+        // only the rider books for himself
+        requirePassword(rider.getPassword(), exchange, PASSWORD_HEADER);
+        Location origin = location(body, "originLatitude", "originLongitude");
+        Location destination = location(body, "destinationLatitude", "destinationLongitude");
+        CarType carType = carType(stringField(body, "carType"));
+        String tripId;
+        try {
+            tripId = tripManager.createTrip(rider, origin, destination, pricingStrategy, distanceFindingStrategy,
+                    driverMatchingStrategy, carType);
+        } catch (DriverNotFoundException e) {
+            // no driver around is a temporary shortage, not a missing resource
+            return new Response(503, error(e));
+        }
+        return new Response(201, trip(tripManager.getTripOrThrow(tripId)));
+    }
+
+    private Response updateTrip(final String tripId, final Map<String, Object> body) {
+        tripManager.updateTrip(tripId, location(body, "originLatitude", "originLongitude"),
+                location(body, "destinationLatitude", "destinationLongitude"), distanceFindingStrategy,
+                pricingStrategy);
+        return ok(trip(tripManager.getTripOrThrow(tripId)));
+    }
+
+    private Response tripAction(final String tripId, final String action, final HttpExchange exchange) {
+        switch (action) {
+            case "start":
+                ownedTrip(tripId, exchange, false, true);
+                tripManager.startTrip(tripId);
+                break;
+            case "end":
+                ownedTrip(tripId, exchange, false, true);
+                tripManager.endTrip(tripId);
+                break;
+            case "withdraw":
+                ownedTrip(tripId, exchange, true, false);
+                tripManager.withdrawTrip(tripId);
+                break;
+            default:
+                return notFound();
+        }
+        return ok(trip(tripManager.getTripOrThrow(tripId)));
+    }
+
+    private Response riderTrips(final int riderId, final HttpExchange exchange) {
+        Rider rider = riderManager.getRider(riderId);
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        long cursor = query.containsKey("cursor") ? parseLong(query.get("cursor")) : TripHistory.FIRST_PAGE;
+        int pageSize = query.containsKey("pageSize") ? parseInt(query.get("pageSize")) : DEFAULT_PAGE_SIZE;
+        TripHistoryPage page = riderManager.tripHistory(rider,
+                exchange.getRequestHeaders().getFirst(PASSWORD_HEADER), cursor, pageSize);
+
+        List<Json.Builder> trips = new ArrayList<>(page.getTrips().size());
+        for (TripRecord record : page.getTrips()) {
+            trips.add(Json.object()
+                    .put("id", record.getId())
+                    .put("driverId", record.getDriverId())
+                    .put("fare", record.getFare())
+                    .put("carType", record.getCarType().name())
+                    .put("status", record.getStatus().name()));
+        }
+        Json.Builder json = Json.object().putArray("trips", trips);
+        if (page.hasMore()) {
+            json.put("nextCursor", page.getNextCursor());
+        }
+        return ok(json);
+    }
+
+    /**
+     * Id of the driver, if the request carries the driver's password.
+     *
+     * @throws DriverNotFoundException if there is no such driver.
+     * @throws InvalidPasswordException if the password is missing or wrong.
+     */
+    private int ownDriver(final int driverId, final HttpExchange exchange) {
+        requirePassword(driverManager.getDriver(driverId).getPassword(), exchange, DRIVER_PASSWORD_HEADER);
+        return driverId;
+    }
+
+    private static void requirePassword(final String password, final HttpExchange exchange, final String header) {
+        if (!matches(password, exchange.getRequestHeaders().getFirst(header))) {
+            throw new InvalidPasswordException("Missing or wrong password in " + header);
+        }
+    }
+
+    /**
+     * The trip, if the request carries the password of its rider or of its driver, as allowed.
+     *
+     * @throws TripNotFoundException if there is no such trip or the caller is neither, the same way.
+     */
+    private Trip ownedTrip(final String tripId, final HttpExchange exchange, final boolean riderAllowed,
+            final boolean driverAllowed) {
+        Trip trip = tripManager.getTripOrThrow(tripId);
+        boolean owner = riderAllowed && matches(trip.getRider().getPassword(),
+                exchange.getRequestHeaders().getFirst(PASSWORD_HEADER));
+        owner |= driverAllowed && matches(trip.getDriver().getPassword(),
+                exchange.getRequestHeaders().getFirst(DRIVER_PASSWORD_HEADER));
+        if (!owner) {
+            throw new TripNotFoundException(
+                    "No Trip found for the given Id = " + tripId + ", please try with valid Trip Id.");
+        }
+        return trip;
+    }
+
+    // constant time, the comparison doesn't tell how much of the password was right
+    private static boolean matches(final String password, final String given) {
+        return given != null && MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                given.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Json.Builder trip(final Trip trip) {
+        Location origin = trip.getOrigin();
+        Location destination = trip.getDestination();
+        return Json.object()
+                .put("id", trip.getId())
+                .put("riderId", trip.getRider().getId())
+                .put("driverId", trip.getDriver().getId())
+                .put("carType", trip.getCar().getCarType().name())
+                .put("originLatitude", origin.getLatitude())
+                .put("originLongitude", origin.getLongitude())
+                .put("destinationLatitude", destination.getLatitude())
+                .put("destinationLongitude", destination.getLongitude())
+                .put("fare", trip.getFare())
+                .put("status", trip.getStatus().name());
+    }
+
+    private static Map<String, Object> body(final HttpExchange exchange) throws IOException {
+        try (InputStream input = exchange.getRequestBody()) {
+            byte[] bytes = input.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final Json.Builder body)
+            throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static String[] segments(final String path) {
+        String trimmed = path.replaceAll("^/+|/+$", "");
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+    }
+
+    private static Map<String, String> query(final String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(pair.substring(0, equals), pair.substring(equals + 1));
+            }
+        }
+        return query;
+    }
+
+    private static Location location(final Map<String, Object> body, final String latitude,
+            final String longitude) {
+        return new Location(intField(body, latitude), intField(body, longitude));
+    }
+
+    private static CarType carType(final String name) {
+        try {
+            return CarType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCarTypeException("Unknown car type " + name);
+        }
+    }
+
+    private static int intId(final String segment) {
+        return parseInt(segment);
+    }
+
+    // out of the int range is rejected rather than wrapped onto another id
+    private static int parseInt(final String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number " + value);
+        }
+    }
+
+    private static long parseLong(final String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number " + value);
+        }
+    }
+
+    private static int intField(final Map<String, Object> body, final String name) {
+        Object value = field(body, name);
+        if (!(value instanceof Double) || (Double) value != Math.rint((Double) value)
+                || Math.abs((Double) value) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field " + name + " should be an integer");
+        }
+        return ((Double) value).intValue();
+    }
+
+    private static String stringField(final Map<String, Object> body, final String name) {
+        Object value = field(body, name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Field " + name + " should be a string");
+        }
+        return (String) value;
+    }
+
+    private static boolean booleanField(final Map<String, Object> body, final String name) {
+        Object value = field(body, name);
+        if (!(value instanceof Boolean)) {
+            throw new IllegalArgumentException("Field " + name + " should be a boolean");
+        }
+        return (Boolean) value;
+    }
+
+    private static Object field(final Map<String, Object> body, final String name) {
+        Object value = body.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field " + name);
+        }
+        return value;
+    }
+
+    private static Json.Builder error(final RuntimeException e) {
+        return Json.object().put("error", e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+    }
+
+    private static Response ok(final Json.Builder body) {
+        return new Response(200, body);
+    }
+
+    private static Response notFound() {
+        return new Response(404, Json.object().put("error", "No such route"));
+    }
+
+    private static final class Response {
+        private final int status;
+        private final Json.Builder body;
+
+        Response(final int status, final Json.Builder body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
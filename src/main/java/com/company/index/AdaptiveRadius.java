@@ -0,0 +1,223 @@
+package com.company.index;
+
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.strategy.DistanceFindingStrategy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleFunction;
+import java.util.function.IntFunction;
+
+/**
+ * Radius policy for driver searches: start small and grow the radius until enough candidates are found or a
+ * ceiling is reached, instead of one fixed radius that is too wide downtown and too narrow in the suburbs.
+ *
+ * <p>The starting radius is learned per geo cell. After every search the cell's radius moves towards the distance
+ * of the last of the wanted candidates, or to the ceiling when there weren't enough, through an exponential moving
+ * average. Dense cells converge on a radius that needs no expansion, sparse ones start wide. Cells are updated with
+ * compare-and-set, searches never lock. k-nearest queries grow their own rings and need no starting radius, they
+ * are run through {@link #nearest} so the cells keep learning from bookings made that way.
+ *
+ * <p>At most maxCells cells are remembered. Learning a new cell past that forgets an arbitrary one, which starts
+ * over from the initial radius the next time it is searched.
+ */
+public class AdaptiveRadius {
+
+    public static final double DEFAULT_INITIAL_RADIUS = 5;
+    public static final double DEFAULT_MAX_RADIUS = 40;
+    public static final double DEFAULT_GROWTH = 2;
+    public static final int DEFAULT_MIN_CANDIDATES = 5;
+    public static final double DEFAULT_LEARNING_RATE = 0.2;
+    public static final int DEFAULT_CELL_SIZE = 10;
+    public static final int DEFAULT_MAX_CELLS = 1 << 16;
+
+    // margin kept above the learned distance so a cell doesn't need an expansion as soon as one driver leaves
+    private static final double SLACK = 1.25;
+
+    private final double initialRadius;
+    private final double maxRadius;
+    private final double growth;
+    private final int minCandidates;
+    private final double learningRate;
+    private final int cellSize;
+    private final int maxCells;
+
+    // learned starting radius per cell, as double bits
+    private final Map<Long, AtomicLong> cellRadius = new ConcurrentHashMap<>();
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder expansions = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public AdaptiveRadius() {
+        this(DEFAULT_INITIAL_RADIUS, DEFAULT_MAX_RADIUS, DEFAULT_GROWTH, DEFAULT_MIN_CANDIDATES, DEFAULT_LEARNING_RATE,
+                DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param initialRadius starting radius of cells with no history.
+     * @param maxRadius ceiling the radius never grows past.
+     * @param growth factor applied to the radius on every expansion.
+     * @param minCandidates drivers wanted before the search stops growing.
+     * @param learningRate weight of the latest search in a cell's starting radius, in (0, 1].
+     * @param cellSize side of a learning cell in coordinate units.
+     */
+    public AdaptiveRadius(final double initialRadius, final double maxRadius, final double growth,
+            final int minCandidates, final double learningRate, final int cellSize) {
+        this(initialRadius, maxRadius, growth, minCandidates, learningRate, cellSize, DEFAULT_MAX_CELLS);
+    }
+
+    /** @param maxCells number of cells whose learned radius is remembered. */
+    public AdaptiveRadius(final double initialRadius, final double maxRadius, final double growth,
+            final int minCandidates, final double learningRate, final int cellSize, final int maxCells) {
+        if (initialRadius <= 0 || maxRadius < initialRadius || growth <= 1 || minCandidates <= 0
+                || learningRate <= 0 || learningRate > 1 || cellSize <= 0 || maxCells <= 0) {
+            throw new IllegalArgumentException("Invalid adaptive radius configuration");
+        }
+        this.initialRadius = initialRadius;
+        this.maxRadius = maxRadius;
+        this.growth = growth;
+        this.minCandidates = minCandidates;
+        this.learningRate = learningRate;
+        this.cellSize = cellSize;
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * Runs the query with growing radii from the learned starting radius of the origin's cell, then updates that
+     * radius from what was found.
+     *
+     * @param query drivers within the given radius of the origin.
+     */
+    public RadiusSearchResult search(final Location origin, final DoubleFunction<List<Driver>> query,
+            final DistanceFindingStrategy distanceFindingStrategy) {
+        double radius = startRadius(origin);
+        int expanded = 0;
+        List<Driver> drivers = query.apply(radius);
+        while (drivers.size() < minCandidates && radius < maxRadius) {
+            radius = Math.min(maxRadius, radius * growth);
+            expanded++;
+            drivers = query.apply(radius);
+        }
+
+        searches.increment();
+        expansions.add(expanded);
+        if (drivers.size() < minCandidates) {
+            exhausted.increment();
+            learn(origin, maxRadius);
+        } else {
+            learn(origin, Math.min(maxRadius, SLACK * candidateDistance(drivers, origin, distanceFindingStrategy)));
+        }
+        return new RadiusSearchResult(drivers, radius, expanded);
+    }
+
+    /**
+     * Runs a k-nearest query and learns from it like {@link #search} does. At least minCandidates drivers are asked
+     * for, so the cell learns the same distance whatever the count, and the count nearest are returned.
+     *
+     * @param query at most the given number of drivers nearest to the origin within the ceiling, nearest first.
+     */
+    public List<Driver> nearest(final Location origin, final int count, final IntFunction<List<Driver>> query,
+            final DistanceFindingStrategy distanceFindingStrategy) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        List<Driver> drivers = query.apply(Math.max(count, minCandidates));
+
+        searches.increment();
+        if (drivers.size() < minCandidates) {
+            exhausted.increment();
+            learn(origin, maxRadius);
+        } else {
+            learn(origin, Math.min(maxRadius, SLACK * candidateDistance(drivers, origin, distanceFindingStrategy)));
+        }
+        return drivers.size() <= count ? drivers : new ArrayList<>(drivers.subList(0, count));
+    }
+
+    /** Radius a search from the location starts with. */
+    public double startRadius(final Location origin) {
+        AtomicLong learned = cellRadius.get(cellKey(origin));
+        return learned == null ? initialRadius : Double.longBitsToDouble(learned.get());
+    }
+
+    public double getMaxRadius() {
+        return maxRadius;
+    }
+
+    /** Number of cells with a learned radius. */
+    public int cellCount() {
+        return cellRadius.size();
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public long getExpansions() {
+        return expansions.sum();
+    }
+
+    /** Searches that reached the ceiling without finding enough candidates. */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    public double getAverageExpansionsPerSearch() {
+        long count = searches.sum();
+        return count == 0 ? 0 : (double) expansions.sum() / count;
+    }
+
+    private void learn(final Location origin, final double radius) {
+        // candidates standing on the origin would teach a zero radius, which no expansion could grow back
+        double target = Math.max(radius, initialRadius / (growth * growth));
+        long key = cellKey(origin);
+        AtomicLong learned = cellRadius.get(key);
+        if (learned == null) {
+            forgetCellsOverLimit();
+            learned = cellRadius.computeIfAbsent(key,
+                    ignored -> new AtomicLong(Double.doubleToLongBits(initialRadius)));
+        }
+        long current;
+        long updated;
+        do {
+            current = learned.get();
+            double old = Double.longBitsToDouble(current);
+            updated = Double.doubleToLongBits(old + learningRate * (target - old));
+        } while (!learned.compareAndSet(current, updated));
+    }
+
+    // makes room for one more cell, racing learners may overshoot the limit by a cell each
+    private void forgetCellsOverLimit() {
+        Iterator<Long> cells = cellRadius.keySet().iterator();
+        while (cellRadius.size() >= maxCells && cells.hasNext()) {
+            cells.next();
+            cells.remove();
+        }
+    }
+
+    /** Distance of the minCandidates-th closest driver found. */
+    private double candidateDistance(final List<Driver> drivers, final Location origin,
+            final DistanceFindingStrategy distanceFindingStrategy) {
+        double[] squaredDistances = new double[drivers.size()];
+        for (int i = 0; i < drivers.size(); i++) {
+            long location = drivers.get(i).getPackedLocation();
+            squaredDistances[i] = location == Location.NO_LOCATION ? Double.POSITIVE_INFINITY
+                    : distanceFindingStrategy.squaredDistance(Location.latitudeOf(location),
+                            Location.longitudeOf(location), origin.getLatitude(), origin.getLongitude());
+        }
+        Arrays.sort(squaredDistances);
+        return Math.sqrt(squaredDistances[minCandidates - 1]);
+    }
+
+    private long cellKey(final Location location) {
+        long latCell = Math.floorDiv(location.getLatitude(), cellSize);
+        long longCell = Math.floorDiv(location.getLongitude(), cellSize);
+        return (latCell << 32) | (longCell & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,176 @@
+package com.company.index;
+
+import com.company.model.Driver;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Live set of the drivers free to take a trip, accepting rides and not on a trip, kept as dense arrays so reading it
+ * costs O(available) and allocates nothing beyond the iterator.
+ *
+ * <p>Drivers are split in stripes by their {@link DriverStateTable} slot, so drivers must be registered there first.
+ * Within a stripe they are added and removed in O(1) by {@link #update(Driver)}: a removal moves the last member of
+ * the stripe into the hole. Updates lock the driver's stripe only, reservations of drivers in other stripes never
+ * wait on each other. The stripes are the set's own rather than the driver manager's lock stripes, so a reservation
+ * doesn't queue behind a batch of GPS fixes holding those. An update re-reads the driver's state inside the lock, so
+ * whatever the order of concurrent updates of a driver the last one leaves it where its state says.
+ *
+ * <p>Reads take no lock and are weakly consistent. Members of a stripe are visited from the end of its array down, so
+ * a driver moved into a hole by a concurrent removal is at worst visited twice, never skipped; a driver leaving or
+ * joining during the iteration may or may not be seen. Every driver returned is confirmed available when visited.
+ */
+public class AvailableDriverSet extends AbstractCollection<Driver> {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    private static final VarHandle MEMBERS = MethodHandles.arrayElementVarHandle(Driver[].class);
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public AvailableDriverSet() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /** Adds the driver if it is free to take a trip and removes it otherwise. */
+    public void update(final Driver driver) {
+        int slot = driver.getStateSlot();
+        if (slot >= 0) {
+            stripes[slot & (STRIPES - 1)].update(driver, slot >>> STRIPE_BITS);
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<Driver> iterator() {
+        return new Members();
+    }
+
+    @Override
+    public void forEach(final Consumer<? super Driver> action) {
+        for (Stripe stripe : stripes) {
+            Driver[] members = stripe.members;
+            for (int i = Math.min(stripe.size, members.length) - 1; i >= 0; i = Math.min(i - 1, stripe.size - 1)) {
+                Driver driver = (Driver) MEMBERS.getAcquire(members, i);
+                if (driver != null && driver.isAvailable()) {
+                    action.accept(driver);
+                }
+            }
+        }
+    }
+
+    /** Drivers of one stripe, positions indexed by the slot of the driver within the stripe. */
+    private static final class Stripe {
+        // members in positions [0, size), never shrunk, replaced by a larger copy when full
+        private volatile Driver[] members = new Driver[16];
+        private volatile int size;
+
+        // position of each driver in members, -1 when the driver is not a member. Only touched under the lock
+        private int[] positions = new int[0];
+
+        synchronized void update(final Driver driver, final int index) {
+            if (index >= positions.length) {
+                int length = positions.length;
+                positions = Arrays.copyOf(positions, Math.max(index + 1, length * 2));
+                Arrays.fill(positions, length, positions.length, -1);
+            }
+            int position = positions[index];
+            if (driver.isAvailable()) {
+                if (position < 0) {
+                    append(driver, index);
+                }
+            } else if (position >= 0) {
+                removeAt(position, index);
+            }
+        }
+
+        private void append(final Driver driver, final int index) {
+            int count = size;
+            Driver[] current = members;
+            if (count == current.length) {
+                // readers still going through the old array see it as it was
+                current = Arrays.copyOf(current, count * 2);
+                members = current;
+            }
+            MEMBERS.setRelease(current, count, driver);
+            positions[index] = count;
+            size = count + 1;
+        }
+
+        private void removeAt(final int position, final int index) {
+            int last = size - 1;
+            Driver[] current = members;
+            if (position != last) {
+                Driver moved = current[last];
+                MEMBERS.setRelease(current, position, moved);
+                positions[moved.getStateSlot() >>> STRIPE_BITS] = position;
+            }
+            positions[index] = -1;
+            size = last;
+            MEMBERS.setRelease(current, last, null);
+        }
+    }
+
+    /**
+     * Walks the stripes in turn, each from the end down, re-reading the stripe size so a shrinking stripe doesn't
+     * leave it on stale positions.
+     */
+    private final class Members implements Iterator<Driver> {
+        private int stripe = -1;
+        private Driver[] array;
+        private int cursor = -1;
+        private Driver next;
+
+        Members() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Driver next() {
+            Driver driver = next;
+            if (driver == null) {
+                throw new NoSuchElementException();
+            }
+            advance();
+            return driver;
+        }
+
+        private void advance() {
+            next = null;
+            while (true) {
+                while (cursor < 0) {
+                    if (++stripe == STRIPES) {
+                        return;
+                    }
+                    array = stripes[stripe].members;
+                    cursor = Math.min(stripes[stripe].size, array.length) - 1;
+                }
+                Driver driver = (Driver) MEMBERS.getAcquire(array, cursor);
+                cursor = Math.min(cursor - 1, stripes[stripe].size - 1);
+                if (driver != null && driver.isAvailable()) {
+                    next = driver;
+                    return;
+                }
+            }
+        }
+    }
+}
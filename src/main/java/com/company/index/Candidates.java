@@ -0,0 +1,88 @@
+package com.company.index;
+
+import com.company.model.Driver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Drivers found by a radius query with their squared distance to the origin, handed back nearest first. */
+final class Candidates {
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    private Driver[] drivers = new Driver[16];
+    private double[] squaredDistances = new double[16];
+    private int size;
+
+    void add(final Driver driver, final double squaredDistance) {
+        if (size == drivers.length) {
+            drivers = Arrays.copyOf(drivers, size * 2);
+            squaredDistances = Arrays.copyOf(squaredDistances, size * 2);
+        }
+        drivers[size] = driver;
+        squaredDistances[size] = squaredDistance;
+        size++;
+    }
+
+    /** Appends the drivers the other candidates hold, after the ones held here. */
+    void addAll(final Candidates other) {
+        if (size + other.size > drivers.length) {
+            int capacity = Math.max(size + other.size, drivers.length * 2);
+            drivers = Arrays.copyOf(drivers, capacity);
+            squaredDistances = Arrays.copyOf(squaredDistances, capacity);
+        }
+        System.arraycopy(other.drivers, 0, drivers, size, other.size);
+        System.arraycopy(other.squaredDistances, 0, squaredDistances, size, other.size);
+        size += other.size;
+    }
+
+    /** The drivers in the order they were added. */
+    List<Driver> inOrder() {
+        return new ArrayList<>(Arrays.asList(drivers).subList(0, size));
+    }
+
+    // stable merge sort of the candidate positions on their exact squared distance, equal distances keep the order
+    // they were found in. Positions are sorted as primitives, so no comparator or boxing is needed
+    List<Driver> nearestFirst() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        sortByDistance(order, new int[size], 0, size);
+        List<Driver> result = new ArrayList<>(size);
+        for (int position : order) {
+            result.add(drivers[position]);
+        }
+        return result;
+    }
+
+    private void sortByDistance(final int[] order, final int[] buffer, final int from, final int to) {
+        if (to - from <= INSERTION_SORT_SIZE) {
+            for (int i = from + 1; i < to; i++) {
+                int position = order[i];
+                int j = i - 1;
+                while (j >= from && squaredDistances[order[j]] > squaredDistances[position]) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = position;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortByDistance(order, buffer, from, middle);
+        sortByDistance(order, buffer, middle, to);
+        if (squaredDistances[order[middle - 1]] <= squaredDistances[order[middle]]) {
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && squaredDistances[buffer[left]] <= squaredDistances[buffer[right]])) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+}
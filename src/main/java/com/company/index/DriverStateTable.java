@@ -0,0 +1,267 @@
+package com.company.index;
+
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.strategy.DistanceFindingStrategy;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Columnar copy of the driver state scans filter on: latitude, longitude, car type, accepting rides and on a trip,
+ * each in a primitive array indexed by a dense slot given to the driver at registration.
+ *
+ * <p>A full fleet scan then reads a few arrays front to back instead of following every {@link Driver} to its car,
+ * trip and location objects, so it runs at memory bandwidth rather than at one cache miss per driver. The driver
+ * object stays the source of truth, drivers passing the filters are confirmed against it before being returned.
+ *
+ * <p>Columns are split in chunks that are never reallocated, so writers don't race with growth. Location and
+ * accepting rides columns are written under the caller's per driver lock. The on a trip column follows lock-free
+ * reservations: it is written with a fence and re-read until it matches the driver, so it settles on the last state
+ * whatever the order of concurrent writers. Scans read the columns without locking and may lag behind a write in
+ * flight.
+ */
+public class DriverStateTable {
+
+    /** Table size from which radius scans go parallel once a pool is set. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    // slots scanned by one fork-join leaf
+    private static final int LEAF_SLOTS = CHUNK_SIZE * 2;
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    // slots handed out so far, every slot below is fully written
+    private volatile int size;
+
+    // pool and threshold of parallel radius scans, null to always scan sequentially
+    private volatile ParallelScan parallelScan;
+
+    /**
+     * Gives the driver the next slot and copies its state in.
+     *
+     * @return the slot of the driver.
+     */
+    public synchronized int add(final Driver driver) {
+        int slot = size;
+        Chunk[] current = chunks;
+        if (slot >> CHUNK_BITS == current.length) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = new Chunk();
+            chunks = current;
+        }
+        Chunk chunk = current[slot >> CHUNK_BITS];
+        int index = slot & CHUNK_MASK;
+        chunk.drivers[index] = driver;
+        chunk.carTypes[index] = (byte) driver.getCar().getCarType().ordinal();
+        writeLocation(chunk, index, driver.getPackedLocation());
+        chunk.accepting[index] = (byte) (driver.isAcceptingRider() ? 1 : 0);
+        chunk.onTrip[index] = (byte) (driver.getCurrentTrip() != null ? 1 : 0);
+        size = slot + 1;
+        return slot;
+    }
+
+    /** Copies the location of the driver in, to be called under the driver's lock. */
+    public void updateLocation(final Driver driver) {
+        int slot = driver.getStateSlot();
+        if (slot >= 0) {
+            writeLocation(chunks[slot >> CHUNK_BITS], slot & CHUNK_MASK, driver.getPackedLocation());
+        }
+    }
+
+    /** Copies whether the driver accepts rides in, to be called under the driver's lock. */
+    public void updateAccepting(final Driver driver) {
+        int slot = driver.getStateSlot();
+        if (slot >= 0) {
+            chunks[slot >> CHUNK_BITS].accepting[slot & CHUNK_MASK] = (byte) (driver.isAcceptingRider() ? 1 : 0);
+        }
+    }
+
+    /** Copies whether the driver is on a trip in, safe to call without a lock right after a reservation change. */
+    public void updateOnTrip(final Driver driver) {
+        int slot = driver.getStateSlot();
+        if (slot < 0) {
+            return;
+        }
+        byte[] onTrip = chunks[slot >> CHUNK_BITS].onTrip;
+        int index = slot & CHUNK_MASK;
+        boolean reserved;
+        do {
+            reserved = driver.getCurrentTrip() != null;
+            BYTES.setVolatile(onTrip, index, (byte) (reserved ? 1 : 0));
+        } while (reserved != (driver.getCurrentTrip() != null));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Splits radius scans over the pool once the table holds at least minDrivers slots, smaller tables are scanned
+     * sequentially on the calling thread. A null pool turns parallel scans off.
+     *
+     * <p>Workers call the distance strategy concurrently, it has to be safe for that.
+     */
+    public void setParallelScan(final ForkJoinPool pool, final int minDrivers) {
+        if (minDrivers < 0) {
+            throw new IllegalArgumentException("Threshold should not be negative, got " + minDrivers);
+        }
+        parallelScan = pool == null ? null : new ParallelScan(pool, minDrivers);
+    }
+
+    /** Drivers accepting rides, on a trip or not, within the radius of the origin, in slot order. */
+    public List<Driver> acceptingWithinRadius(final Location origin, final double radius,
+            final DistanceFindingStrategy distanceFindingStrategy) {
+        return scan(new Query(origin, radius, -1, false, distanceFindingStrategy)).inOrder();
+    }
+
+    /** Drivers of the car type free to take a trip within the radius of the origin, nearest first. */
+    public List<Driver> availableNearest(final Location origin, final double radius, final CarType carType,
+            final DistanceFindingStrategy distanceFindingStrategy) {
+        // distances are taken once, the drivers keep moving while they are sorted
+        return scan(new Query(origin, radius, carType.ordinal(), true, distanceFindingStrategy)).nearestFirst();
+    }
+
+    private Candidates scan(final Query query) {
+        if (query.radius < 0) {
+            return new Candidates();
+        }
+        int count = size;
+        Chunk[] current = chunks;
+        ParallelScan parallel = parallelScan;
+        if (parallel == null || count < parallel.minDrivers || count <= LEAF_SLOTS) {
+            Candidates found = new Candidates();
+            query.scan(current, 0, count, found);
+            return found;
+        }
+        return parallel.pool.invoke(new ScanTask(query, current, 0, count));
+    }
+
+    private static final class ParallelScan {
+        final ForkJoinPool pool;
+        final int minDrivers;
+
+        ParallelScan(final ForkJoinPool pool, final int minDrivers) {
+            this.pool = pool;
+            this.minDrivers = minDrivers;
+        }
+    }
+
+    /**
+     * Scans a range of slots, halving it at chunk boundaries down to leaves of a few chunks. Every leaf fills a
+     * buffer of its own and buffers are concatenated in slot order as the tasks join, workers share nothing.
+     */
+    private static final class ScanTask extends RecursiveTask<Candidates> {
+        private static final long serialVersionUID = 1L;
+
+        // tasks only live inside the pool, they are never serialized
+        private final transient Query query;
+        private final transient Chunk[] chunks;
+        private final int from;
+        private final int to;
+
+        ScanTask(final Query query, final Chunk[] chunks, final int from, final int to) {
+            this.query = query;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Candidates compute() {
+            if (to - from <= LEAF_SLOTS) {
+                Candidates found = new Candidates();
+                query.scan(chunks, from, to, found);
+                return found;
+            }
+            int middle = from + (((to - from) >> 1) & ~CHUNK_MASK);
+            ScanTask left = new ScanTask(query, chunks, from, middle);
+            left.fork();
+            Candidates right = new ScanTask(query, chunks, middle, to).compute();
+            Candidates found = left.join();
+            found.addAll(right);
+            return found;
+        }
+    }
+
+    /** A radius query over a range of slots: cheap bounding box and flag checks first, exact distance on the rest. */
+    private static final class Query {
+        private final int latitude;
+        private final int longitude;
+        private final double radius;
+        private final long reach;
+        private final double squaredRadius;
+        private final int carType;
+        private final boolean freeOnly;
+        private final DistanceFindingStrategy distanceFindingStrategy;
+
+        Query(final Location origin, final double radius, final int carType, final boolean freeOnly,
+                final DistanceFindingStrategy distanceFindingStrategy) {
+            this.latitude = origin.getLatitude();
+            this.longitude = origin.getLongitude();
+            this.radius = radius;
+            this.reach = radius < 0 ? 0 : (long) Math.ceil(distanceFindingStrategy.coordinateReach(origin, radius));
+            this.squaredRadius = radius * radius;
+            this.carType = carType;
+            this.freeOnly = freeOnly;
+            this.distanceFindingStrategy = distanceFindingStrategy;
+        }
+
+        void scan(final Chunk[] chunks, final int from, final int to, final Candidates found) {
+            for (int base = from & ~CHUNK_MASK; base < to; base += CHUNK_SIZE) {
+                Chunk chunk = chunks[base >> CHUNK_BITS];
+                int start = Math.max(from - base, 0);
+                int end = Math.min(CHUNK_SIZE, to - base);
+                for (int i = start; i < end; i++) {
+                    if (chunk.accepting[i] == 0 || chunk.located[i] == 0
+                            || Math.abs((long) chunk.latitudes[i] - latitude) > reach
+                            || Math.abs((long) chunk.longitudes[i] - longitude) > reach
+                            || (carType >= 0 && chunk.carTypes[i] != carType)
+                            || (freeOnly && chunk.onTrip[i] != 0)) {
+                        continue;
+                    }
+                    Driver driver = chunk.drivers[i];
+                    // confirm against the driver itself, the columns may lag behind a change in flight
+                    long location = driver.getPackedLocation();
+                    if (location == Location.NO_LOCATION || !driver.isAcceptingRider()
+                            || (freeOnly && driver.getCurrentTrip() != null)) {
+                        continue;
+                    }
+                    double squaredDistance = distanceFindingStrategy.squaredDistance(Location.latitudeOf(location),
+                            Location.longitudeOf(location), latitude, longitude);
+                    if (squaredDistance <= squaredRadius) {
+                        found.add(driver, squaredDistance);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeLocation(final Chunk chunk, final int index, final long location) {
+        if (location == Location.NO_LOCATION) {
+            chunk.located[index] = 0;
+            return;
+        }
+        chunk.latitudes[index] = Location.latitudeOf(location);
+        chunk.longitudes[index] = Location.longitudeOf(location);
+        chunk.located[index] = 1;
+    }
+
+    private static final class Chunk {
+        final int[] latitudes = new int[CHUNK_SIZE];
+        final int[] longitudes = new int[CHUNK_SIZE];
+        final byte[] carTypes = new byte[CHUNK_SIZE];
+        final byte[] located = new byte[CHUNK_SIZE];
+        final byte[] accepting = new byte[CHUNK_SIZE];
+        final byte[] onTrip = new byte[CHUNK_SIZE];
+        final Driver[] drivers = new Driver[CHUNK_SIZE];
+    }
+}
@@ -0,0 +1,386 @@
+package com.company.index;
+
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.strategy.DistanceFindingStrategy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Uniform grid over latitude / longitude used to answer radius queries without looking at the whole fleet.
+ *
+ * <p>Only drivers that are accepting rides and have a known location are indexed. Every car type has a grid of its
+ * own, so a query for one car type never looks at the others. A radius query visits the cells overlapping the
+ * bounding square of the circle and runs the exact distance check on the drivers found there. How many coordinate units the radius spans is asked to the distance strategy, see
+ * {@link DistanceFindingStrategy#coordinateReach}.
+ *
+ * <p>Cells are concurrent maps and are created / dropped atomically, queries are weakly consistent. Updates for
+ * one driver are expected to be serialized by the caller.
+ */
+public class GridDriverIndex {
+
+    public static final int DEFAULT_CELL_SIZE = 10;
+
+    private final int cellSize;
+
+    // per car type, mapping of cell key to the drivers (by driver id) currently inside that cell
+    private final Map<CarType, Map<Long, Map<Integer, Driver>>> partitions = new EnumMap<>(CarType.class);
+
+    // mapping of driver id to the cell key the driver is indexed under
+    private final Map<Integer, Long> driverCells = new ConcurrentHashMap<>();
+
+    public GridDriverIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public GridDriverIndex(final int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size should be positive, got " + cellSize);
+        }
+        this.cellSize = cellSize;
+        for (CarType carType : CarType.values()) {
+            partitions.put(carType, new ConcurrentHashMap<>());
+        }
+    }
+
+    /** Index the driver at its current location, moving it out of its previous cell if required. */
+    public void upsert(final Driver driver) {
+        long location = driver.getPackedLocation();
+        if (location == Location.NO_LOCATION) {
+            remove(driver.getId());
+            return;
+        }
+
+        long newCell = cellKey(Location.latitudeOf(location), Location.longitudeOf(location));
+        Long indexedCell = driverCells.get(driver.getId());
+        if (indexedCell != null && indexedCell == newCell) {
+            // most location updates stay within the cell, nothing to move
+            return;
+        }
+        Long oldCell = driverCells.put(driver.getId(), newCell);
+        if (oldCell != null && oldCell != newCell) {
+            removeFromCell(oldCell, driver.getId());
+        }
+        partitions.get(driver.getCar().getCarType()).compute(newCell, (key, cell) -> {
+            Map<Integer, Driver> target = cell == null ? new ConcurrentHashMap<>() : cell;
+            target.put(driver.getId(), driver);
+            return target;
+        });
+    }
+
+    /** Drop the driver from the index, no-op if the driver is not indexed. */
+    public void remove(final int driverId) {
+        Long cell = driverCells.remove(driverId);
+        if (cell != null) {
+            removeFromCell(cell, driverId);
+        }
+    }
+
+    public int size() {
+        return driverCells.size();
+    }
+
+    /** Returns the indexed drivers whose distance from origin is within the given radius. */
+    public List<Driver> findWithinRadius(final Location origin, final double radius,
+            final DistanceFindingStrategy distanceFindingStrategy) {
+        List<Driver> result = new ArrayList<>();
+        for (Map<Long, Map<Integer, Driver>> cells : partitions.values()) {
+            search(cells, origin, radius, distanceFindingStrategy, cell -> collect(cell, origin, radius,
+                    distanceFindingStrategy, result));
+        }
+        return result;
+    }
+
+    /** Returns the indexed drivers with the given car type whose distance from origin is within the radius. */
+    public List<Driver> findWithinRadius(final Location origin, final double radius, final CarType carType,
+            final DistanceFindingStrategy distanceFindingStrategy) {
+        List<Driver> result = new ArrayList<>();
+        search(partitions.get(carType), origin, radius, distanceFindingStrategy, cell -> collect(cell, origin, radius,
+                distanceFindingStrategy, result));
+        return result;
+    }
+
+    /**
+     * Returns the drivers with the given car type that are available for a trip right now and within the radius,
+     * nearest first.
+     */
+    public List<Driver> findAvailableNearest(final Location origin, final double radius, final CarType carType,
+            final DistanceFindingStrategy distanceFindingStrategy) {
+        Candidates candidates = new Candidates();
+        double squaredRadius = radius * radius;
+        search(partitions.get(carType), origin, radius, distanceFindingStrategy, cell -> {
+            for (Driver driver : cell.values()) {
+                long location = driver.getPackedLocation();
+                if (location == Location.NO_LOCATION || !driver.isAvailable()) {
+                    continue;
+                }
+                double squaredDistance = distanceFindingStrategy.squaredDistance(Location.latitudeOf(location),
+                        Location.longitudeOf(location), origin.getLatitude(), origin.getLongitude());
+                if (squaredDistance <= squaredRadius) {
+                    candidates.add(driver, squaredDistance);
+                }
+            }
+        });
+        return candidates.nearestFirst();
+    }
+
+    /**
+     * Returns at most count drivers with the given car type, available for a trip right now and within maxRadius,
+     * nearest first. Cells are visited ring by ring around the origin cell and the search stops at the first ring
+     * too far out to hold anything closer than the count-th driver found so far.
+     */
+    public List<Driver> findNearestAvailable(final Location origin, final int count, final double maxRadius,
+            final CarType carType, final DistanceFindingStrategy distanceFindingStrategy) {
+        Map<Long, Map<Integer, Driver>> cells = partitions.get(carType);
+        if (count <= 0 || maxRadius < 0 || cells.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        NearestCandidates nearest = new NearestCandidates(count);
+        double squaredRadius = maxRadius * maxRadius;
+        Consumer<Map<Integer, Driver>> visitor = cell -> {
+            for (Driver driver : cell.values()) {
+                long location = driver.getPackedLocation();
+                if (location == Location.NO_LOCATION || !driver.isAvailable()) {
+                    continue;
+                }
+                double squaredDistance = distanceFindingStrategy.squaredDistance(Location.latitudeOf(location),
+                        Location.longitudeOf(location), origin.getLatitude(), origin.getLongitude());
+                if (squaredDistance <= squaredRadius) {
+                    nearest.offer(driver, squaredDistance);
+                }
+            }
+        };
+
+        long originLatCell = cellOf(origin.getLatitude());
+        long originLongCell = cellOf(origin.getLongitude());
+        long maxRing = (long) Math.ceil(Math.min(Integer.MAX_VALUE,
+                distanceFindingStrategy.coordinateReach(origin, maxRadius)) / cellSize);
+        for (long ring = 0; ring <= maxRing; ring++) {
+            // drivers in ring r are more than (r - 1) cells away from the origin on one axis at least
+            if (nearest.isFull() && (double) (ring - 1) * cellSize >= distanceFindingStrategy.coordinateReach(
+                    origin, Math.sqrt(nearest.worstSquaredDistance()))) {
+                break;
+            }
+            if (ring * 8 > cells.size()) {
+                // the rings left hold more cells than are occupied, walk the occupied ones not visited yet instead
+                for (Map.Entry<Long, Map<Integer, Driver>> cell : cells.entrySet()) {
+                    long latCell = cell.getKey() >> 32;
+                    long longCell = (int) (long) cell.getKey();
+                    if (Math.max(Math.abs(latCell - originLatCell), Math.abs(longCell - originLongCell)) >= ring) {
+                        visitor.accept(cell.getValue());
+                    }
+                }
+                break;
+            }
+            for (long dLat = -ring; dLat <= ring; dLat++) {
+                // only the border of the ring, the inside has been visited already
+                long step = Math.abs(dLat) == ring ? 1 : 2 * ring;
+                for (long dLong = -ring; dLong <= ring; dLong += Math.max(1, step)) {
+                    Map<Integer, Driver> cell = cells.get(pack(originLatCell + dLat, originLongCell + dLong));
+                    // skip cells whose nearest edge is already farther on one axis than the count-th driver
+                    if (cell != null && !(nearest.isFull() && Math.max(
+                            gap(origin.getLatitude(), originLatCell + dLat),
+                            gap(origin.getLongitude(), originLongCell + dLong))
+                            > distanceFindingStrategy.coordinateReach(origin,
+                                    Math.sqrt(nearest.worstSquaredDistance())))) {
+                        visitor.accept(cell);
+                    }
+                }
+            }
+        }
+        return nearest.nearestFirst();
+    }
+
+    /**
+     * Counts the drivers available for a trip right now whose location is within size coordinate units from the
+     * corner on both axes. Only the cells overlapping that square are visited.
+     */
+    public long countAvailable(final long minLatitude, final long minLongitude, final int size) {
+        long maxLatitude = minLatitude + size - 1;
+        long maxLongitude = minLongitude + size - 1;
+        long minLatCell = cellOf(minLatitude);
+        long maxLatCell = cellOf(maxLatitude);
+        long minLongCell = cellOf(minLongitude);
+        long maxLongCell = cellOf(maxLongitude);
+        long[] count = new long[1];
+        Consumer<Map<Integer, Driver>> visitor = cell -> {
+            for (Driver driver : cell.values()) {
+                long location = driver.getPackedLocation();
+                if (location == Location.NO_LOCATION || !driver.isAvailable()) {
+                    continue;
+                }
+                int latitude = Location.latitudeOf(location);
+                int longitude = Location.longitudeOf(location);
+                if (latitude >= minLatitude && latitude <= maxLatitude && longitude >= minLongitude
+                        && longitude <= maxLongitude) {
+                    count[0]++;
+                }
+            }
+        };
+        for (Map<Long, Map<Integer, Driver>> cells : partitions.values()) {
+            if ((maxLatCell - minLatCell + 1) * (maxLongCell - minLongCell + 1) > cells.size()) {
+                cells.values().forEach(visitor);
+                continue;
+            }
+            for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (long longCell = minLongCell; longCell <= maxLongCell; longCell++) {
+                    Map<Integer, Driver> cell = cells.get(pack(latCell, longCell));
+                    if (cell != null) {
+                        visitor.accept(cell);
+                    }
+                }
+            }
+        }
+        return count[0];
+    }
+
+    /** Hands the cells of the partition that may hold drivers within the radius to the visitor. */
+    private void search(final Map<Long, Map<Integer, Driver>> cells, final Location origin, final double radius,
+            final DistanceFindingStrategy distanceFindingStrategy, final Consumer<Map<Integer, Driver>> visitor) {
+        if (radius < 0 || cells.isEmpty()) {
+            return;
+        }
+
+        int reach = (int) Math.min(Integer.MAX_VALUE,
+                Math.ceil(distanceFindingStrategy.coordinateReach(origin, radius)));
+        long minLatCell = cellOf((long) origin.getLatitude() - reach);
+        long maxLatCell = cellOf((long) origin.getLatitude() + reach);
+        long minLongCell = cellOf((long) origin.getLongitude() - reach);
+        long maxLongCell = cellOf((long) origin.getLongitude() + reach);
+
+        // a huge radius touches more cells than there are occupied ones, walk the occupied cells instead
+        if ((maxLatCell - minLatCell + 1) * (maxLongCell - minLongCell + 1) > cells.size()) {
+            cells.values().forEach(visitor);
+            return;
+        }
+
+        for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (long longCell = minLongCell; longCell <= maxLongCell; longCell++) {
+                Map<Integer, Driver> cell = cells.get(pack(latCell, longCell));
+                if (cell != null) {
+                    visitor.accept(cell);
+                }
+            }
+        }
+    }
+
+    private void collect(final Map<Integer, Driver> cell, final Location origin, final double radius,
+            final DistanceFindingStrategy distanceFindingStrategy, final List<Driver> result) {
+        for (Driver driver : cell.values()) {
+            long location = driver.getPackedLocation();
+            if (location != Location.NO_LOCATION && distanceFindingStrategy.isWithinRadius(
+                    Location.latitudeOf(location), Location.longitudeOf(location), origin, radius)) {
+                result.add(driver);
+            }
+        }
+    }
+
+    // the driver is in one partition only, the others don't have it and are left untouched
+    private void removeFromCell(final long cellKey, final int driverId) {
+        for (Map<Long, Map<Integer, Driver>> cells : partitions.values()) {
+            cells.computeIfPresent(cellKey, (key, cell) -> {
+                cell.remove(driverId);
+                return cell.isEmpty() ? null : cell;
+            });
+        }
+    }
+
+    private long cellKey(final int latitude, final int longitude) {
+        return pack(cellOf(latitude), cellOf(longitude));
+    }
+
+    // coordinate units between the coordinate and the closest coordinate of the cell, 0 inside it
+    private long gap(final long coordinate, final long cell) {
+        long low = cell * cellSize;
+        long high = low + cellSize - 1;
+        return Math.max(0, Math.max(low - coordinate, coordinate - high));
+    }
+
+    private long cellOf(final long coordinate) {
+        return Math.floorDiv(coordinate, (long) cellSize);
+    }
+
+    private static long pack(final long latCell, final long longCell) {
+        return (latCell << 32) | (longCell & 0xFFFFFFFFL);
+    }
+
+    /** The count nearest drivers offered so far, kept in a max-heap on their squared distance to the origin. */
+    private static final class NearestCandidates {
+        private final Driver[] drivers;
+        private final double[] squaredDistances;
+        private int size;
+
+        NearestCandidates(final int count) {
+            drivers = new Driver[count];
+            squaredDistances = new double[count];
+        }
+
+        boolean isFull() {
+            return size == drivers.length;
+        }
+
+        double worstSquaredDistance() {
+            return squaredDistances[0];
+        }
+
+        void offer(final Driver driver, final double squaredDistance) {
+            if (size < drivers.length) {
+                int index = size++;
+                while (index > 0) {
+                    int parent = (index - 1) >>> 1;
+                    if (squaredDistances[parent] >= squaredDistance) {
+                        break;
+                    }
+                    drivers[index] = drivers[parent];
+                    squaredDistances[index] = squaredDistances[parent];
+                    index = parent;
+                }
+                drivers[index] = driver;
+                squaredDistances[index] = squaredDistance;
+            } else if (squaredDistance < squaredDistances[0]) {
+                siftDown(driver, squaredDistance);
+            }
+        }
+
+        List<Driver> nearestFirst() {
+            Driver[] sorted = new Driver[size];
+            while (size > 0) {
+                sorted[size - 1] = drivers[0];
+                size--;
+                siftDown(drivers[size], squaredDistances[size]);
+            }
+            return new ArrayList<>(Arrays.asList(sorted));
+        }
+
+        // puts the entry at the root and moves it down to its place, the old root is dropped
+        private void siftDown(final Driver driver, final double squaredDistance) {
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && squaredDistances[child + 1] > squaredDistances[child]) {
+                    child++;
+                }
+                if (squaredDistances[child] <= squaredDistance) {
+                    break;
+                }
+                drivers[index] = drivers[child];
+                squaredDistances[index] = squaredDistances[child];
+                index = child;
+            }
+            if (size > 0) {
+                drivers[index] = driver;
+                squaredDistances[index] = squaredDistance;
+            }
+        }
+    }
+}
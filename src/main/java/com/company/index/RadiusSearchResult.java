@@ -0,0 +1,16 @@
+package com.company.index;
+
+import com.company.model.Driver;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Drivers found by an {@link AdaptiveRadius} search, the radius they were found at and how often it grew. */
+@Getter
+@AllArgsConstructor
+public class RadiusSearchResult {
+
+    private final List<Driver> drivers;
+    private final double radius;
+    private final int expansions;
+}
@@ -0,0 +1,216 @@
+package com.company.index;
+
+import com.company.model.Trip;
+import com.company.model.TripIds;
+import com.company.model.TripStatus;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Secondary indexes over trips, so operational queries don't scan every trip ever booked:
+ * <ul>
+ *   <li>live trips, booked or in progress, by status,</li>
+ *   <li>the live trip of each driver and the live trips of each rider,</li>
+ *   <li>every trip by booking time, in buckets of a fixed width.</li>
+ * </ul>
+ *
+ * <p>Only live trips are held by the status, driver and rider indexes, a trip leaves them as soon as it is completed
+ * or withdrawn. Time buckets hold trips whatever their status and are dropped once older than the retention, which
+ * bounds the memory taken by finished trips; finished trips are only found through the buckets still retained. Trips
+ * restored with an id that isn't in the compact form carry no booking time and are not in the time buckets.
+ *
+ * <p>Updates are made by the trip manager while holding the trip's monitor, queries take no lock and see a weakly
+ * consistent state.
+ */
+public class TripIndex {
+
+    public static final long DEFAULT_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final long DEFAULT_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final LongSupplier clock;
+    private final long retentionMillis;
+    private final long bucketMillis;
+
+    private final Map<TripStatus, Set<Trip>> liveByStatus = new EnumMap<>(TripStatus.class);
+    private final Map<Integer, Trip> liveByDriver = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Trip>> liveByRider = new ConcurrentHashMap<>();
+
+    // booking time bucket to the trips booked in it, in booking order
+    private final ConcurrentSkipListMap<Long, Queue<Trip>> bookedByBucket = new ConcurrentSkipListMap<>();
+
+    // newest bucket the expired ones were dropped for, expiry runs once per bucket
+    private volatile long expiredFor = Long.MIN_VALUE;
+
+    public TripIndex() {
+        this(System::currentTimeMillis, DEFAULT_RETENTION_MILLIS, DEFAULT_BUCKET_MILLIS);
+    }
+
+    /**
+     * @param clock epoch milliseconds, the time trips are aged against.
+     * @param retentionMillis how long trips stay in the time buckets after being booked.
+     * @param bucketMillis width of a time bucket, trips age out a bucket at a time.
+     */
+    public TripIndex(final LongSupplier clock, final long retentionMillis, final long bucketMillis) {
+        if (retentionMillis <= 0 || bucketMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "Retention and bucket width should be positive, got " + retentionMillis + " / " + bucketMillis);
+        }
+        this.clock = clock;
+        this.retentionMillis = retentionMillis;
+        this.bucketMillis = bucketMillis;
+        liveByStatus.put(TripStatus.BOOKED, ConcurrentHashMap.newKeySet());
+        liveByStatus.put(TripStatus.IN_PROGRESS, ConcurrentHashMap.newKeySet());
+    }
+
+    /** Indexes a trip just booked or restored, in its current status. */
+    public void add(final Trip trip) {
+        expire();
+        long bookedAt = bookedAt(trip);
+        if (bookedAt != TripIds.NOT_COMPACT && bookedAt >= cutoff()) {
+            // a bucket dropped by a concurrent expiry takes the trip with it, it was about to age out anyway
+            bookedByBucket.computeIfAbsent(bookedAt / bucketMillis, bucket -> new ConcurrentLinkedQueue<>()).add(trip);
+        }
+        if (isLive(trip.getStatus())) {
+            addLive(trip);
+        }
+    }
+
+    /** Moves the trip from the given status to the one it is in now. */
+    public void moved(final Trip trip, final TripStatus from) {
+        TripStatus to = trip.getStatus();
+        if (to == from) {
+            return;
+        }
+        if (isLive(to)) {
+            liveByStatus.get(to).add(trip);
+            if (isLive(from)) {
+                liveByStatus.get(from).remove(trip);
+            } else {
+                addLive(trip);
+            }
+        } else if (isLive(from)) {
+            removeLive(trip, from);
+        }
+    }
+
+    /**
+     * Trips in the given status. Booked and in progress trips come from the live index, completed and withdrawn
+     * ones from the time buckets, so only the ones booked within the retention are returned.
+     */
+    public List<Trip> withStatus(final TripStatus status) {
+        if (isLive(status)) {
+            List<Trip> result = new ArrayList<>();
+            for (Trip trip : liveByStatus.get(status)) {
+                // a trip may have moved on since the set was read
+                if (trip.getStatus() == status) {
+                    result.add(trip);
+                }
+            }
+            return result;
+        }
+        List<Trip> result = new ArrayList<>();
+        for (Trip trip : bookedBetween(cutoff(), Long.MAX_VALUE)) {
+            if (trip.getStatus() == status) {
+                result.add(trip);
+            }
+        }
+        return result;
+    }
+
+    /** The booked or in progress trip of the driver, null if the driver is free. */
+    public Trip liveTripOfDriver(final int driverId) {
+        return liveByDriver.get(driverId);
+    }
+
+    /** The booked and in progress trips of the rider. */
+    public List<Trip> liveTripsOfRider(final int riderId) {
+        Set<Trip> trips = liveByRider.get(riderId);
+        return trips == null ? Collections.emptyList() : new ArrayList<>(trips);
+    }
+
+    /**
+     * Trips booked from the first time, included, to the second, excluded, oldest bucket first. Only trips booked
+     * within the retention are still indexed.
+     */
+    public List<Trip> bookedBetween(final long fromMillis, final long toMillis) {
+        expire();
+        List<Trip> result = new ArrayList<>();
+        if (fromMillis >= toMillis) {
+            return result;
+        }
+        long firstBucket = Math.floorDiv(fromMillis, bucketMillis);
+        long lastBucket = Math.floorDiv(toMillis - 1, bucketMillis);
+        for (Queue<Trip> bucket : bookedByBucket.subMap(firstBucket, true, lastBucket, true).values()) {
+            for (Trip trip : bucket) {
+                long bookedAt = bookedAt(trip);
+                if (bookedAt >= fromMillis && bookedAt < toMillis) {
+                    result.add(trip);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Drops the time buckets older than the retention. Called on every add and time query, at most once per bucket. */
+    public void expire() {
+        long now = clock.getAsLong();
+        long current = now / bucketMillis;
+        if (current == expiredFor) {
+            return;
+        }
+        expiredFor = current;
+        // whole buckets only, a bucket goes once its newest trip is past the retention
+        bookedByBucket.headMap(Math.floorDiv(now - retentionMillis, bucketMillis)).clear();
+    }
+
+    /** Number of trips in the time buckets, finished ones included. */
+    public int retainedSize() {
+        int count = 0;
+        for (Queue<Trip> bucket : bookedByBucket.values()) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    private void addLive(final Trip trip) {
+        liveByStatus.get(trip.getStatus()).add(trip);
+        liveByDriver.put(trip.getDriver().getId(), trip);
+        liveByRider.compute(trip.getRider().getId(), (riderId, trips) -> {
+            Set<Trip> updated = trips == null ? ConcurrentHashMap.newKeySet() : trips;
+            updated.add(trip);
+            return updated;
+        });
+    }
+
+    private void removeLive(final Trip trip, final TripStatus from) {
+        liveByStatus.get(from).remove(trip);
+        // the driver may already be on the next trip
+        liveByDriver.remove(trip.getDriver().getId(), trip);
+        liveByRider.computeIfPresent(trip.getRider().getId(), (riderId, trips) -> {
+            trips.remove(trip);
+            return trips.isEmpty() ? null : trips;
+        });
+    }
+
+    private long cutoff() {
+        return clock.getAsLong() - retentionMillis;
+    }
+
+    private static long bookedAt(final Trip trip) {
+        return trip.getKey() == TripIds.NOT_COMPACT ? TripIds.NOT_COMPACT : TripIds.timestampOf(trip.getKey());
+    }
+
+    private static boolean isLive(final TripStatus status) {
+        return status == TripStatus.BOOKED || status == TripStatus.IN_PROGRESS;
+    }
+}
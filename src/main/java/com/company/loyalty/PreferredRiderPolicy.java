@@ -0,0 +1,8 @@
+package com.company.loyalty;
+
+/** Decides from a rider's running stats whether the rider gets the preferred fare. */
+@FunctionalInterface
+public interface PreferredRiderPolicy {
+
+    boolean isPreferred(RiderStats riderStats);
+}
@@ -0,0 +1,81 @@
+package com.company.loyalty;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Running counters of a rider's activity, updated as trips end or get withdrawn so that loyalty decisions never
+ * have to look at the trip history.
+ *
+ * <p>Completed trips of the last {@link #RECENT_WINDOW_DAYS} days are kept in one counter per day; days falling out
+ * of the window are subtracted lazily when the window moves, so every read is constant time.
+ */
+public class RiderStats {
+
+    public static final int RECENT_WINDOW_DAYS = 30;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final LongSupplier clock;
+
+    private long completedTrips;
+    private long withdrawnTrips;
+    private double totalSpend;
+
+    // completed trips per day, indexed by day number modulo the window
+    private final int[] completedPerDay = new int[RECENT_WINDOW_DAYS];
+    private long newestDay;
+    private int recentCompletedTrips;
+
+    public RiderStats(final LongSupplier clock) {
+        this.clock = clock;
+        this.newestDay = today();
+    }
+
+    public synchronized void recordCompletedTrip(final double fare) {
+        long today = today();
+        advanceTo(today);
+        completedPerDay[(int) (today % RECENT_WINDOW_DAYS)]++;
+        recentCompletedTrips++;
+        completedTrips++;
+        totalSpend += fare;
+    }
+
+    public synchronized void recordWithdrawnTrip() {
+        withdrawnTrips++;
+    }
+
+    public synchronized long getCompletedTrips() {
+        return completedTrips;
+    }
+
+    public synchronized long getWithdrawnTrips() {
+        return withdrawnTrips;
+    }
+
+    public synchronized double getTotalSpend() {
+        return totalSpend;
+    }
+
+    /** Trips completed over the last {@link #RECENT_WINDOW_DAYS} days, today included. */
+    public synchronized int getRecentCompletedTrips() {
+        advanceTo(today());
+        return recentCompletedTrips;
+    }
+
+    private void advanceTo(final long today) {
+        if (today <= newestDay) {
+            return;
+        }
+        // clear the days between the newest recorded day and today, at most one full turn of the window
+        long expiredDays = Math.min(today - newestDay, RECENT_WINDOW_DAYS);
+        for (long day = today - expiredDays + 1; day <= today; day++) {
+            int slot = (int) (day % RECENT_WINDOW_DAYS);
+            recentCompletedTrips -= completedPerDay[slot];
+            completedPerDay[slot] = 0;
+        }
+        newestDay = today;
+    }
+
+    private long today() {
+        return Math.floorDiv(clock.getAsLong(), DAY_MILLIS);
+    }
+}
@@ -0,0 +1,27 @@
+package com.company.loyalty;
+
+/**
+ * Riders are preferred once they completed enough trips overall and enough trips recently, withdrawn trips don't
+ * count.
+ */
+public class TripCountPreferredRiderPolicy implements PreferredRiderPolicy {
+
+    private final long minCompletedTrips;
+    private final int minRecentCompletedTrips;
+
+    /**
+     * @param minCompletedTrips completed trips needed overall.
+     * @param minRecentCompletedTrips completed trips needed within the last {@link RiderStats#RECENT_WINDOW_DAYS}
+     *     days, 0 to ignore recent activity.
+     */
+    public TripCountPreferredRiderPolicy(final long minCompletedTrips, final int minRecentCompletedTrips) {
+        this.minCompletedTrips = minCompletedTrips;
+        this.minRecentCompletedTrips = minRecentCompletedTrips;
+    }
+
+    @Override
+    public boolean isPreferred(final RiderStats riderStats) {
+        return riderStats.getCompletedTrips() >= minCompletedTrips
+                && (minRecentCompletedTrips == 0 || riderStats.getRecentCompletedTrips() >= minRecentCompletedTrips);
+    }
+}
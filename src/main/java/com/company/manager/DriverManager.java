@@ -1,29 +1,115 @@
 package com.company.manager;
 
+import com.company.events.EventBus;
 import com.company.exception.CarAlreadyPresentException;
 import com.company.exception.DriverAlreadyPresentException;
 import com.company.exception.DriverNotFoundException;
-import com.company.exception.RiderNotFoundException;
+import com.company.history.TripArchive;
+import com.company.history.TripHistory;
+import com.company.history.TripHistoryPage;
+import com.company.index.AvailableDriverSet;
+import com.company.index.DriverStateTable;
+import com.company.index.GridDriverIndex;
 import com.company.model.Car;
+import com.company.model.CarType;
 import com.company.model.Driver;
 import com.company.model.Location;
 import com.company.model.Trip;
+import com.company.persistence.DriverLocationStore;
+import com.company.persistence.Journal;
+import com.company.storage.IntMap;
+import com.company.storage.StorageMode;
 import com.company.strategy.DistanceFindingStrategy;
+import com.company.surge.SurgeTracker;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
-/** Driver manager class is used to manage all operations related to driver. */
+/**
+ * Driver manager class is used to manage all operations related to driver.
+ *
+ * <p>Safe to call from many booking threads: the maps are concurrent, location / availability changes happen
+ * under the lock stripe owning that driver id and drivers are handed to trips through a lock-free reservation.
+ */
 public class DriverManager {
 
+  private static final int LOCK_STRIPES = 64;
+
     // mapping of driver id to the driver
-  private Map<Integer, Driver> drivers = new HashMap<>();
+  private final IntMap<Driver> drivers;
 
   // mapping of driver id to the car he drives
-  private Map<Integer, Car> cars = new HashMap<>();
+  private final IntMap<Car> cars;
+
+  // every car registered with a driver, lets the uniqueness check at registration avoid scanning all cars
+  private final Set<Car> registeredCars = ConcurrentHashMap.newKeySet();
+
+  // spatial index over the drivers accepting rides, kept current on every availability / location change
+  private final GridDriverIndex driverIndex;
+
+  // columnar copy of the state full scans filter on, a slot per registered driver
+  private final DriverStateTable stateTable = new DriverStateTable();
+
+  // drivers accepting rides and not on a trip, updated on every availability and reservation change under the
+  // set's own lock stripes
+  private final AvailableDriverSet availableDrivers = new AvailableDriverSet();
+  private final Collection<Driver> availableView = Collections.unmodifiableCollection(availableDrivers);
+
+  // when false radius queries fall back to the full scan over all drivers, useful to cross check the index
+  private volatile boolean useSpatialIndex = true;
+
+  // when set it counts the drivers available in its cells from the spatial index as supply
+  private volatile SurgeTracker surgeTracker;
+
+  // where trips leaving a driver's in-memory history go, null to drop them
+  private final TripArchive tripArchive;
+  private final int historyWindow;
+
+  // when set driver locations are written through to this memory-mapped store and survive restarts
+  private volatile DriverLocationStore locationStore;
+
+  // when set every driver change is journaled, while still holding the driver's lock stripe. In SYNC mode the
+  // journal is waited on once the stripe is released
+  private volatile Journal journal;
+
+  // when set driver location and availability changes are published to it, under the driver's lock stripe
+  private volatile EventBus eventBus;
+
+  // lock stripes guarding driver state, a driver always maps to the same stripe
+  private final Object[] driverLocks = new Object[LOCK_STRIPES];
+
+  public DriverManager() {
+    this(new GridDriverIndex());
+  }
+
+  public DriverManager(final GridDriverIndex driverIndex) {
+    this(driverIndex, null, TripHistory.DEFAULT_WINDOW);
+  }
+
+  /**
+   * @param tripArchive archive receiving trips older than the history window, null to drop them.
+   * @param historyWindow number of recent trips kept in memory per driver.
+   */
+  public DriverManager(final GridDriverIndex driverIndex, final TripArchive tripArchive, final int historyWindow) {
+    this(driverIndex, tripArchive, historyWindow, StorageMode.HASH_MAP);
+  }
+
+  /** @param storageMode how drivers are held in memory. */
+  public DriverManager(final GridDriverIndex driverIndex, final TripArchive tripArchive, final int historyWindow,
+      final StorageMode storageMode) {
+    this.drivers = storageMode.newIntMap();
+    this.cars = storageMode.newIntMap();
+    this.driverIndex = driverIndex;
+    this.tripArchive = tripArchive;
+    this.historyWindow = historyWindow;
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      driverLocks[i] = new Object();
+    }
+  }
 
   /**
    * Method to register a new Driver into the application.
@@ -31,19 +117,34 @@ public class DriverManager {
    * @param driver Object
    * @throws DriverAlreadyPresentException exception if driver is already present
    */
-  public void createDriver(final Driver driver) {
+  // registration is rare, so it is serialized to keep the driver and car uniqueness checks atomic
+  public synchronized void createDriver(final Driver driver) {
     if (drivers.containsKey(driver.getId())) {
       throw new DriverAlreadyPresentException(
           "Driver with driver id = " + driver.getId() + " already present, try with different Id.");
     }
 
-    if (cars.containsValue(driver.getCar())) {
+    if (registeredCars.contains(driver.getCar())) {
         throw new CarAlreadyPresentException(
                 "Car is already present with another driver with driver id = " + driver.getId());
     }
 
-    drivers.put(driver.getId(), driver);
-    cars.put(driver.getId(), driver.getCar());
+    driver.getTrips().configure(historyWindow, tripArchive, TripArchive.driverKey(driver.getId()));
+    synchronized (lockFor(driver.getId())) {
+      drivers.put(driver.getId(), driver);
+      cars.put(driver.getId(), driver.getCar());
+      registeredCars.add(driver.getCar());
+      attachLocationRecord(driver);
+      driver.assignStateSlot(stateTable.add(driver));
+      availableDrivers.update(driver);
+      reindex(driver);
+      Journal current = journal;
+      if (current != null) {
+        current.driverCreated(driver);
+      }
+    }
+    // only registrations wait behind this monitor, the stripe is released already
+    awaitJournal();
   }
 
   /**
@@ -54,73 +155,432 @@ public class DriverManager {
    * @throws DriverNotFoundException If Driver not found for the given driver id.
    */
   public void updateDriverAvailability(final int driverId, boolean newAvailability) {
-    if (!drivers.containsKey(driverId)) {
+    Driver driver = drivers.get(driverId);
+    if (driver == null) {
       throw new DriverNotFoundException(
           "No driver with driver id = " + driverId + ", try with correct driver Id.");
     }
 
-    drivers.get(driverId).setAcceptingRider(newAvailability);
+    synchronized (lockFor(driverId)) {
+      driver.setAcceptingRider(newAvailability);
+      stateTable.updateAccepting(driver);
+      availableDrivers.update(driver);
+      reindex(driver);
+      Journal current = journal;
+      if (current != null) {
+        current.driverAvailability(driverId, newAvailability);
+      }
+      EventBus bus = eventBus;
+      if (bus != null) {
+        bus.publishDriverAvailability(driverId, newAvailability);
+      }
+    }
+    awaitJournal();
   }
 
     /**
      * Update location of the driver
      */
     public void updateDriverLocation(final int driverId, Location location) {
-        if (!drivers.containsKey(driverId)) {
+        updateDriverLocation(driverId, location.getLatitude(), location.getLongitude());
+    }
+
+    /** Update location of the driver in place, without allocating. */
+    public void updateDriverLocation(final int driverId, final int latitude, final int longitude) {
+        moveDriver(driverId, latitude, longitude);
+        awaitJournal();
+    }
+
+    /** Update location of the driver without waiting on the journal, for callers still holding a trip's monitor. */
+    void moveDriver(final int driverId, final Location location) {
+        moveDriver(driverId, location.getLatitude(), location.getLongitude());
+    }
+
+    private void moveDriver(final int driverId, final int latitude, final int longitude) {
+        Driver driver = drivers.get(driverId);
+        if (driver == null) {
             throw new DriverNotFoundException(
                     "No driver with driver id = " + driverId + ", try with correct driver Id.");
         }
 
-        drivers.get(driverId).setCurrentLocation(location);
+        synchronized (lockFor(driverId)) {
+            driver.setCurrentLocation(latitude, longitude);
+            stateTable.updateLocation(driver);
+            writeLocationRecord(driver);
+            reindex(driver);
+            Journal current = journal;
+            if (current != null) {
+                current.driverLocation(driverId, latitude, longitude);
+            }
+            EventBus bus = eventBus;
+            if (bus != null) {
+                bus.publishDriverLocation(driverId, latitude, longitude);
+            }
+        }
     }
 
     /**
-     * Method to return the list of all available drivers.
-     * @return
+     * Applies a batch of GPS fixes. Only the newest fix of each driver is applied, fixes older than the one a driver
+     * is already at are dropped. Fixes are grouped by lock stripe so every stripe is taken once for the batch.
+     * Nothing is thrown for bad entries, each one gets a status code in the batch.
+     *
+     * @return number of drivers moved.
+     */
+    public int updateDriverLocations(final LocationBatch batch) {
+        int size = batch.size;
+        batch.coalesce();
+
+        // counting sort of the surviving fixes by stripe
+        int[] stripeEnds = new int[LOCK_STRIPES + 1];
+        for (int entry = 0; entry < size; entry++) {
+            if (batch.statuses[entry] == LocationBatch.APPLIED) {
+                stripeEnds[stripeOf(batch.driverIds[entry]) + 1]++;
+            }
+        }
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            stripeEnds[stripe + 1] += stripeEnds[stripe];
+        }
+        int[] fill = stripeEnds.clone();
+        for (int entry = 0; entry < size; entry++) {
+            if (batch.statuses[entry] == LocationBatch.APPLIED) {
+                batch.order[fill[stripeOf(batch.driverIds[entry])]++] = entry;
+            }
+        }
+
+        Journal current = journal;
+        EventBus bus = eventBus;
+        int applied = 0;
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            if (stripeEnds[stripe] == stripeEnds[stripe + 1]) {
+                continue;
+            }
+            synchronized (driverLocks[stripe]) {
+                for (int i = stripeEnds[stripe]; i < stripeEnds[stripe + 1]; i++) {
+                    int entry = batch.order[i];
+                    int driverId = batch.driverIds[entry];
+                    Driver driver = drivers.get(driverId);
+                    if (driver == null) {
+                        batch.statuses[entry] = LocationBatch.UNKNOWN_DRIVER;
+                        continue;
+                    }
+                    if (!driver.advanceLocationTimestamp(batch.timestamps[entry])) {
+                        batch.statuses[entry] = LocationBatch.STALE;
+                        continue;
+                    }
+                    driver.setCurrentLocation(batch.latitudes[entry], batch.longitudes[entry]);
+                    stateTable.updateLocation(driver);
+                    writeLocationRecord(driver);
+                    reindex(driver);
+                    if (current != null) {
+                        current.driverLocation(driverId, batch.latitudes[entry], batch.longitudes[entry]);
+                    }
+                    if (bus != null) {
+                        bus.publishDriverLocation(driverId, batch.latitudes[entry], batch.longitudes[entry]);
+                    }
+                    applied++;
+                }
+            }
+        }
+        awaitJournal();
+        return applied;
+    }
+
+    /**
+     * Method to return the list of all available drivers: accepting rides and not on a trip.
+     * @return a copy of {@link #getAvailableDrivers()}, O(available) rather than a scan of every driver
      */
   public List<Driver> getDrivers() {
-      // get the drivers who are not currently on a trip and are accepting rides at the moment
-    return drivers.values().stream().filter(Driver::isAcceptingRider)
-            .collect(Collectors.toList());
+    return new ArrayList<>(availableView);
+  }
+
+  /**
+   * Drivers accepting rides and not on a trip, as a read-only live view kept up to date incrementally. Iterating it
+   * costs O(available) and allocates nothing but the iterator, it is weakly consistent while drivers come and go
+   * (see {@link AvailableDriverSet}).
+   */
+  public Collection<Driver> getAvailableDrivers() {
+    return availableView;
+  }
+
+  /** All registered drivers, available or not, a read-only view. */
+  public Collection<Driver> getAllDrivers() {
+      return Collections.unmodifiableCollection(drivers.values());
   }
 
+  /**
+   * Driver registered with the given id.
+   *
+   * @throws DriverNotFoundException If Driver not found for the given driver id.
+   */
+  public Driver getDriver(final int driverId) {
+      return getDriverOrThrow(driverId);
+  }
+
+  /**
+   * Drivers accepting rides within the radius, on a trip or not, unlike {@link #getDrivers()}: matching strategies
+   * get to see busy drivers and filter on {@link Driver#isAvailable()} themselves, and keeping reservations out of
+   * the spatial index spares the booking path an index update.
+   */
   public List<Driver> getDriversWithinRadius(Location origin, double radius, DistanceFindingStrategy distanceFindingStrategy) {
-      ArrayList<Driver> driversWithinRadius = new ArrayList<Driver>();
-      // get all the drivers who are not currently on a trip and are accepting rides at the moment
-      List<Driver> allDrivers = getDrivers();
-      for (Driver driver : allDrivers) {
-          if (distanceFindingStrategy.distanceBetweenLocations(driver.getCurrentLocation(), origin) <= radius) {
-              driversWithinRadius.add(driver);
-          }
+      if (useSpatialIndex) {
+          return driverIndex.findWithinRadius(origin, radius, distanceFindingStrategy);
       }
+      return getDriversWithinRadiusFullScan(origin, radius, distanceFindingStrategy);
+  }
 
-      return driversWithinRadius;
+  /** Drivers with the given car type available for a trip within the radius, nearest first. */
+  public List<Driver> getAvailableDriversWithinRadius(Location origin, double radius, CarType carType,
+          DistanceFindingStrategy distanceFindingStrategy) {
+      if (useSpatialIndex) {
+          return driverIndex.findAvailableNearest(origin, radius, carType, distanceFindingStrategy);
+      }
+      return stateTable.availableNearest(origin, radius, carType, distanceFindingStrategy);
+  }
+
+  /** At most count drivers with the given car type available for a trip within maxRadius, nearest first. */
+  public List<Driver> getNearestAvailableDrivers(Location origin, int count, double maxRadius, CarType carType,
+          DistanceFindingStrategy distanceFindingStrategy) {
+      if (useSpatialIndex) {
+          return driverIndex.findNearestAvailable(origin, count, maxRadius, carType, distanceFindingStrategy);
+      }
+      List<Driver> nearest = getAvailableDriversWithinRadius(origin, maxRadius, carType, distanceFindingStrategy);
+      return new ArrayList<>(nearest.subList(0, Math.min(Math.max(count, 0), nearest.size())));
+  }
+
+  /** Radius query over every driver, on a trip or not like the spatial index, kept around to cross check it. */
+  public List<Driver> getDriversWithinRadiusFullScan(Location origin, double radius,
+          DistanceFindingStrategy distanceFindingStrategy) {
+      // a sequential pass over the driver state columns, drivers accepting rides at the moment
+      return stateTable.acceptingWithinRadius(origin, radius, distanceFindingStrategy);
   }
 
   /** Set current trip for the driver */
   public void setCurrentTrip(int driverId, Trip trip) {
-      drivers.get(driverId).setCurrentTrip(trip);
+      Driver driver = getDriverOrThrow(driverId);
+      driver.setCurrentTrip(trip);
+      stateTable.updateOnTrip(driver);
+      availableDrivers.update(driver);
+  }
+
+  /**
+   * Reserves the driver for the trip with a compare-and-set from available to reserved, no lock is taken.
+   *
+   * @return true if the driver got the trip, false if another booking reserved the driver first or the driver
+   *     stopped accepting rides.
+   * @throws DriverNotFoundException If Driver not found for the given driver id.
+   */
+  public boolean reserveDriver(final int driverId, final Trip trip) {
+      Driver driver = getDriverOrThrow(driverId);
+      if (!driver.tryReserve(trip)) {
+          return false;
+      }
+      stateTable.updateOnTrip(driver);
+      availableDrivers.update(driver);
+      return true;
+  }
+
+  /** Frees the driver from the given trip, no-op if the driver has already moved on to another trip. */
+  public void releaseDriver(final int driverId, final Trip trip) {
+      Driver driver = getDriverOrThrow(driverId);
+      if (!driver.release(trip)) {
+          return;
+      }
+      stateTable.updateOnTrip(driver);
+      availableDrivers.update(driver);
   }
 
     /**
      * Updates driver with the trips that he has completed / withdrawn / in-progress
+     *
+     * @return the trip pushed out of the in-memory history, null if there was room.
      */
-    public void updateTripForDriver(final int driverId, Trip trip) {
-        if (!drivers.containsKey(driverId)) {
+    public Trip updateTripForDriver(final int driverId, Trip trip) {
+        Driver driver = drivers.get(driverId);
+        if (driver == null) {
             throw new DriverNotFoundException("Driver with driver Id = " + driverId + " not found.");
         }
 
-        drivers.get(driverId).getTrips().add(trip);
+        return driver.getTrips().add(trip);
+    }
+
+    /**
+     * Pages through the trips of the driver, archived ones included, newest first.
+     *
+     * @param cursor {@link TripHistory#FIRST_PAGE} or the next cursor of the previous page.
+     * @throws DriverNotFoundException If Driver not found for the given driver id.
+     */
+    public TripHistoryPage tripHistory(final int driverId, final long cursor, final int pageSize) {
+        return getDriverOrThrow(driverId).getTrips().page(cursor, pageSize);
     }
 
     /** Driver makes himself available to take the trips */
     public void makeAvailable(final int driverId, Location currentLocation) {
-        if (!drivers.containsKey(driverId)) {
+        Driver driver = drivers.get(driverId);
+        if (driver == null) {
             throw new DriverNotFoundException("Driver with driver Id = " + driverId + " not found.");
         }
 
+        synchronized (lockFor(driverId)) {
+            driver.setCurrentLocation(currentLocation);
+            driver.setAcceptingRider(true);
+            stateTable.updateLocation(driver);
+            stateTable.updateAccepting(driver);
+            availableDrivers.update(driver);
+            writeLocationRecord(driver);
+            reindex(driver);
+            Journal current = journal;
+            if (current != null) {
+                if (currentLocation != null) {
+                    current.driverLocation(driverId, currentLocation);
+                }
+                current.driverAvailability(driverId, true);
+            }
+            EventBus bus = eventBus;
+            if (bus != null) {
+                if (currentLocation != null) {
+                    bus.publishDriverLocation(driverId, currentLocation.getLatitude(), currentLocation.getLongitude());
+                }
+                bus.publishDriverAvailability(driverId, true);
+            }
+        }
+        awaitJournal();
+    }
+
+    /**
+     * Split full scans over the pool once there are at least {@link DriverStateTable#DEFAULT_PARALLEL_THRESHOLD}
+     * drivers, null keeps them on the calling thread. The distance strategy passed to queries then has to be safe
+     * to call from several threads.
+     */
+    public void setScanPool(final ForkJoinPool scanPool) {
+        setScanPool(scanPool, DriverStateTable.DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /** Split full scans over the pool once there are at least minDrivers drivers, null keeps them sequential. */
+    public void setScanPool(final ForkJoinPool scanPool, final int minDrivers) {
+        stateTable.setParallelScan(scanPool, minDrivers);
+    }
+
+    /** Switch radius queries between the spatial index and the full scan. */
+    public void setUseSpatialIndex(final boolean useSpatialIndex) {
+        this.useSpatialIndex = useSpatialIndex;
+    }
+
+    public boolean isUseSpatialIndex() {
+        return useSpatialIndex;
+    }
+
+    /**
+     * Let the surge tracker count the drivers available in its cells from the spatial index, null detaches the
+     * tracker set before.
+     */
+    public void setSurgeTracker(final SurgeTracker surgeTracker) {
+        SurgeTracker previous = this.surgeTracker;
+        if (previous != null && previous != surgeTracker) {
+            previous.setSupply(null);
+        }
+        if (surgeTracker != null) {
+            surgeTracker.setSupply(driverIndex::countAvailable);
+        }
+        this.surgeTracker = surgeTracker;
+    }
+
+    public SurgeTracker getSurgeTracker() {
+        return surgeTracker;
+    }
+
+    /** Where trips leaving a driver's in-memory history go, null if they are dropped. */
+    public TripArchive getTripArchive() {
+        return tripArchive;
+    }
+
+    /**
+     * Persist driver locations in the store. Registered drivers get a record right away, a driver without a location
+     * picks up the one the store kept for it, for instance from before a restart.
+     */
+    public void setLocationStore(final DriverLocationStore locationStore) {
+        this.locationStore = locationStore;
+        for (Driver driver : drivers.values()) {
+            synchronized (lockFor(driver.getId())) {
+                attachLocationRecord(driver);
+                stateTable.updateLocation(driver);
+                reindex(driver);
+            }
+        }
+    }
+
+    public DriverLocationStore getLocationStore() {
+        return locationStore;
+    }
+
+    /** Journal driver changes, null stops journaling. */
+    public void setJournal(final Journal journal) {
+        this.journal = journal;
+    }
+
+    /** Publish driver location and availability changes on the bus, null stops publishing. */
+    public void setEventBus(final EventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
+    /** In SYNC mode waits for the driver changes this thread journaled, called once the stripe is released. */
+    void awaitJournal() {
+        Journal current = journal;
+        if (current != null) {
+            current.awaitDurable();
+        }
+    }
+
+    // called under the driver's lock stripe
+    private void attachLocationRecord(final Driver driver) {
+        DriverLocationStore store = locationStore;
+        if (store == null) {
+            return;
+        }
+        int slot = store.slotFor(driver.getId());
+        driver.bindLocationSlot(slot);
+        long stored = store.read(slot);
+        if (!driver.hasLocation() && stored != Location.NO_LOCATION) {
+            driver.setCurrentLocation(Location.latitudeOf(stored), Location.longitudeOf(stored));
+        } else {
+            store.write(slot, driver.getPackedLocation());
+        }
+    }
+
+    // called under the driver's lock stripe
+    private void writeLocationRecord(final Driver driver) {
+        DriverLocationStore store = locationStore;
+        int slot = driver.getLocationSlot();
+        if (store != null && slot >= 0) {
+            store.write(slot, driver.getPackedLocation());
+        }
+    }
+
+    /** Keep the spatial index in sync with the driver, only drivers accepting rides with a location are indexed. */
+    private void reindex(final Driver driver) {
+        if (driver.isAcceptingRider() && driver.hasLocation()) {
+            driverIndex.upsert(driver);
+        } else {
+            driverIndex.remove(driver.getId());
+        }
+    }
+
+    private Driver getDriverOrThrow(final int driverId) {
         Driver driver = drivers.get(driverId);
-        driver.setCurrentLocation(currentLocation);
-        driver.setAcceptingRider(true);
+        if (driver == null) {
+            throw new DriverNotFoundException("Driver with driver Id = " + driverId + " not found.");
+        }
+        return driver;
+    }
+
+    private Object lockFor(final int driverId) {
+        return driverLocks[stripeOf(driverId)];
+    }
+
+    private static int stripeOf(final int driverId) {
+        return (driverId & 0x7FFFFFFF) % LOCK_STRIPES;
     }
 }
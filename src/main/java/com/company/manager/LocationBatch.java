@@ -0,0 +1,137 @@
+package com.company.manager;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of GPS fixes {@code (driverId, latitude, longitude, timestamp)} for
+ * {@link DriverManager#updateDriverLocations}. Fixes are stored in parallel primitive arrays, nothing is allocated
+ * once the batch is created. After ingestion every entry carries a status code instead of an exception.
+ */
+public final class LocationBatch {
+
+    /** The fix moved the driver. */
+    public static final byte APPLIED = 0;
+    /** A newer fix for the same driver in the batch won. */
+    public static final byte COALESCED = 1;
+    /** No driver is registered with the id. */
+    public static final byte UNKNOWN_DRIVER = 2;
+    /** The driver already has a fix at least as recent. */
+    public static final byte STALE = 3;
+
+    /** Size of one fix in a buffer, see {@link #addAll(ByteBuffer)}. */
+    public static final int TUPLE_BYTES = 3 * Integer.BYTES + Long.BYTES;
+
+    private static final int EMPTY = -1;
+
+    final int[] driverIds;
+    final int[] latitudes;
+    final int[] longitudes;
+    final long[] timestamps;
+    final byte[] statuses;
+    // entries grouped by lock stripe when the batch is applied
+    final int[] order;
+    int size;
+
+    // open addressing map of driver id to the entry of its newest fix, used to coalesce a batch
+    private final int[] tableKeys;
+    private final int[] tableEntries;
+
+    public LocationBatch(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Batch capacity should be positive");
+        }
+        driverIds = new int[capacity];
+        latitudes = new int[capacity];
+        longitudes = new int[capacity];
+        timestamps = new long[capacity];
+        statuses = new byte[capacity];
+        order = new int[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        tableKeys = new int[tableSize];
+        tableEntries = new int[tableSize];
+        Arrays.fill(tableEntries, EMPTY);
+    }
+
+    /** @return false if the batch is full. */
+    public boolean add(final int driverId, final int latitude, final int longitude, final long timestampMillis) {
+        if (size == driverIds.length) {
+            return false;
+        }
+        driverIds[size] = driverId;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        timestamps[size] = timestampMillis;
+        statuses[size] = APPLIED;
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds the fixes encoded in the buffer as {@code int driverId, int latitude, int longitude, long timestamp}
+     * until the buffer or the batch runs out.
+     *
+     * @return number of fixes added.
+     */
+    public int addAll(final ByteBuffer fixes) {
+        int added = 0;
+        while (fixes.remaining() >= TUPLE_BYTES && size < driverIds.length) {
+            add(fixes.getInt(), fixes.getInt(), fixes.getInt(), fixes.getLong());
+            added++;
+        }
+        return added;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Status of the entry after ingestion. */
+    public byte status(final int entry) {
+        if (entry < 0 || entry >= size) {
+            throw new IndexOutOfBoundsException("No entry " + entry + " in a batch of " + size);
+        }
+        return statuses[entry];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Keeps only the newest fix of every driver, the others are marked {@link #COALESCED}. On equal timestamps the
+     * fix added last wins.
+     */
+    void coalesce() {
+        int mask = tableKeys.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = mix(driverIds[entry]) & mask;
+            while (tableEntries[slot] != EMPTY && tableKeys[slot] != driverIds[entry]) {
+                slot = (slot + 1) & mask;
+            }
+            int previous = tableEntries[slot];
+            if (previous == EMPTY) {
+                tableKeys[slot] = driverIds[entry];
+                tableEntries[slot] = entry;
+            } else if (timestamps[entry] >= timestamps[previous]) {
+                statuses[previous] = COALESCED;
+                tableEntries[slot] = entry;
+            } else {
+                statuses[entry] = COALESCED;
+            }
+        }
+        // reset only the slots this batch used
+        for (int entry = 0; entry < size; entry++) {
+            int slot = mix(driverIds[entry]) & mask;
+            while (tableEntries[slot] != EMPTY) {
+                tableEntries[slot] = EMPTY;
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+
+    private static int mix(final int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
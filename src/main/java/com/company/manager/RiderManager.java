@@ -3,18 +3,64 @@ package com.company.manager;
 import com.company.exception.InvalidPasswordException;
 import com.company.exception.RiderAlreadyPresentException;
 import com.company.exception.RiderNotFoundException;
+import com.company.history.TripArchive;
+import com.company.history.TripHistory;
+import com.company.history.TripHistoryPage;
+import com.company.loyalty.RiderStats;
+import com.company.persistence.Journal;
 import com.company.model.Rider;
 import com.company.model.Trip;
-import java.util.ArrayList;
-import java.util.HashMap;
+import com.company.storage.IntMap;
+import com.company.storage.StorageMode;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.function.LongSupplier;
 
-/** Rider class is used to manage all riders present in the ride application. */
+/** Rider class is used to manage all riders present in the ride application, safe for concurrent use. */
 public class RiderManager {
 
   /** Mapping of rider id to rider. This is updated when a new rider registers */
-  private Map<Integer, Rider> riders = new HashMap<>();
+  private final IntMap<Rider> riders;
+
+  /** Mapping of rider id to the rider's running trip counters, created along with the rider. */
+  private final IntMap<RiderStats> riderStats;
+
+  // time source of the recent activity windows
+  private final LongSupplier clock;
+
+  // where trips leaving a rider's in-memory history go, null to drop them
+  private final TripArchive tripArchive;
+  private final int historyWindow;
+
+  // when set every new rider is journaled
+  private volatile Journal journal;
+
+  public RiderManager() {
+    this(System::currentTimeMillis);
+  }
+
+  public RiderManager(final LongSupplier clock) {
+    this(clock, null, TripHistory.DEFAULT_WINDOW);
+  }
+
+  /**
+   * @param tripArchive archive receiving trips older than the history window, null to drop them.
+   * @param historyWindow number of recent trips kept in memory per rider.
+   */
+  public RiderManager(final LongSupplier clock, final TripArchive tripArchive, final int historyWindow) {
+    this(clock, tripArchive, historyWindow, StorageMode.HASH_MAP);
+  }
+
+  /** @param storageMode how riders are held in memory. */
+  public RiderManager(final LongSupplier clock, final TripArchive tripArchive, final int historyWindow,
+      final StorageMode storageMode) {
+    this.riders = storageMode.newIntMap();
+    this.riderStats = storageMode.newIntMap();
+    this.clock = clock;
+    this.tripArchive = tripArchive;
+    this.historyWindow = historyWindow;
+  }
 
   /**
    * Method to add a new rider in the application.
@@ -22,13 +68,21 @@ public class RiderManager {
    * @param rider object
    * @throws RiderAlreadyPresentException exception
    */
-  public void createRider(final Rider rider) {
+  // registration is rare, serialized so the rider only becomes visible to bookings once its stats exist
+  public synchronized void createRider(final Rider rider) {
     if (riders.containsKey(rider.getId())) {
       throw new RiderAlreadyPresentException(
           "Rider with rider Id = " + rider.getId() + " already present, try with different Id.");
     }
-
+    rider.getTrips().configure(historyWindow, tripArchive, TripArchive.riderKey(rider.getId()));
+    riderStats.put(rider.getId(), new RiderStats(clock));
     riders.put(rider.getId(), rider);
+    Journal current = journal;
+    if (current != null) {
+      current.riderCreated(rider);
+      // only registrations wait behind this monitor, bookings never take it
+      current.awaitDurable();
+    }
   }
 
   /**
@@ -39,41 +93,99 @@ public class RiderManager {
    * @throws RiderNotFoundException exception
    */
   public Rider getRider(final int riderId) {
-    if (!riders.containsKey(riderId)) {
+    Rider rider = riders.get(riderId);
+    if (rider == null) {
       throw new RiderNotFoundException("Rider with rider Id = " + riderId + " not found.");
     }
 
-    return riders.get(riderId);
+    return rider;
+  }
+
+  /** All registered riders, a read-only view. */
+  public Collection<Rider> getAllRiders() {
+    return Collections.unmodifiableCollection(riders.values());
+  }
+
+  /** Where trips leaving a rider's in-memory history go, null if they are dropped. */
+  public TripArchive getTripArchive() {
+    return tripArchive;
+  }
+
+  /** Journal new riders, null stops journaling. */
+  public void setJournal(final Journal journal) {
+    this.journal = journal;
   }
 
     /**
      * Updates rider with the trips that he has completed / withdrawn / in-progress
+     *
+     * @return the trip pushed out of the in-memory history, null if there was room.
      */
-    public void updateTripForRider(final int riderId, Trip trip) {
-        if (!riders.containsKey(riderId)) {
+    public Trip updateTripForRider(final int riderId, Trip trip) {
+        Rider rider = riders.get(riderId);
+        if (rider == null) {
             throw new RiderNotFoundException("Rider with rider Id = " + riderId + " not found.");
         }
 
-        riders.get(riderId).getTrips().add(trip);
+        return rider.getTrips().add(trip);
     }
 
     /**
-     * Method to get all trips done by a particular rider.
+     * Method to get the recent trips of a particular rider, the ones still held in memory.
      *
      * @param rider Object.
-     * @return List of Trip.
+     * @return List of Trip, oldest first.
      */
     public List<Trip> tripHistory(Rider rider, String password) {
-        if (rider.getPassword().equals(password)) {
-            return rider.getTrips();
-        }
-        else {
-            throw new InvalidPasswordException("The password for the rider is incorrect!");
-        }
+        checkPassword(rider, password);
+        return rider.getTrips().recent();
+    }
+
+    /**
+     * Method to page through all trips done by a particular rider, archived ones included, newest first.
+     *
+     * @param rider Object.
+     * @param cursor {@link TripHistory#FIRST_PAGE} or the next cursor of the previous page.
+     * @param pageSize maximum number of trips returned.
+     * @return page of trips and the cursor of the next page.
+     */
+    public TripHistoryPage tripHistory(Rider rider, String password, long cursor, int pageSize) {
+        checkPassword(rider, password);
+        return rider.getTrips().page(cursor, pageSize);
     }
 
     /** trip history function called by internal APIs, without any password check */
     public List<Trip> tripHistoryInternal(Rider rider) {
-        return rider.getTrips();
+        return rider.getTrips().recent();
+    }
+
+    private void checkPassword(Rider rider, String password) {
+        if (!rider.getPassword().equals(password)) {
+            throw new InvalidPasswordException("The password for the rider is incorrect!");
+        }
+    }
+
+    /**
+     * Running trip counters of the rider, cheap to read on every fare calculation.
+     *
+     * @throws RiderNotFoundException exception
+     */
+    public RiderStats getRiderStats(final int riderId) {
+        RiderStats stats = riderStats.get(riderId);
+        if (stats == null) {
+            throw new RiderNotFoundException("Rider with rider Id = " + riderId + " not found.");
+        }
+
+        return stats;
+    }
+
+    /** Counts a trip the rider completed and paid the fare for. */
+    public void recordCompletedTrip(final int riderId, final double fare) {
+        getRiderStats(riderId).recordCompletedTrip(fare);
+    }
+
+    /** Counts a trip the rider withdrew before it started. */
+    public void recordWithdrawnTrip(final int riderId) {
+        getRiderStats(riderId).recordWithdrawnTrip();
     }
 }
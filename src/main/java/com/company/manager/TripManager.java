@@ -1,43 +1,118 @@
 package com.company.manager;
 
+import com.company.events.EventBus;
+import com.company.events.EventType;
 import com.company.exception.DriverNotFoundException;
 import com.company.exception.InvalidRideParamException;
 import com.company.exception.TripNotFoundException;
 import com.company.exception.TripStatusException;
+import com.company.history.TripArchive;
+import com.company.history.TripRecord;
+import com.company.index.AdaptiveRadius;
+import com.company.index.RadiusSearchResult;
+import com.company.index.TripIndex;
+import com.company.loyalty.PreferredRiderPolicy;
+import com.company.loyalty.TripCountPreferredRiderPolicy;
 import com.company.model.CarType;
 import com.company.model.Driver;
 import com.company.model.Location;
 import com.company.model.Rider;
 import com.company.model.Trip;
+import com.company.model.TripIds;
 import com.company.model.TripStatus;
+import com.company.persistence.Journal;
+import com.company.storage.IdMap;
+import com.company.storage.StorageMode;
 import com.company.strategy.DistanceFindingStrategy;
 import com.company.strategy.DriverMatchingStrategy;
+import com.company.strategy.MemoizingDistanceFindingStrategy;
+import com.company.strategy.NearbyDrivers;
 import com.company.strategy.PricingStrategy;
-import java.util.Collection;
-import java.util.HashMap;
+import com.company.surge.SurgeTracker;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleFunction;
+import lombok.AccessLevel;
 import lombok.Data;
-
-/** TripManager class is used to manage all riders and drivers. */
+import lombok.Getter;
+
+/**
+ * TripManager class is used to manage all riders and drivers.
+ *
+ * <p>Bookings can run from many threads at once. Drivers are reserved atomically through {@link DriverManager} and
+ * every status transition of a trip happens while holding that trip's monitor.
+ */
 @Data
 public class TripManager {
 
   private RiderManager riderManager;
   private DriverManager driverManager;
 
-  private static final Double MAX_TRIP_DISTANCE = 100.00;
-  private static final Double LOOK_WITHIN_RADIUS = 10.00;
+  private static final double MAX_TRIP_DISTANCE = 100.00;
+  private static final double LOOK_WITHIN_RADIUS = 10.00;
+  private static final int PREFERRED_RIDER_MIN_TRIPS = 10;
+
+    /**
+     * Mapping of trip id with it's associated trips, filled by trip key so no id string is built to store one. A
+     * finished trip is dropped once it has left both its rider's and its driver's history windows into an archive,
+     * and is read back from there.
+     */
+    private IdMap<Trip> trips;
+
+  // live trips by status, driver and rider plus recent trips by booking time, kept in step with every transition
+  private final TripIndex tripIndex;
+
+  // bookings made so far and the distance evaluations they needed, tells how many distances a booking costs
+  @Getter(AccessLevel.NONE) private final LongAdder bookings = new LongAdder();
+  @Getter(AccessLevel.NONE) private final LongAdder bookingDistanceEvaluations = new LongAdder();
+  @Getter(AccessLevel.NONE) private final LongAdder bookingRingExpansions = new LongAdder();
+
+  // when set booking searches grow from a radius learned per cell up to its ceiling, instead of LOOK_WITHIN_RADIUS
+  private volatile AdaptiveRadius adaptiveRadius;
+
+  // decides who gets the preferred fare from the rider's running stats
+  private volatile PreferredRiderPolicy preferredRiderPolicy = new TripCountPreferredRiderPolicy(PREFERRED_RIDER_MIN_TRIPS, 0);
 
-    /** Mapping of trip id with it's associated trips. */
-    private Map<String, Trip> trips = new HashMap<>();
+  // when set every trip change is journaled, bookings and status changes while still holding the trip's monitor. In
+  // SYNC mode the journal is waited on once the monitor is released
+  private volatile Journal journal;
+
+  // when set every trip transition is published to it, while still holding the trip's monitor
+  private volatile EventBus eventBus;
+
+  // when set every booking request is counted as demand in the cell of its origin
+  private volatile SurgeTracker surgeTracker;
 
   public TripManager(
       final RiderManager riderManager,
       final DriverManager driverManager) {
+    this(riderManager, driverManager, StorageMode.HASH_MAP);
+  }
+
+  /** @param storageMode how trips are held in memory, in compact mode trip ids are held as longs. */
+  public TripManager(
+      final RiderManager riderManager,
+      final DriverManager driverManager,
+      final StorageMode storageMode) {
+    this(riderManager, driverManager, storageMode, new TripIndex());
+  }
+
+  /** @param tripIndex index the trip queries are served from, sets how long finished trips stay queryable. */
+  public TripManager(
+      final RiderManager riderManager,
+      final DriverManager driverManager,
+      final StorageMode storageMode,
+      final TripIndex tripIndex) {
     this.riderManager = riderManager;
     this.driverManager = driverManager;
+    this.trips = storageMode.newIdMap(Trip::getKey, Trip::getId);
+    this.tripIndex = tripIndex;
   }
 
   /**
@@ -53,48 +128,136 @@ public class TripManager {
           DistanceFindingStrategy distanceFindingStrategy, DriverMatchingStrategy driverMatchingStrategy,
           CarType requestedCarType) {
 
-    // Throw exception if origin and destination are farther than max distance allowed
-    if (distanceFindingStrategy.distanceBetweenLocations(origin, destination) > MAX_TRIP_DISTANCE) {
-      throw new InvalidRideParamException(
-          "Origin and destination are more than max distance that are allowed");
+    recordDemand(origin);
+    return matchTrip(rider, origin, destination, pricingStrategy, distanceFindingStrategy, driverMatchingStrategy,
+        requestedCarType);
+  }
+
+  private String matchTrip(
+      final Rider rider, final Location origin, final Location destination, PricingStrategy pricingStrategy,
+          DistanceFindingStrategy distanceFindingStrategy, DriverMatchingStrategy driverMatchingStrategy,
+          CarType requestedCarType) {
+
+    // origin -> destination is needed by validation and pricing, compute it only once for this booking
+    MemoizingDistanceFindingStrategy bookingDistances = new MemoizingDistanceFindingStrategy(distanceFindingStrategy);
+    try {
+      return createTrip(rider, origin, destination, pricingStrategy, bookingDistances, driverMatchingStrategy,
+          requestedCarType);
+    } finally {
+      recordBookingDistances(bookingDistances);
     }
+  }
 
-    // find all the available drivers within the specified radius
-    List<Driver> driversWithinSpecifedRadius = driverManager.getDriversWithinRadius(origin,
-            LOOK_WITHIN_RADIUS, distanceFindingStrategy);
+  private String createTrip(
+      final Rider rider, final Location origin, final Location destination, PricingStrategy pricingStrategy,
+          MemoizingDistanceFindingStrategy distanceFindingStrategy, DriverMatchingStrategy driverMatchingStrategy,
+          CarType requestedCarType) {
 
-    Optional<Driver> matchedDriver =
-        driverMatchingStrategy.findDriver(rider, driversWithinSpecifedRadius, origin, destination, requestedCarType);
+    validateTripDistance(origin, destination, distanceFindingStrategy);
 
-    if (!matchedDriver.isPresent()) {
-      throw new DriverNotFoundException("Driver not found, Please try after some time");
-    }
+    // drivers within the specified radius, looked up in the index per car type as the matching strategy asks
+    IndexedNearbyDrivers nearbyDrivers = new IndexedNearbyDrivers(origin, distanceFindingStrategy);
 
-    // Create a trip for rider if all's good.
-    Driver driver = matchedDriver.get();
+    Double fare = null;
+    Trip trip = null;
+    // matching runs optimistically, the ranked drivers are reserved one by one until a reservation succeeds.
+    // Drivers that were lost to other bookings are dropped and the remaining ones ranked again.
+    while (trip == null) {
+      List<Driver> rankedDrivers =
+          driverMatchingStrategy.rankDrivers(rider, nearbyDrivers, origin, destination, requestedCarType);
 
-    if (driver.getCar().getCarType() != requestedCarType) {
-        System.out.println("Congrats! You have been upgraded at no extra cost!");
+      if (rankedDrivers.isEmpty()) {
+        throw new DriverNotFoundException("Driver not found, Please try after some time");
+      }
+
+      // fare calculation is on the basis of requested car type and not on basis of actual car type allotted
+      if (fare == null) {
+        fare = calculateFare(rider, origin, destination,  pricingStrategy, requestedCarType, distanceFindingStrategy);
+      }
+
+      for (Driver candidate : rankedDrivers) {
+        // we update the trip with allotted car type and not the requested car type
+        // trip is set to booked status
+        Trip candidateTrip = new Trip(rider, candidate, origin, destination, fare, candidate.getCar());
+
+        // having current trip for driver is required so that we know that he is currently on some other trip when
+        // finding drivers for a ride, reserving is a compare-and-set so a driver never ends up with two live trips
+        if (driverManager.reserveDriver(candidate.getId(), candidateTrip)) {
+          trip = candidateTrip;
+          break;
+        }
+      }
+
+      if (trip == null) {
+        nearbyDrivers.exclude(rankedDrivers);
+      }
     }
 
-    // fare calculation is on the basis of requested car type and not on basis of actual car type allotted
-    double fare = calculateFare(rider, origin, destination,  pricingStrategy, requestedCarType, distanceFindingStrategy);
+    registerTrip(trip, requestedCarType);
 
-    // we update the trip with allotted car type and not the requested car type
-    // trip is set to booked status
-    Trip trip = new Trip(rider, driver, origin, destination, fare, driver.getCar());
+    return trip.getId();
+  }
 
-    // make changes to Driver and Rider classes using manager classes
-    riderManager.updateTripForRider(rider.getId(), trip);
+  /**
+   * Method to create a trip for rider with a driver picked up front, used by dispatchers that do their own matching.
+   *
+   * @param rider Object.
+   * @param driver the driver to reserve for the trip.
+   * @param origin Location.
+   * @param destination Location.
+   * @return Trip Id, empty if the driver could not be reserved because he is no longer available.
+   */
+  public Optional<String> createTripWithDriver(
+      final Rider rider, final Driver driver, final Location origin, final Location destination,
+          PricingStrategy pricingStrategy, DistanceFindingStrategy distanceFindingStrategy, CarType requestedCarType) {
 
-    driverManager.updateTripForDriver(driver.getId(), trip);
+    recordDemand(origin);
+    return reserveTrip(rider, driver, origin, destination, pricingStrategy, distanceFindingStrategy,
+        requestedCarType);
+  }
 
-    // having current trip for driver is required so that we know that he is currently on some other trip when finding drivers for a ride
-    driver.setCurrentTrip(trip);
+  /**
+   * Method to create a trip for rider with a driver picked up front, matching another driver with the strategy if
+   * that one is no longer available. Counts as a single booking request towards surge demand.
+   *
+   * @return Trip Id.
+   */
+  public String createTripWithDriver(
+      final Rider rider, final Driver driver, final Location origin, final Location destination,
+          PricingStrategy pricingStrategy, DistanceFindingStrategy distanceFindingStrategy,
+          DriverMatchingStrategy fallbackMatchingStrategy, CarType requestedCarType) {
+
+    recordDemand(origin);
+    Optional<String> tripId = reserveTrip(rider, driver, origin, destination, pricingStrategy,
+        distanceFindingStrategy, requestedCarType);
+    if (tripId.isPresent()) {
+      return tripId.get();
+    }
+    return matchTrip(rider, origin, destination, pricingStrategy, distanceFindingStrategy, fallbackMatchingStrategy,
+        requestedCarType);
+  }
 
-    trips.put(trip.getId(), trip);
+  private Optional<String> reserveTrip(
+      final Rider rider, final Driver driver, final Location origin, final Location destination,
+          PricingStrategy pricingStrategy, DistanceFindingStrategy distanceFindingStrategy, CarType requestedCarType) {
 
-    return trip.getId();
+    MemoizingDistanceFindingStrategy bookingDistances = new MemoizingDistanceFindingStrategy(distanceFindingStrategy);
+    try {
+      validateTripDistance(origin, destination, bookingDistances);
+
+      double fare = calculateFare(rider, origin, destination,  pricingStrategy, requestedCarType, bookingDistances);
+      Trip trip = new Trip(rider, driver, origin, destination, fare, driver.getCar());
+
+      if (!driverManager.reserveDriver(driver.getId(), trip)) {
+        return Optional.empty();
+      }
+
+      registerTrip(trip, requestedCarType);
+
+      return Optional.of(trip.getId());
+    } finally {
+      recordBookingDistances(bookingDistances);
+    }
   }
 
   /**
@@ -112,11 +275,9 @@ public class TripManager {
       final String tripId, final Location origin, final Location destination, DistanceFindingStrategy distanceFindingStrategy,
           PricingStrategy pricingStrategy) {
 
-      // Throw exception if origin and destination are farther than max distance allowed
-      if (distanceFindingStrategy.distanceBetweenLocations(origin, destination) > MAX_TRIP_DISTANCE) {
-          throw new InvalidRideParamException(
-                  "Origin and destination are more than max distance that are allowed");
-      }
+      // the same distance is needed again for the new fare
+      MemoizingDistanceFindingStrategy updateDistances = new MemoizingDistanceFindingStrategy(distanceFindingStrategy);
+      validateTripDistance(origin, destination, updateDistances);
 
     Optional<Trip> optionalTrip = this.getTrip(tripId);
 
@@ -127,16 +288,24 @@ public class TripManager {
 
     Trip trip = optionalTrip.get();
 
-    // trip can only be updated if it is BOOKED or IN_PROGRESS
-    if (trip.getStatus().equals(TripStatus.COMPLETED)
-        || trip.getStatus().equals(TripStatus.WITHDRAWN)) {
-      throw new TripStatusException(
-          "Trip has already been completed or withdrawn try with valid Trip Id.");
-    }
+    double fare = calculateFare(trip.getRider(), origin, destination,  pricingStrategy, trip.getCar().getCarType(), updateDistances);
 
-    double fare = calculateFare(trip.getRider(), origin, destination,  pricingStrategy, trip.getCar().getCarType(), distanceFindingStrategy);
+    synchronized (trip) {
+      // trip can only be updated if it is BOOKED or IN_PROGRESS
+      if (trip.getStatus().equals(TripStatus.COMPLETED)
+          || trip.getStatus().equals(TripStatus.WITHDRAWN)) {
+        throw new TripStatusException(
+            "Trip has already been completed or withdrawn try with valid Trip Id.");
+      }
 
-    trip.updateTrip(origin, destination, fare);
+      trip.updateTrip(origin, destination, fare);
+      Journal current = journal;
+      if (current != null) {
+        current.tripUpdated(trip);
+      }
+      publish(EventType.TRIP_UPDATED, trip);
+    }
+    awaitJournal();
   }
 
   /**
@@ -155,13 +324,19 @@ public class TripManager {
 
     Trip trip = optionalTrip.get();
 
-    if (! trip.getStatus().equals(TripStatus.BOOKED)) {
-      throw new TripStatusException("Trip has already started or completed, can't withdraw now.");
-    }
+    synchronized (trip) {
+      if (! trip.getStatus().equals(TripStatus.BOOKED)) {
+        throw new TripStatusException("Trip has already started or completed, can't withdraw now.");
+      }
 
-    Driver driver = trip.getDriver();
-    driver.setCurrentTrip(null);
-    trip.withdrawTrip();
+      driverManager.releaseDriver(trip.getDriver().getId(), trip);
+      trip.withdrawTrip();
+      tripIndex.moved(trip, TripStatus.BOOKED);
+      riderManager.recordWithdrawnTrip(trip.getRider().getId());
+      journalStatus(trip);
+      publish(EventType.TRIP_WITHDRAWN, trip);
+    }
+    awaitJournal();
   }
 
   /** start the trip */
@@ -175,14 +350,20 @@ public class TripManager {
 
       Trip trip = optionalTrip.get();
 
-      if (! trip.getStatus().equals(TripStatus.BOOKED)) {
-          throw new TripStatusException("Trip has already started or completed or withdrawn, can't start now.");
+      synchronized (trip) {
+          if (! trip.getStatus().equals(TripStatus.BOOKED)) {
+              throw new TripStatusException("Trip has already started or completed or withdrawn, can't start now.");
+          }
+
+          // no need to set the current trip for driver here since it has already been set at the time of booking
+          // update the location of the cab => driver reached origin to pick up passenger
+          driverManager.moveDriver(trip.getDriver().getId(), trip.getOrigin());
+          trip.startTrip();
+          tripIndex.moved(trip, TripStatus.BOOKED);
+          journalStatus(trip);
+          publish(EventType.TRIP_STARTED, trip);
       }
-
-      // no need to set the current trip for driver here since it has already been set at the time of booking
-      // update the location of the cab => driver reached origin to pick up passenger
-      trip.getDriver().setCurrentLocation(trip.getOrigin());
-      trip.startTrip();
+      awaitJournal();
   }
 
     /** end the trip
@@ -198,19 +379,256 @@ public class TripManager {
 
         Trip trip = optionalTrip.get();
 
-        if (! trip.getStatus().equals(TripStatus.IN_PROGRESS)) {
-            throw new TripStatusException("Trip has already completed or withdrawn, can't end now.");
+        double fare;
+        synchronized (trip) {
+            if (! trip.getStatus().equals(TripStatus.IN_PROGRESS)) {
+                throw new TripStatusException("Trip has already completed or withdrawn, can't end now.");
+            }
+
+            Driver driver = trip.getDriver();
+            // update the location of the cab => driver reached destination to drop the passenger
+            driverManager.moveDriver(driver.getId(), trip.getDestination());
+            // update the current trip for driver here
+            driverManager.releaseDriver(driver.getId(), trip);
+            trip.endTrip();
+            tripIndex.moved(trip, TripStatus.IN_PROGRESS);
+            riderManager.recordCompletedTrip(trip.getRider().getId(), trip.getFare());
+            journalStatus(trip);
+            publish(EventType.TRIP_COMPLETED, trip);
+            fare = trip.getFare();
         }
+        awaitJournal();
+        return fare;
+    }
+
+  /**
+   * Puts back a trip read from persisted state, its rider and driver trip histories are left alone. The driver is
+   * reserved again if the trip is live and finished trips count towards the rider stats.
+   *
+   * @return false if the trip is known already.
+   */
+  public boolean restoreTrip(final Trip trip) {
+    if (trips.putValueIfAbsent(trip) != null) {
+      return false;
+    }
+    synchronized (trip) {
+      tripIndex.add(trip);
+    }
+    TripStatus status = trip.getStatus();
+    if (status == TripStatus.BOOKED || status == TripStatus.IN_PROGRESS) {
+      driverManager.setCurrentTrip(trip.getDriver().getId(), trip);
+    } else if (status == TripStatus.COMPLETED) {
+      riderManager.recordCompletedTrip(trip.getRider().getId(), trip.getFare());
+    } else {
+      riderManager.recordWithdrawnTrip(trip.getRider().getId());
+    }
+    return true;
+  }
 
-        Driver driver = trip.getDriver();
-        // update the current trip for driver here
-        driver.setCurrentTrip(null);
-        // update the location of the cab => driver reached destination to drop the passenger
-        driver.setCurrentLocation(trip.getDestination());
+  /**
+   * Moves a restored trip to a status read from persisted state. Statuses only move forward, a status the trip has
+   * already gone past is ignored.
+   */
+  public void restoreTripStatus(final String tripId, final TripStatus status) {
+    Trip trip = trips.get(tripId);
+    if (trip == null) {
+      return;
+    }
+
+    synchronized (trip) {
+      TripStatus from = trip.getStatus();
+      if (statusRank(status) <= statusRank(from)) {
+        return;
+      }
+      if (status == TripStatus.IN_PROGRESS) {
+        trip.startTrip();
+      } else if (status == TripStatus.COMPLETED) {
+        driverManager.releaseDriver(trip.getDriver().getId(), trip);
         trip.endTrip();
+        riderManager.recordCompletedTrip(trip.getRider().getId(), trip.getFare());
+      } else if (status == TripStatus.WITHDRAWN) {
+        driverManager.releaseDriver(trip.getDriver().getId(), trip);
+        trip.withdrawTrip();
+        riderManager.recordWithdrawnTrip(trip.getRider().getId());
+      }
+      tripIndex.moved(trip, from);
+    }
+  }
+
+  /**
+   * Trips in the given status, served from the trip index. Completed and withdrawn trips are only returned while
+   * their booking time is within the index retention.
+   */
+  public List<Trip> getTripsWithStatus(final TripStatus status) {
+    return tripIndex.withStatus(status);
+  }
+
+  /** The booked or in progress trip of the driver, empty if the driver is free. */
+  public Optional<Trip> getActiveTripForDriver(final int driverId) {
+    return Optional.ofNullable(tripIndex.liveTripOfDriver(driverId));
+  }
+
+  /** The booked and in progress trips of the rider. */
+  public List<Trip> getActiveTripsForRider(final int riderId) {
+    return tripIndex.liveTripsOfRider(riderId);
+  }
+
+  /** Trips booked at or after the given epoch milliseconds, as far back as the index retention goes. */
+  public List<Trip> getTripsBookedSince(final long sinceMillis) {
+    return tripIndex.bookedBetween(sinceMillis, Long.MAX_VALUE);
+  }
+
+  /** Average number of distance evaluations a booking needed, including bookings that failed. */
+  public double getAverageDistanceEvaluationsPerBooking() {
+    long count = bookings.sum();
+    return count == 0 ? 0 : (double) bookingDistanceEvaluations.sum() / count;
+  }
 
-        return trip.getFare();
+  /** Average number of times a booking had to widen its search radius, 0 without an adaptive radius. */
+  public double getAverageRingExpansionsPerBooking() {
+    long count = bookings.sum();
+    return count == 0 ? 0 : (double) bookingRingExpansions.sum() / count;
+  }
+
+  // every booking request counts as demand in the cell of its origin, whichever path matches it
+  private void recordDemand(final Location origin) {
+    SurgeTracker surge = surgeTracker;
+    if (surge != null) {
+      surge.recordDemand(origin);
     }
+  }
+
+  private void recordBookingDistances(final MemoizingDistanceFindingStrategy bookingDistances) {
+    bookings.increment();
+    bookingDistanceEvaluations.add(bookingDistances.getEvaluations());
+  }
+
+  /** Throw exception if origin and destination are farther than max distance allowed */
+  private void validateTripDistance(final Location origin, final Location destination,
+          DistanceFindingStrategy distanceFindingStrategy) {
+    if (distanceFindingStrategy.distance(origin, destination) > MAX_TRIP_DISTANCE) {
+      throw new InvalidRideParamException(
+          "Origin and destination are more than max distance that are allowed");
+    }
+  }
+
+  /**
+   * Records a trip whose driver has already been reserved against its rider, driver and the trip map.
+   *
+   * <p>The booking is journaled and published under the trip's monitor, which every transition takes, so no status
+   * change of the trip can be journaled or published ahead of it. The trip is put in the map just before, as the
+   * snapshot expects of every change it may miss. A booking the journal doesn't take is undone before the exception
+   * reaches the caller.
+   *
+   * <p>The booking pushes older trips out of the rider's and driver's history windows, those that are finished and
+   * archived are dropped from the map.
+   */
+  private void registerTrip(final Trip trip, final CarType requestedCarType) {
+    if (trip.getCar().getCarType() != requestedCarType) {
+        System.out.println("Congrats! You have been upgraded at no extra cost!");
+    }
+
+    Journal current = journal;
+    Trip spilledByRider;
+    Trip spilledByDriver;
+    synchronized (trip) {
+      trips.putValue(trip);
+      if (current != null) {
+        try {
+          current.tripBooked(trip);
+        } catch (RuntimeException e) {
+          trips.removeValue(trip);
+          driverManager.releaseDriver(trip.getDriver().getId(), trip);
+          throw e;
+        }
+      }
+      tripIndex.add(trip);
+
+      // make changes to Driver and Rider classes using manager classes
+      spilledByRider = riderManager.updateTripForRider(trip.getRider().getId(), trip);
+
+      spilledByDriver = driverManager.updateTripForDriver(trip.getDriver().getId(), trip);
+
+      // published before the monitor is released, like the transitions that can follow
+      publish(EventType.TRIP_BOOKED, trip);
+    }
+    // outside the monitor, the history monitors are taken to look for the spilled trips
+    evictIfArchived(spilledByRider);
+    evictIfArchived(spilledByDriver);
+
+    if (current != null) {
+      try {
+        current.awaitDurable();
+      } catch (RuntimeException e) {
+        cancelBooking(trip);
+        throw e;
+      }
+    }
+  }
+
+  // the log failed before the booking was on disk: the trip is withdrawn here unless it has moved on already, the
+  // log takes no more events so nothing is journaled
+  private void cancelBooking(final Trip trip) {
+    synchronized (trip) {
+      if (trip.getStatus() != TripStatus.BOOKED) {
+        return;
+      }
+      driverManager.releaseDriver(trip.getDriver().getId(), trip);
+      trip.withdrawTrip();
+      tripIndex.moved(trip, TripStatus.BOOKED);
+      publish(EventType.TRIP_WITHDRAWN, trip);
+    }
+  }
+
+  // drops a trip pushed out of a history window from the map once it is finished, held by neither window and
+  // archived finished. Snapshots copy the windows from the map, so a trip still in one stays. A trip that was
+  // archived before it finished has no finished record and stays as well
+  private void evictIfArchived(final Trip trip) {
+    if (trip == null || trip.getKey() == TripIds.NOT_COMPACT) {
+      return;
+    }
+    TripStatus status = trip.getStatus();
+    if ((status != TripStatus.COMPLETED && status != TripStatus.WITHDRAWN)
+        || trip.getRider().getTrips().contains(trip) || trip.getDriver().getTrips().contains(trip)
+        || findArchived(trip.getKey()) == null) {
+      return;
+    }
+    trips.removeValue(trip);
+  }
+
+  // newest finished record of the trip in the rider or driver archive, null if neither has one
+  private TripRecord findArchived(final long tripKey) {
+    TripArchive riderArchive = riderManager.getTripArchive();
+    TripRecord record = riderArchive == null ? null : riderArchive.findFinished(tripKey);
+    TripArchive driverArchive = driverManager.getTripArchive();
+    if (record == null && driverArchive != null && driverArchive != riderArchive) {
+      record = driverArchive.findFinished(tripKey);
+    }
+    return record;
+  }
+
+  // waits for the trip and driver changes this thread journaled in SYNC mode, called once the monitor is released
+  private void awaitJournal() {
+    Journal current = journal;
+    if (current != null) {
+      current.awaitDurable();
+    }
+    driverManager.awaitJournal();
+  }
+
+  private void journalStatus(final Trip trip) {
+    Journal current = journal;
+    if (current != null) {
+      current.tripStatus(trip);
+    }
+  }
+
+  private void publish(final EventType type, final Trip trip) {
+    EventBus bus = eventBus;
+    if (bus != null) {
+      bus.publishTrip(type, trip);
+    }
+  }
 
   /**
    * Helper method to get the respective driver for the given rider.
@@ -219,10 +637,17 @@ public class TripManager {
    * @return Driver.
    */
   public Optional<Driver> getDriverForTrip(final String tripId) {
-    Optional<Trip> trip =
-        Optional.ofNullable(trips.get(tripId));
+    return getTrip(tripId).map(Trip::getDriver);
+  }
 
-    return Optional.of(trip.get().getDriver());
+  /**
+   * Trip with the given id.
+   *
+   * @throws TripNotFoundException if there is no such trip.
+   */
+  public Trip getTripOrThrow(final String tripId) {
+    return getTrip(tripId).orElseThrow(() -> new TripNotFoundException(
+        "No Trip found for the given Id = " + tripId + ", please try with valid Trip Id."));
   }
 
   /**
@@ -232,7 +657,19 @@ public class TripManager {
    * @return Boolean.
    */
   private boolean isRiderPreferred(final Rider rider) {
-    return riderManager.tripHistoryInternal(rider).size() >= 10;
+    return preferredRiderPolicy.isPreferred(riderManager.getRiderStats(rider.getId()));
+  }
+
+  // booked, then started, then completed or withdrawn
+  private static int statusRank(final TripStatus status) {
+    switch (status) {
+      case BOOKED:
+        return 0;
+      case IN_PROGRESS:
+        return 1;
+      default:
+        return 2;
+    }
   }
 
   /**
@@ -242,7 +679,21 @@ public class TripManager {
    * @return Trip.
    */
   private Optional<Trip> getTrip(final String tripId) {
-      return Optional.ofNullable(trips.get(tripId));
+      Trip trip = trips.get(tripId);
+      return Optional.ofNullable(trip != null ? trip : archivedTrip(tripId));
+  }
+
+  // a finished trip dropped from the map, rebuilt from its archived record. Its status is final so the copy can't
+  // go out of step with anything
+  private Trip archivedTrip(final String tripId) {
+    long key = TripIds.parse(tripId);
+    TripRecord record = key == TripIds.NOT_COMPACT ? null : findArchived(key);
+    if (record == null) {
+      return null;
+    }
+    Driver driver = driverManager.getDriver(record.getDriverId());
+    return new Trip(record.getId(), riderManager.getRider(record.getRiderId()), driver, record.getOrigin(),
+        record.getDestination(), record.getFare(), driver.getCar(), record.getStatus());
   }
 
   /**
@@ -259,4 +710,75 @@ public class TripManager {
         ? pricingStrategy.calculateFareForPreferred(carTypeRequested, origin, destination, distanceFindingStrategy)
         : pricingStrategy.calculateFare(carTypeRequested, origin, destination, distanceFindingStrategy);
   }
+
+  /**
+   * Nearby drivers of one booking. Index lookups are made on first use and kept for the retries of the booking,
+   * minus the drivers lost to other bookings.
+   */
+  private final class IndexedNearbyDrivers implements NearbyDrivers {
+    private final Location origin;
+    private final DistanceFindingStrategy distanceFindingStrategy;
+    private final AdaptiveRadius radius = adaptiveRadius;
+    private final Map<CarType, List<Driver>> availableByType = new EnumMap<>(CarType.class);
+    private List<Driver> all;
+
+    IndexedNearbyDrivers(final Location origin, final DistanceFindingStrategy distanceFindingStrategy) {
+      this.origin = origin;
+      this.distanceFindingStrategy = distanceFindingStrategy;
+    }
+
+    @Override
+    public List<Driver> all() {
+      if (all == null) {
+        all = search(searchRadius -> driverManager.getDriversWithinRadius(origin, searchRadius,
+            distanceFindingStrategy));
+      }
+      return all;
+    }
+
+    @Override
+    public List<Driver> availableOfType(final CarType carType) {
+      return availableByType.computeIfAbsent(carType, type -> search(searchRadius ->
+          driverManager.getAvailableDriversWithinRadius(origin, searchRadius, type, distanceFindingStrategy)));
+    }
+
+    // not kept, drivers lost to other bookings are reserved by now and the next query leaves them out. The nearest
+    // query grows its own rings and stops early, so it only needs the ceiling, the cell still learns from it
+    @Override
+    public List<Driver> nearestAvailableOfType(final CarType carType, final int count) {
+      if (radius == null) {
+        return driverManager.getNearestAvailableDrivers(origin, count, LOOK_WITHIN_RADIUS, carType,
+            distanceFindingStrategy);
+      }
+      return radius.nearest(origin, count, wanted -> driverManager.getNearestAvailableDrivers(origin, wanted,
+          radius.getMaxRadius(), carType, distanceFindingStrategy), distanceFindingStrategy);
+    }
+
+    @Override
+    public DistanceFindingStrategy distanceFindingStrategy() {
+      return distanceFindingStrategy;
+    }
+
+    private List<Driver> search(final DoubleFunction<List<Driver>> query) {
+      if (radius == null) {
+        return new ArrayList<>(query.apply(LOOK_WITHIN_RADIUS));
+      }
+      RadiusSearchResult result = radius.search(origin, query, distanceFindingStrategy);
+      bookingRingExpansions.add(result.getExpansions());
+      return new ArrayList<>(result.getDrivers());
+    }
+
+    void exclude(final List<Driver> lostDrivers) {
+      Set<Integer> lostDriverIds = new HashSet<>();
+      for (Driver driver : lostDrivers) {
+        lostDriverIds.add(driver.getId());
+      }
+      if (all != null) {
+        all.removeIf(driver -> lostDriverIds.contains(driver.getId()));
+      }
+      for (List<Driver> drivers : availableByType.values()) {
+        drivers.removeIf(driver -> lostDriverIds.contains(driver.getId()));
+      }
+    }
+  }
 }
@@ -1,7 +1,8 @@
 package com.company.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.company.history.TripHistory;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
@@ -13,15 +14,29 @@ public class Driver {
 
   @Getter private int id;
 
-  @Getter @Setter private Trip currentTrip;
+  // trip the driver is reserved for, null when free. Claimed with a compare-and-set so a driver is never
+  // handed to two bookings at once
+  private final AtomicReference<Trip> currentTrip = new AtomicReference<>();
 
-  @Setter private boolean isAcceptingRider;
+  @Setter private volatile boolean isAcceptingRider;
 
-  @Getter @Setter private Location currentLocation;
+  // current location packed in one long (see Location#pack), so updates are a single primitive write and readers
+  // always see both coordinates of the same update
+  @Setter(AccessLevel.NONE) private volatile long packedLocation = Location.NO_LOCATION;
+
+  // record of the driver in the DriverLocationStore, -1 when locations are not persisted
+  @Setter(AccessLevel.NONE) private volatile int locationSlot = -1;
+
+  // slot of the driver in the DriverStateTable, -1 until registered
+  @Setter(AccessLevel.NONE) private volatile int stateSlot = -1;
+
+  // timestamp of the GPS fix the location came from when ingested in batches, older fixes are dropped. Only
+  // touched under the driver's lock stripe in DriverManager
+  @Setter(AccessLevel.NONE) private long locationTimestamp = Long.MIN_VALUE;
 
   @Getter @Setter private Car car;
 
-  private List<Trip> trips;
+  private TripHistory trips;
 
   private String password;
 
@@ -30,7 +45,7 @@ public class Driver {
     this.name = name;
     this.password = password;
     this.car = car;
-    this.trips = new ArrayList<>();
+    this.trips = new TripHistory();
   }
 
   /**
@@ -39,7 +54,94 @@ public class Driver {
    * @return
    */
   public boolean isAvailable() {
-    return this.isAcceptingRider && this.currentTrip == null;
+    return this.isAcceptingRider && this.currentTrip.get() == null;
+  }
+
+  /** Current location, null until the driver reports one. Allocates, hot paths read the packed location. */
+  public Location getCurrentLocation() {
+    long packed = packedLocation;
+    return packed == Location.NO_LOCATION
+        ? null : new Location(Location.latitudeOf(packed), Location.longitudeOf(packed));
+  }
+
+  public void setCurrentLocation(final Location location) {
+    this.packedLocation = location == null
+        ? Location.NO_LOCATION : Location.pack(location.getLatitude(), location.getLongitude());
+  }
+
+  /** Moves the driver without allocating. */
+  public void setCurrentLocation(final int latitude, final int longitude) {
+    this.packedLocation = Location.pack(latitude, longitude);
+  }
+
+  /**
+   * Records the slot the driver was given in the state table at registration, done once by the driver manager.
+   *
+   * @throws IllegalStateException if the driver already has a slot.
+   */
+  public void assignStateSlot(final int slot) {
+    if (stateSlot >= 0) {
+      throw new IllegalStateException("Driver " + id + " already has state slot " + stateSlot);
+    }
+    this.stateSlot = slot;
+  }
+
+  /** Records the driver's slot in the location store attached by the driver manager, under the driver's lock. */
+  public void bindLocationSlot(final int slot) {
+    this.locationSlot = slot;
+  }
+
+  /**
+   * Moves the GPS fix timestamp forward, called under the driver's lock by the driver manager.
+   *
+   * @return false, leaving the timestamp alone, if the fix is not newer than the one the driver is at.
+   */
+  public boolean advanceLocationTimestamp(final long timestamp) {
+    if (timestamp <= locationTimestamp) {
+      return false;
+    }
+    this.locationTimestamp = timestamp;
+    return true;
+  }
+
+  public boolean hasLocation() {
+    return packedLocation != Location.NO_LOCATION;
+  }
+
+  public Trip getCurrentTrip() {
+    return currentTrip.get();
+  }
+
+  public void setCurrentTrip(final Trip trip) {
+    currentTrip.set(trip);
+  }
+
+  /**
+   * Atomically moves the driver from available to reserved for the given trip.
+   *
+   * @return true if the driver is now reserved for the trip, false if the driver was already reserved or is not
+   *     accepting rides.
+   */
+  public boolean tryReserve(final Trip trip) {
+    if (!this.isAcceptingRider || !currentTrip.compareAndSet(null, trip)) {
+      return false;
+    }
+
+    // the driver may have gone offline between the check and the claim, give the reservation back then
+    if (!this.isAcceptingRider) {
+      currentTrip.compareAndSet(trip, null);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Frees the driver if still reserved for the given trip.
+   *
+   * @return true if the reservation was released.
+   */
+  public boolean release(final Trip trip) {
+    return currentTrip.compareAndSet(trip, null);
   }
 
 }
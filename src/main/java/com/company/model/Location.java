@@ -6,6 +6,26 @@ import lombok.Data;
 @Data
 @AllArgsConstructor
 public class Location {
+
+    /**
+     * Packed value of a missing location, see {@link #pack}. It stands for latitude {@code Integer.MIN_VALUE} and
+     * longitude 0, which is therefore not a usable location.
+     */
+    public static final long NO_LOCATION = Long.MIN_VALUE;
+
     private int latitude;
     private int longitude;
+
+    /** Both coordinates in one long, so a location can be stored and read atomically without an object. */
+    public static long pack(final int latitude, final int longitude) {
+        return ((long) latitude << 32) | (longitude & 0xFFFFFFFFL);
+    }
+
+    public static int latitudeOf(final long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int longitudeOf(final long packed) {
+        return (int) packed;
+    }
 }
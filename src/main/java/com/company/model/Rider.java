@@ -1,7 +1,6 @@
 package com.company.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.company.history.TripHistory;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
@@ -9,13 +8,13 @@ import lombok.Getter;
 public class Rider {
     int id;
     String name;
-    List<Trip> trips;
+    TripHistory trips;
     String password;
 
     public Rider(int id, String name, String password) {
         this.id = id;
         this.name = name;
         this.password = password;
-        this.trips = new ArrayList<>();
+        this.trips = new TripHistory();
     }
 }
@@ -1,23 +1,27 @@
 package com.company.model;
 
-import java.util.UUID;
 import lombok.Getter;
 import lombok.Setter;
 
 public class Trip {
 
-  @Getter private String id;
+  // compact id, see TripIds, the string form is only built when asked for
+  @Getter private final long key;
+
+  // id of a trip restored with an id that isn't in the compact form, null otherwise
+  private final String legacyId;
 
   @Getter private Rider rider;
 
   @Getter private Driver driver;
 
-  @Getter @Setter private Location origin;
-  @Getter @Setter private Location destination;
+  // changed by updateTrip under the trip's monitor, volatile so readers on other threads see the new values
+  @Getter @Setter private volatile Location origin;
+  @Getter @Setter private volatile Location destination;
 
-  @Getter private double fare;
+  @Getter private volatile double fare;
 
-  @Getter private TripStatus status;
+  @Getter private volatile TripStatus status;
 
   @Getter @Setter
   Car car;
@@ -29,7 +33,8 @@ public class Trip {
       final Location origin,
       final Location destination,
       final double fare, Car car) {
-    this.id = UUID.randomUUID().toString();
+    this.key = TripIds.next();
+    this.legacyId = null;
     this.rider = rider;
     this.driver = driver;
     this.origin = origin;
@@ -39,6 +44,30 @@ public class Trip {
     this.status = TripStatus.BOOKED;
   }
 
+  /** Trip restored from persisted state, keeping its id and status. */
+  public Trip(
+      final String id,
+      final Rider rider,
+      final Driver driver,
+      final Location origin,
+      final Location destination,
+      final double fare, Car car, TripStatus status) {
+    this.key = TripIds.parse(id);
+    this.legacyId = key == TripIds.NOT_COMPACT ? id : null;
+    this.rider = rider;
+    this.driver = driver;
+    this.origin = origin;
+    this.destination = destination;
+    this.fare = fare;
+    this.car = car;
+    this.status = status;
+  }
+
+  /** String form of the id, built on every call so no string is kept per trip. */
+  public String getId() {
+    return legacyId != null ? legacyId : TripIds.format(key);
+  }
+
   /** The trip can be updated with a new origin, destination and fare when IN_PROGRESS */
   public void updateTrip(
       final Location origin, final Location destination, final double fare) {
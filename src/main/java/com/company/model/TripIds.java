@@ -0,0 +1,92 @@
+package com.company.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact 64 bit trip ids: milliseconds since 2020 in the high 41 bits, then a 10 bit node and a 12 bit sequence
+ * within the millisecond. Ids from one node are unique and increasing, those of different nodes never collide.
+ *
+ * <p>Trips hold the long, the string form (base 36, at most 13 characters) is only built for APIs and files.
+ */
+public final class TripIds {
+
+    /** Returned by {@link #parse} for strings that aren't the string form of a compact id. */
+    public static final long NOT_COMPACT = -1;
+
+    public static final int NODE_BITS = 10;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+    /** System property setting the node id of this process, 0 by default. */
+    public static final String NODE_PROPERTY = "ride.node";
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long EPOCH = 1577836800000L;
+    private static final int RADIX = 36;
+    private static final long MAX_PARSE = Long.MAX_VALUE / RADIX;
+
+    private static final long NODE = node(Integer.getInteger(NODE_PROPERTY, 0));
+
+    // milliseconds since the epoch shifted left by the sequence bits, plus the sequence, of the last id issued. A
+    // full millisecond borrows from the next one and a clock going backwards keeps counting from the last id
+    private static final AtomicLong last = new AtomicLong();
+
+    private TripIds() {
+    }
+
+    /** Next id of this node, lock free. */
+    public static long next() {
+        while (true) {
+            long previous = last.get();
+            long next = Math.max(previous + 1, (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS);
+            if (last.compareAndSet(previous, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | NODE
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public static String format(final long id) {
+        return Long.toString(id, RADIX);
+    }
+
+    /**
+     * Id whose string form is given, {@link #NOT_COMPACT} if the string isn't exactly what {@link #format} would
+     * give for some id, such as a UUID.
+     */
+    public static long parse(final String id) {
+        int length = id.length();
+        if (length == 0 || (length > 1 && id.charAt(0) == '0')) {
+            return NOT_COMPACT;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'z') {
+                digit = c - 'a' + 10;
+            } else {
+                return NOT_COMPACT;
+            }
+            if (value > MAX_PARSE || value * RADIX > Long.MAX_VALUE - digit) {
+                return NOT_COMPACT;
+            }
+            value = value * RADIX + digit;
+        }
+        return value;
+    }
+
+    /** Time the id was issued at, in epoch milliseconds. */
+    public static long timestampOf(final long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    private static long node(final int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node id should be between 0 and " + MAX_NODE);
+        }
+        return (long) node << SEQUENCE_BITS;
+    }
+}
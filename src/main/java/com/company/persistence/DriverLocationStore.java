@@ -0,0 +1,144 @@
+package com.company.persistence;
+
+import com.company.model.Location;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Driver locations kept in a memory-mapped file of fixed-width records, one per driver, so they survive restarts
+ * without any write path of their own: an update is a single 8 byte store into the mapping and the operating
+ * system writes the pages back.
+ *
+ * <p>A record is {@code [long packed location][int driver id][int flags]}, 16 byte aligned so the location is
+ * always written and read atomically. Records are handed out in registration order and never move, callers keep
+ * the slot number and address the record directly. The file uses the native byte order of the machine.
+ */
+public class DriverLocationStore implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private static final int RECORD_SIZE = 16;
+    private static final int LOCATION_OFFSET = 0;
+    private static final int DRIVER_ID_OFFSET = 8;
+    private static final int FLAGS_OFFSET = 12;
+    private static final int IN_USE = 1;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class,
+            ByteOrder.nativeOrder());
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer records;
+    private final int capacity;
+
+    // mapping of driver id to its record, only used when a driver is registered
+    private final Map<Integer, Integer> slots = new ConcurrentHashMap<>();
+    private int usedSlots;
+
+    private DriverLocationStore(final Path path, final FileChannel channel, final MappedByteBuffer records,
+            final int capacity) {
+        this.path = path;
+        this.channel = channel;
+        this.records = records;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Opens or creates the store, the file is sized for capacity drivers up front.
+     *
+     * @throws IOException if the file can't be opened or mapped.
+     */
+    public static DriverLocationStore open(final Path path, final int capacity) throws IOException {
+        if (capacity <= 0 || capacity > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("Invalid driver location store capacity " + capacity);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) capacity * RECORD_SIZE);
+            DriverLocationStore store = new DriverLocationStore(path, channel, records, capacity);
+            store.loadSlots();
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Record of the driver, allocated on first use.
+     *
+     * @throws IllegalStateException if the store is full.
+     */
+    public synchronized int slotFor(final int driverId) {
+        Integer slot = slots.get(driverId);
+        if (slot != null) {
+            return slot;
+        }
+        if (usedSlots == capacity) {
+            throw new IllegalStateException("Driver location store " + path + " is full, " + capacity + " drivers");
+        }
+        int newSlot = usedSlots++;
+        int offset = newSlot * RECORD_SIZE;
+        LONGS.set(records, offset + LOCATION_OFFSET, Location.NO_LOCATION);
+        INTS.set(records, offset + DRIVER_ID_OFFSET, driverId);
+        INTS.setRelease(records, offset + FLAGS_OFFSET, IN_USE);
+        slots.put(driverId, newSlot);
+        return newSlot;
+    }
+
+    /** Packed location stored in the record, {@link Location#NO_LOCATION} if none. */
+    public long read(final int slot) {
+        return (long) LONGS.getAcquire(records, checkSlot(slot) * RECORD_SIZE + LOCATION_OFFSET);
+    }
+
+    /** Overwrites the location in place. */
+    public void write(final int slot, final long packedLocation) {
+        LONGS.setRelease(records, checkSlot(slot) * RECORD_SIZE + LOCATION_OFFSET, packedLocation);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /** Forces the mapped records to disk. */
+    public void force() {
+        records.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void loadSlots() {
+        // records are handed out in order, the first unused one ends the file content
+        while (usedSlots < capacity) {
+            int offset = usedSlots * RECORD_SIZE;
+            if (((int) INTS.get(records, offset + FLAGS_OFFSET) & IN_USE) == 0) {
+                break;
+            }
+            slots.put((int) INTS.get(records, offset + DRIVER_ID_OFFSET), usedSlots);
+            usedSlots++;
+        }
+    }
+
+    private int checkSlot(final int slot) {
+        if (slot < 0 || slot >= capacity) {
+            throw new IndexOutOfBoundsException("No driver location record " + slot);
+        }
+        return slot;
+    }
+}
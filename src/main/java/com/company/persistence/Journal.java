@@ -0,0 +1,344 @@
+package com.company.persistence;
+
+import com.company.exception.DriverAlreadyPresentException;
+import com.company.exception.RiderAlreadyPresentException;
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.model.Trip;
+import com.company.model.TripStatus;
+import com.company.persistence.WriteAheadLog.Durability;
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes the manager state survive restarts: every mutation is appended to a {@link WriteAheadLog} as a binary event
+ * and the whole state is snapshotted from time to time so older log segments can be deleted. Recovery loads the
+ * newest snapshot and replays the segments written after it.
+ *
+ * <p>Managers append their events while still holding the lock of the driver or trip they changed, so the log
+ * order of the events of one entity is the order the changes happened in. Events carry absolute values (the new
+ * location, the new status) rather than deltas, which makes replaying an event already reflected in the snapshot
+ * harmless. That is what lets a snapshot be taken while bookings carry on: the log is rolled to a new segment
+ * first, then the state is copied, and every change the copy may have missed is in the new segment.
+ *
+ * <p>Appending never waits for the disk, so no fsync is paid while an entity lock is held. In
+ * {@link Durability#SYNC} mode managers call {@link #awaitDurable()} once they have released their locks, which
+ * returns when the events the calling thread journaled are on disk.
+ */
+public class Journal implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(Journal.class.getName());
+
+    static final byte RIDER_CREATED = 1;
+    static final byte DRIVER_CREATED = 2;
+    static final byte DRIVER_LOCATION = 3;
+    static final byte DRIVER_AVAILABILITY = 4;
+    static final byte TRIP_BOOKED = 5;
+    static final byte TRIP_UPDATED = 6;
+    static final byte TRIP_STATUS = 7;
+
+    private static final int MAX_EVENT_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final Durability durability;
+    private final ThreadLocal<ByteBuffer> eventBuffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_EVENT_SIZE));
+    // sequence of the newest event the thread appended and hasn't waited for yet, 0 when none
+    private final ThreadLocal<long[]> pendingSequence = ThreadLocal.withInitial(() -> new long[1]);
+
+    private volatile WriteAheadLog log;
+    private ScheduledExecutorService snapshotter;
+
+    /**
+     * Journal kept in the given directory, created if needed. Nothing is written before {@link #recover}.
+     *
+     * @throws IOException if the directory can't be created.
+     */
+    public Journal(final Path directory, final Durability durability) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.durability = durability;
+    }
+
+    /**
+     * Rebuilds the state found in the directory into freshly created managers, then starts journaling their
+     * changes. The trip manager gives access to the rider and driver managers.
+     *
+     * @return number of log events replayed on top of the snapshot.
+     * @throws IOException if the snapshot or the log can't be read.
+     */
+    public synchronized long recover(final TripManager tripManager) throws IOException {
+        if (log != null) {
+            throw new IllegalStateException("Journal has already been recovered");
+        }
+
+        long firstSegment = 0;
+        List<Long> snapshots = Snapshot.list(directory);
+        if (!snapshots.isEmpty()) {
+            firstSegment = snapshots.get(snapshots.size() - 1);
+            Snapshot.load(Snapshot.path(directory, firstSegment), tripManager);
+        }
+
+        long events = 0;
+        long nextSegment = firstSegment;
+        List<Long> segments = WriteAheadLog.segments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            long segment = segments.get(i);
+            if (segment < firstSegment) {
+                continue;
+            }
+            // only the segment being written at the time of a crash can end with a torn record
+            boolean last = i == segments.size() - 1;
+            events += WriteAheadLog.replay(directory, segment, last, event -> apply(event, tripManager));
+            nextSegment = segment + 1;
+        }
+
+        log = new WriteAheadLog(directory, nextSegment, durability);
+        tripManager.setJournal(this);
+        tripManager.getRiderManager().setJournal(this);
+        tripManager.getDriverManager().setJournal(this);
+        return events;
+    }
+
+    /**
+     * Writes a snapshot of the managers and deletes the log segments and snapshots it replaces.
+     *
+     * @throws IOException if the snapshot can't be written.
+     */
+    public synchronized void snapshot(final TripManager tripManager) throws IOException {
+        long segment = requireLog().roll();
+        Snapshot.write(directory, segment, tripManager);
+        for (long older : Snapshot.list(directory)) {
+            if (older < segment) {
+                Files.deleteIfExists(Snapshot.path(directory, older));
+            }
+        }
+        for (long older : WriteAheadLog.segments(directory)) {
+            if (older < segment) {
+                WriteAheadLog.deleteSegment(directory, older);
+            }
+        }
+    }
+
+    /** Snapshots the managers periodically on a background thread. */
+    public synchronized void scheduleSnapshots(final TripManager tripManager, final long period, final TimeUnit unit) {
+        if (snapshotter != null) {
+            return;
+        }
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot(tripManager);
+            } catch (IOException | RuntimeException e) {
+                // the log keeps growing until the next snapshot succeeds, nothing is lost
+                LOGGER.log(Level.WARNING, "Could not snapshot to " + directory, e);
+            }
+        }, period, period, unit);
+    }
+
+    /** Waits until every event journaled so far is on disk. */
+    public void sync() {
+        requireLog().sync();
+    }
+
+    /**
+     * In {@link Durability#SYNC} mode waits until the events journaled by the calling thread are on disk, returns
+     * right away otherwise. Meant to be called after releasing the locks held while journaling.
+     */
+    public void awaitDurable() {
+        long[] pending = pendingSequence.get();
+        if (pending[0] == 0) {
+            return;
+        }
+        long sequence = pending[0];
+        pending[0] = 0;
+        requireLog().awaitDurable(sequence);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (snapshotter != null) {
+                snapshotter.shutdownNow();
+                snapshotter = null;
+            }
+        }
+        WriteAheadLog current = log;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    public void riderCreated(final Rider rider) {
+        ByteBuffer event = begin(RIDER_CREATED);
+        event.putInt(rider.getId());
+        putString(event, rider.getName());
+        putString(event, rider.getPassword());
+        append(event);
+    }
+
+    public void driverCreated(final Driver driver) {
+        ByteBuffer event = begin(DRIVER_CREATED);
+        event.putInt(driver.getId());
+        putString(event, driver.getName());
+        putString(event, driver.getPassword());
+        event.put((byte) driver.getCar().getCarType().ordinal());
+        putString(event, driver.getCar().getRegistrationNumber());
+        append(event);
+    }
+
+    public void driverLocation(final int driverId, final Location location) {
+        driverLocation(driverId, location.getLatitude(), location.getLongitude());
+    }
+
+    public void driverLocation(final int driverId, final int latitude, final int longitude) {
+        ByteBuffer event = begin(DRIVER_LOCATION);
+        event.putInt(driverId);
+        event.putInt(latitude);
+        event.putInt(longitude);
+        append(event);
+    }
+
+    public void driverAvailability(final int driverId, final boolean acceptingRider) {
+        ByteBuffer event = begin(DRIVER_AVAILABILITY);
+        event.putInt(driverId);
+        event.put((byte) (acceptingRider ? 1 : 0));
+        append(event);
+    }
+
+    public void tripBooked(final Trip trip) {
+        ByteBuffer event = begin(TRIP_BOOKED);
+        putString(event, trip.getId());
+        event.putInt(trip.getRider().getId());
+        event.putInt(trip.getDriver().getId());
+        putTripRoute(event, trip);
+        append(event);
+    }
+
+    public void tripUpdated(final Trip trip) {
+        ByteBuffer event = begin(TRIP_UPDATED);
+        putString(event, trip.getId());
+        putTripRoute(event, trip);
+        append(event);
+    }
+
+    public void tripStatus(final Trip trip) {
+        ByteBuffer event = begin(TRIP_STATUS);
+        putString(event, trip.getId());
+        event.put((byte) trip.getStatus().ordinal());
+        append(event);
+    }
+
+    private void apply(final ByteBuffer event, final TripManager tripManager) {
+        RiderManager riderManager = tripManager.getRiderManager();
+        DriverManager driverManager = tripManager.getDriverManager();
+        byte type = event.get();
+        switch (type) {
+            case RIDER_CREATED:
+                try {
+                    riderManager.createRider(new Rider(event.getInt(), getString(event), getString(event)));
+                } catch (RiderAlreadyPresentException alreadyInSnapshot) {
+                    // created while the snapshot was taken
+                }
+                break;
+            case DRIVER_CREATED:
+                try {
+                    driverManager.createDriver(new Driver(event.getInt(), getString(event), getString(event),
+                            new Car(CarType.values()[event.get()], getString(event))));
+                } catch (DriverAlreadyPresentException alreadyInSnapshot) {
+                    // created while the snapshot was taken
+                }
+                break;
+            case DRIVER_LOCATION:
+                driverManager.updateDriverLocation(event.getInt(), event.getInt(), event.getInt());
+                break;
+            case DRIVER_AVAILABILITY:
+                driverManager.updateDriverAvailability(event.getInt(), event.get() == 1);
+                break;
+            case TRIP_BOOKED:
+                String tripId = getString(event);
+                Rider rider = riderManager.getRider(event.getInt());
+                Driver driver = driverManager.getDriver(event.getInt());
+                Trip trip = new Trip(tripId, rider, driver, new Location(event.getInt(), event.getInt()),
+                        new Location(event.getInt(), event.getInt()), event.getDouble(), driver.getCar(),
+                        TripStatus.BOOKED);
+                if (tripManager.restoreTrip(trip)) {
+                    riderManager.updateTripForRider(rider.getId(), trip);
+                    driverManager.updateTripForDriver(driver.getId(), trip);
+                }
+                break;
+            case TRIP_UPDATED:
+                Trip updated = tripManager.getTrips().get(getString(event));
+                if (updated != null) {
+                    updated.updateTrip(new Location(event.getInt(), event.getInt()),
+                            new Location(event.getInt(), event.getInt()), event.getDouble());
+                }
+                break;
+            case TRIP_STATUS:
+                tripManager.restoreTripStatus(getString(event), TripStatus.values()[event.get()]);
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal event type " + type);
+        }
+    }
+
+    private ByteBuffer begin(final byte type) {
+        ByteBuffer event = eventBuffer.get();
+        event.clear();
+        event.put(type);
+        return event;
+    }
+
+    private void append(final ByteBuffer event) {
+        event.flip();
+        long sequence = requireLog().enqueue(event);
+        if (durability == Durability.SYNC) {
+            pendingSequence.get()[0] = sequence;
+        }
+    }
+
+    private WriteAheadLog requireLog() {
+        WriteAheadLog current = log;
+        if (current == null) {
+            throw new IllegalStateException("Journal has not been recovered yet");
+        }
+        return current;
+    }
+
+    private static void putTripRoute(final ByteBuffer event, final Trip trip) {
+        event.putInt(trip.getOrigin().getLatitude());
+        event.putInt(trip.getOrigin().getLongitude());
+        event.putInt(trip.getDestination().getLatitude());
+        event.putInt(trip.getDestination().getLongitude());
+        event.putDouble(trip.getFare());
+    }
+
+    private static void putString(final ByteBuffer event, final String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        event.putShort((short) bytes.length);
+        event.put(bytes);
+    }
+
+    private static String getString(final ByteBuffer event) {
+        byte[] bytes = new byte[event.getShort() & 0xFFFF];
+        event.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
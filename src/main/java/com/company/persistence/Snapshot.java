@@ -0,0 +1,220 @@
+package com.company.persistence;
+
+import com.company.history.TripHistory;
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.model.Trip;
+import com.company.model.TripStatus;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary dump of the manager state, named after the first log segment that is not included in it. The file
+ * ends with a CRC32 of its content and is only moved in place once complete.
+ */
+final class Snapshot {
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x52534e50;
+    private static final int VERSION = 1;
+
+    private Snapshot() {
+    }
+
+    static Path path(final Path directory, final long segment) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    }
+
+    /** Segments snapshots were taken at, in order. */
+    static List<Long> list(final Path directory) throws IOException {
+        List<Long> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> snapshots.add(Long.parseLong(
+                            name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        snapshots.sort(null);
+        return snapshots;
+    }
+
+    static void write(final Path directory, final long segment, final TripManager tripManager) throws IOException {
+        // trips are copied first: a rider or driver is always registered before any of its trips, so every trip
+        // copied has its rider and driver in the copies that follow
+        List<Trip> trips = new ArrayList<>(tripManager.getTrips().values());
+        List<Rider> riders = new ArrayList<>(tripManager.getRiderManager().getAllRiders());
+        List<Driver> drivers = new ArrayList<>(tripManager.getDriverManager().getAllDrivers());
+        Map<String, Trip> tripsById = new HashMap<>();
+        for (Trip trip : trips) {
+            tripsById.put(trip.getId(), trip);
+        }
+
+        Path temporary = directory.resolve(PREFIX + segment + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream file = Channels.newOutputStream(channel);
+            CheckedOutputStream checked = new CheckedOutputStream(file, new CRC32());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(riders.size());
+            for (Rider rider : riders) {
+                out.writeInt(rider.getId());
+                out.writeUTF(rider.getName());
+                out.writeUTF(rider.getPassword());
+            }
+
+            out.writeInt(drivers.size());
+            for (Driver driver : drivers) {
+                out.writeInt(driver.getId());
+                out.writeUTF(driver.getName());
+                out.writeUTF(driver.getPassword());
+                out.writeByte(driver.getCar().getCarType().ordinal());
+                out.writeUTF(driver.getCar().getRegistrationNumber());
+                out.writeBoolean(driver.isAcceptingRider());
+                Location location = driver.getCurrentLocation();
+                out.writeBoolean(location != null);
+                if (location != null) {
+                    out.writeInt(location.getLatitude());
+                    out.writeInt(location.getLongitude());
+                }
+            }
+
+            out.writeInt(trips.size());
+            for (Trip trip : trips) {
+                out.writeUTF(trip.getId());
+                out.writeInt(trip.getRider().getId());
+                out.writeInt(trip.getDriver().getId());
+                out.writeInt(trip.getOrigin().getLatitude());
+                out.writeInt(trip.getOrigin().getLongitude());
+                out.writeInt(trip.getDestination().getLatitude());
+                out.writeInt(trip.getDestination().getLongitude());
+                out.writeDouble(trip.getFare());
+                out.writeByte(trip.getStatus().ordinal());
+            }
+
+            for (Rider rider : riders) {
+                writeHistory(out, rider.getTrips().size(), rider.getTrips().recent(), tripsById);
+            }
+            for (Driver driver : drivers) {
+                writeHistory(out, driver.getTrips().size(), driver.getTrips().recent(), tripsById);
+            }
+
+            out.flush();
+            long checksum = checked.getChecksum().getValue();
+            DataOutputStream trailer = new DataOutputStream(file);
+            trailer.writeLong(checksum);
+            trailer.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path(directory, segment), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void load(final Path path, final TripManager tripManager) throws IOException {
+        RiderManager riderManager = tripManager.getRiderManager();
+        DriverManager driverManager = tripManager.getDriverManager();
+        try (InputStream file = Files.newInputStream(path)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 1 << 16),
+                    new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(path + " is not a snapshot this version can read");
+            }
+
+            List<Rider> riders = new ArrayList<>();
+            for (int count = in.readInt(); count > 0; count--) {
+                Rider rider = new Rider(in.readInt(), in.readUTF(), in.readUTF());
+                riderManager.createRider(rider);
+                riders.add(rider);
+            }
+
+            List<Driver> drivers = new ArrayList<>();
+            for (int count = in.readInt(); count > 0; count--) {
+                Driver driver = new Driver(in.readInt(), in.readUTF(), in.readUTF(),
+                        new Car(CarType.values()[in.readByte()], in.readUTF()));
+                boolean acceptingRider = in.readBoolean();
+                driverManager.createDriver(driver);
+                if (in.readBoolean()) {
+                    driverManager.updateDriverLocation(driver.getId(), new Location(in.readInt(), in.readInt()));
+                }
+                driverManager.updateDriverAvailability(driver.getId(), acceptingRider);
+                drivers.add(driver);
+            }
+
+            for (int count = in.readInt(); count > 0; count--) {
+                String tripId = in.readUTF();
+                Rider rider = riderManager.getRider(in.readInt());
+                Driver driver = driverManager.getDriver(in.readInt());
+                tripManager.restoreTrip(new Trip(tripId, rider, driver, new Location(in.readInt(), in.readInt()),
+                        new Location(in.readInt(), in.readInt()), in.readDouble(), driver.getCar(),
+                        TripStatus.values()[in.readByte()]));
+            }
+
+            for (Rider rider : riders) {
+                readHistory(in, tripManager, rider.getTrips());
+            }
+            for (Driver driver : drivers) {
+                readHistory(in, tripManager, driver.getTrips());
+            }
+
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException(path + " is corrupt, checksum mismatch");
+            }
+        }
+    }
+
+    // trips booked after the trip copy was taken are the newest ones of a history, they are left out here and
+    // added back when their booking is replayed from the log
+    private static void writeHistory(final DataOutputStream out, final long total, final List<Trip> recent,
+            final Map<String, Trip> tripsById) throws IOException {
+        List<Trip> included = new ArrayList<>(recent.size());
+        for (Trip trip : recent) {
+            if (tripsById.containsKey(trip.getId())) {
+                included.add(trip);
+            }
+        }
+        out.writeLong(total - (recent.size() - included.size()));
+        out.writeInt(included.size());
+        for (Trip trip : included) {
+            out.writeUTF(trip.getId());
+        }
+    }
+
+    private static void readHistory(final DataInputStream in, final TripManager tripManager,
+            final TripHistory history) throws IOException {
+        long total = in.readLong();
+        List<Trip> recent = new ArrayList<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            recent.add(tripManager.getTrips().get(in.readUTF()));
+        }
+        history.restore(total, recent);
+    }
+}
@@ -0,0 +1,390 @@
+package com.company.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Binary append-only log split in numbered segment files, written by a single background thread.
+ *
+ * <p>Appenders copy their framed record into a shared buffer and return, or wait for it to be on disk in
+ * {@link Durability#SYNC} mode. The writer thread swaps buffers, writes everything appended meanwhile and forces it
+ * to disk with one fsync, so the more threads append concurrently the more records share an fsync (group commit).
+ *
+ * <p>Every record is framed as {@code [int length][int crc32][payload]}, payloads are never empty. A record torn by
+ * a crash, or the zeros a crash can leave past the data on some file systems, fails its length or checksum and the
+ * last segment is cut back to the last complete record when it is replayed.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(WriteAheadLog.class.getName());
+
+    /** When an append returns. */
+    public enum Durability {
+        /**
+         * Once the record has been forced to disk. The appender waits for an fsync, so it should not hold locks
+         * other threads need meanwhile: append with {@link #enqueue} under the lock and {@link #awaitDurable} after.
+         */
+        SYNC,
+        /** Once the record has been buffered, it reaches the disk with the next batch. */
+        ASYNC
+    }
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int FRAME_HEADER = 2 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int READ_BUFFER_SIZE = 4 << 20;
+
+    private static final ThreadLocal<CRC32> CHECKSUMS = ThreadLocal.withInitial(CRC32::new);
+
+    private final Path directory;
+    private final Durability durability;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    // appenders fill one buffer while the writer thread drains the other, both guarded by the lock
+    private ByteBuffer filling = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer draining = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long appendedRecords;
+    private long durableRecords;
+    private long segment;
+    private boolean rollRequested;
+    private boolean closed;
+    private IOException failure;
+
+    // only touched by the writer thread
+    private FileChannel channel;
+    private final Thread writer;
+
+    /**
+     * Starts a log writing to a new segment file.
+     *
+     * @param firstSegment number of the segment to create, above every segment already in the directory.
+     * @throws IOException if the segment can't be created.
+     */
+    public WriteAheadLog(final Path directory, final long firstSegment, final Durability durability)
+            throws IOException {
+        this.directory = directory;
+        this.durability = durability;
+        this.segment = firstSegment;
+        this.channel = openSegment(directory, firstSegment);
+        this.writer = new Thread(this::writeLoop, "write-ahead-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Appends the remaining bytes of the record, in {@link Durability#SYNC} mode waits for it to be on disk.
+     *
+     * @throws UncheckedIOException if the log could not be written.
+     * @throws IllegalStateException if the log is closed.
+     */
+    public void append(final ByteBuffer record) {
+        long sequence = enqueue(record);
+        if (durability == Durability.SYNC) {
+            awaitDurable(sequence);
+        }
+    }
+
+    /**
+     * Appends the remaining bytes of the record without waiting for the disk, whatever the durability.
+     *
+     * @return sequence of the record, to pass to {@link #awaitDurable}.
+     * @throws UncheckedIOException if the log could not be written.
+     * @throws IllegalStateException if the log is closed.
+     */
+    public long enqueue(final ByteBuffer record) {
+        int length = record.remaining();
+        if (length == 0 || length + FRAME_HEADER > BUFFER_SIZE) {
+            throw new IllegalArgumentException("Record of " + length + " bytes can't be logged");
+        }
+        CRC32 checksum = CHECKSUMS.get();
+        checksum.reset();
+        checksum.update(record.duplicate());
+
+        lock.lock();
+        try {
+            // the writer is busy with the other buffer, wait for it to swap
+            while (filling.remaining() < length + FRAME_HEADER) {
+                checkOpen();
+                dataAvailable.signal();
+                flushed.awaitUninterruptibly();
+            }
+            checkOpen();
+            filling.putInt(length).putInt((int) checksum.getValue()).put(record);
+            long sequence = ++appendedRecords;
+            dataAvailable.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record with the given sequence, and every one before it, is on disk.
+     *
+     * @throws UncheckedIOException if the log failed before getting there.
+     */
+    public void awaitDurable(final long sequence) {
+        lock.lock();
+        try {
+            awaitDurableLocked(sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Waits until every record appended so far is on disk. */
+    public void sync() {
+        lock.lock();
+        try {
+            awaitDurableLocked(appendedRecords);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the current segment once what was appended so far is on disk and moves on to the next one.
+     *
+     * @return number of the new segment, every record appended before the call is in an older segment.
+     */
+    public long roll() {
+        lock.lock();
+        try {
+            long target = segment + 1;
+            rollRequested = true;
+            dataAvailable.signal();
+            while (segment < target) {
+                checkOpen();
+                flushed.awaitUninterruptibly();
+            }
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Flushes what was appended and stops the writer thread. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            dataAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** Segment numbers present in the directory, in order. */
+    public static List<Long> segments(final Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> segments.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    public static void deleteSegment(final Path directory, final long segment) throws IOException {
+        Files.deleteIfExists(segmentPath(directory, segment));
+    }
+
+    /**
+     * Hands every record of the segment to the consumer, in order. The buffer passed holds one record payload and
+     * is only valid during the call. A torn record ends the replay and, when truncate is set, is cut off the file.
+     *
+     * @return number of records replayed.
+     * @throws IOException if the segment can't be read.
+     */
+    public static long replay(final Path directory, final long segment, final boolean truncate,
+            final Consumer<ByteBuffer> consumer) throws IOException {
+        Path path = segmentPath(directory, segment);
+        long records = 0;
+        // only opened for writing when a torn tail may have to be cut off
+        try (FileChannel file = truncate
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            CRC32 checksum = new CRC32();
+            long fileSize = file.size();
+            // file position of the first byte in the buffer
+            long bufferStart = 0;
+            boolean eof = false;
+            buffer.flip();
+            while (true) {
+                if (buffer.remaining() >= FRAME_HEADER) {
+                    int start = buffer.position();
+                    int length = buffer.getInt(start);
+                    // no record is empty, a zero length is the zero-filled tail a crash can leave after the data
+                    if (length <= 0 || length + FRAME_HEADER > BUFFER_SIZE) {
+                        break;
+                    }
+                    if (buffer.remaining() >= FRAME_HEADER + length) {
+                        ByteBuffer payload = buffer.duplicate();
+                        payload.position(start + FRAME_HEADER).limit(start + FRAME_HEADER + length);
+                        checksum.reset();
+                        checksum.update(payload.duplicate());
+                        if ((int) checksum.getValue() != buffer.getInt(start + Integer.BYTES)) {
+                            break;
+                        }
+                        consumer.accept(payload);
+                        records++;
+                        buffer.position(start + FRAME_HEADER + length);
+                        continue;
+                    }
+                }
+                if (eof) {
+                    break;
+                }
+                // the next record is cut by the end of the buffer, slide it to the front and read more
+                bufferStart += buffer.position();
+                buffer.compact();
+                eof = file.read(buffer, bufferStart + buffer.position()) < 0;
+                buffer.flip();
+            }
+
+            long validEnd = bufferStart + buffer.position();
+            if (validEnd < fileSize) {
+                if (!truncate) {
+                    throw new IOException("Corrupt record at " + path + ":" + validEnd);
+                }
+                LOGGER.log(Level.WARNING, "Dropping torn records at the end of {0} from offset {1}", path, validEnd);
+                file.truncate(validEnd);
+            }
+        }
+        return records;
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                long batchEnd;
+                boolean roll;
+                lock.lock();
+                try {
+                    while (filling.position() == 0 && !rollRequested && !closed) {
+                        dataAvailable.awaitUninterruptibly();
+                    }
+                    if (filling.position() == 0 && !rollRequested && closed) {
+                        break;
+                    }
+                    ByteBuffer batch = filling;
+                    filling = draining;
+                    draining = batch;
+                    batchEnd = appendedRecords;
+                    roll = rollRequested;
+                    rollRequested = false;
+                    // appenders waiting for room can use the emptied buffer right away
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                draining.flip();
+                boolean written = draining.hasRemaining();
+                while (draining.hasRemaining()) {
+                    channel.write(draining);
+                }
+                draining.clear();
+                if (written) {
+                    channel.force(false);
+                }
+                long rolledTo = -1;
+                if (roll) {
+                    channel.close();
+                    lock.lock();
+                    try {
+                        rolledTo = segment + 1;
+                    } finally {
+                        lock.unlock();
+                    }
+                    channel = openSegment(directory, rolledTo);
+                }
+
+                lock.lock();
+                try {
+                    durableRecords = batchEnd;
+                    if (roll) {
+                        segment = rolledTo;
+                    }
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            channel.close();
+        } catch (Throwable e) {
+            // whatever stops the writer fails the log, or SYNC appenders would wait for it forever
+            lock.lock();
+            try {
+                failure = e instanceof IOException ? (IOException) e
+                        : new IOException("Write-ahead log writer failed", e);
+                closed = true;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            LOGGER.log(Level.ERROR, "Write-ahead log writer stopped, appends to " + directory + " now fail", e);
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // already failing, the first error is the one reported
+            }
+        }
+    }
+
+    private void awaitDurableLocked(final long sequence) {
+        while (durableRecords < sequence) {
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+            flushed.awaitUninterruptibly();
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+
+    private static FileChannel openSegment(final Path directory, final long segment) throws IOException {
+        return FileChannel.open(segmentPath(directory, segment), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+    }
+
+    private static Path segmentPath(final Path directory, final long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,148 @@
+package com.company.storage;
+
+import com.company.model.TripIds;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Concurrent map of values by string id which holds ids in the {@link TripIds} format as longs in a
+ * {@link CompactLongMap}: values are put by their long key, an id string is only parsed on lookup and rebuilt from
+ * the value when iterating entries. Ids in any other form, such as trips restored from older snapshots, go to a
+ * plain concurrent hash map.
+ */
+final class CompactIdMap<V> extends AbstractMap<String, V> implements IdMap<V> {
+
+    private final CompactLongMap<V> compact = new CompactLongMap<>();
+    private final Map<String, V> other = new ConcurrentHashMap<>();
+    private final ToLongFunction<V> keyOf;
+    private final Function<V, String> idOf;
+
+    CompactIdMap(final ToLongFunction<V> keyOf, final Function<V, String> idOf) {
+        this.keyOf = keyOf;
+        this.idOf = idOf;
+    }
+
+    @Override
+    public V get(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        long id = TripIds.parse((String) key);
+        return id != TripIds.NOT_COMPACT ? compact.get(id) : other.get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(final String key, final V value) {
+        long id = TripIds.parse(key);
+        return id != TripIds.NOT_COMPACT ? compact.put(id, value) : other.put(key, value);
+    }
+
+    @Override
+    public V putIfAbsent(final String key, final V value) {
+        long id = TripIds.parse(key);
+        return id != TripIds.NOT_COMPACT ? compact.putIfAbsent(id, value) : other.putIfAbsent(key, value);
+    }
+
+    @Override
+    public V putValue(final V value) {
+        long key = keyOf.applyAsLong(value);
+        return key != TripIds.NOT_COMPACT ? compact.put(key, value) : other.put(idOf.apply(value), value);
+    }
+
+    @Override
+    public V putValueIfAbsent(final V value) {
+        long key = keyOf.applyAsLong(value);
+        return key != TripIds.NOT_COMPACT ? compact.putIfAbsent(key, value)
+                : other.putIfAbsent(idOf.apply(value), value);
+    }
+
+    @Override
+    public V removeValue(final V value) {
+        long key = keyOf.applyAsLong(value);
+        return key != TripIds.NOT_COMPACT ? compact.remove(key) : other.remove(idOf.apply(value));
+    }
+
+    @Override
+    public V remove(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        long id = TripIds.parse((String) key);
+        return id != TripIds.NOT_COMPACT ? compact.remove(id) : other.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return compact.size() + other.size();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return concat(compact.values().iterator(), other.values().iterator());
+            }
+
+            @Override
+            public int size() {
+                return CompactIdMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                Iterator<V> values = compact.values().iterator();
+                Iterator<Entry<String, V>> compactEntries = new Iterator<Entry<String, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return values.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, V> next() {
+                        V value = values.next();
+                        return new SimpleImmutableEntry<>(idOf.apply(value), value);
+                    }
+                };
+                return concat(compactEntries, other.entrySet().iterator());
+            }
+
+            @Override
+            public int size() {
+                return CompactIdMap.this.size();
+            }
+        };
+    }
+
+    private static <T> Iterator<T> concat(final Iterator<T> first, final Iterator<T> second) {
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return first.hasNext() || second.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return first.hasNext() ? first.next() : second.next();
+            }
+        };
+    }
+}
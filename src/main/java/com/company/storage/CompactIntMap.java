@@ -0,0 +1,44 @@
+package com.company.storage;
+
+import java.util.Collection;
+
+/** {@link IntMap} over a {@link CompactLongMap}, no entry objects and no boxed keys. */
+final class CompactIntMap<V> implements IntMap<V> {
+
+    private final CompactLongMap<V> map = new CompactLongMap<>();
+
+    @Override
+    public V get(final int key) {
+        return map.get(key);
+    }
+
+    @Override
+    public V put(final int key, final V value) {
+        return map.put(key, value);
+    }
+
+    @Override
+    public V putIfAbsent(final int key, final V value) {
+        return map.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean containsKey(final int key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V remove(final int key) {
+        return map.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return map.values();
+    }
+}
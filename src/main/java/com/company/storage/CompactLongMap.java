@@ -0,0 +1,309 @@
+package com.company.storage;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent map keyed by primitive longs, stored in open addressing tables: a long and a reference per slot, no
+ * entry objects and no boxed keys.
+ *
+ * <p>Keys are spread over segments by hash, each one a linear probing table guarded by its own lock. Lookups read the
+ * table optimistically and only take the read lock when a write got in the way, so reads don't contend with each
+ * other. Null values are not supported, an empty slot is one holding no value.
+ */
+public final class CompactLongMap<V> {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int MIN_CAPACITY = 8;
+
+    private final Segment<V>[] segments;
+
+    public CompactLongMap() {
+        this(0);
+    }
+
+    /** @param expectedSize number of mappings to size the tables for up front. */
+    public CompactLongMap(final int expectedSize) {
+        int capacity = capacityFor(expectedSize / SEGMENTS + 1);
+        @SuppressWarnings("unchecked")
+        Segment<V>[] created = (Segment<V>[]) new Segment<?>[SEGMENTS];
+        segments = created;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(capacity);
+        }
+    }
+
+    public V get(final long key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(final long key) {
+        return get(key) != null;
+    }
+
+    /** @return the value previously held for the key, null if none. */
+    public V put(final long key, final V value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, requireValue(value), false);
+    }
+
+    /** Maps the key only if it isn't mapped yet, atomically. @return the value already held, null if none. */
+    public V putIfAbsent(final long key, final V value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, requireValue(value), true);
+    }
+
+    /** @return the value removed, null if none. */
+    public V remove(final long key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /** Weakly consistent view of the values, each segment is copied when the iteration reaches it. */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactLongMap.this.size();
+            }
+        };
+    }
+
+    private Segment<V> segmentFor(final int hash) {
+        // top bits pick the segment, the low ones the slot within it
+        return segments[hash >>> (Integer.SIZE - SEGMENT_BITS)];
+    }
+
+    static int hash(final long key) {
+        // murmur3 finalizer, sequential ids would otherwise cluster in the probing tables
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    static int capacityFor(final int size) {
+        // keep tables at most three quarters full
+        long needed = Math.max(MIN_CAPACITY, (long) size * 4 / 3 + 1);
+        return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    private static <V> V requireValue(final V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        return value;
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(final int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+
+        // slot holding the key or the empty slot ending its probe sequence, -1 if neither was met
+        int slotOf(final long key, final int hash) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                if (values[slot] == null || keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table;
+        // written under the write lock only
+        private volatile int size;
+
+        Segment(final int capacity) {
+            table = new Table(capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(final long key, final int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                // the table may change under us, whatever was read is only trusted if the stamp is still valid
+                Object value = find(table, key, hash);
+                if (lock.validate(stamp)) {
+                    return (V) value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return (V) find(table, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(final long key, final int hash, final V value, final boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int slot = current.slotOf(key, hash);
+                Object previous = current.values[slot];
+                if (previous != null) {
+                    if (!onlyIfAbsent) {
+                        current.values[slot] = value;
+                    }
+                    return (V) previous;
+                }
+                current.keys[slot] = key;
+                current.values[slot] = value;
+                size = size + 1;
+                if (size * 4L > current.keys.length * 3L) {
+                    table = resize(current);
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(final long key, final int hash) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int slot = current.slotOf(key, hash);
+                Object removed = current.values[slot];
+                if (removed == null) {
+                    return null;
+                }
+                shiftBack(current, slot);
+                size = size - 1;
+                return (V) removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        List<Object> snapshot() {
+            long stamp = lock.readLock();
+            try {
+                Object[] values = table.values;
+                List<Object> snapshot = new ArrayList<>(size);
+                for (Object value : values) {
+                    if (value != null) {
+                        snapshot.add(value);
+                    }
+                }
+                return snapshot;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static Object find(final Table table, final long key, final int hash) {
+            long[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = values[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private static Table resize(final Table current) {
+            Table resized = new Table(current.keys.length * 2);
+            for (int i = 0; i < current.keys.length; i++) {
+                Object value = current.values[i];
+                if (value != null) {
+                    int slot = resized.slotOf(current.keys[i], hash(current.keys[i]));
+                    resized.keys[slot] = current.keys[i];
+                    resized.values[slot] = value;
+                }
+            }
+            return resized;
+        }
+
+        // backward shift deletion: entries after the hole that would no longer be reachable move into it
+        private static void shiftBack(final Table table, final int removedSlot) {
+            long[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = keys.length - 1;
+            int hole = removedSlot;
+            int slot = hole;
+            while (true) {
+                slot = (slot + 1) & mask;
+                if (values[slot] == null) {
+                    break;
+                }
+                int home = hash(keys[slot]) & mask;
+                // distance from home to the slot, an entry may fill the hole if the hole is on its probe path
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    keys[hole] = keys[slot];
+                    values[hole] = values[slot];
+                    hole = slot;
+                }
+            }
+            keys[hole] = 0;
+            values[hole] = null;
+        }
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+        private int segment;
+        private Iterator<Object> current = Collections.emptyIterator();
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && segment < SEGMENTS) {
+                current = segments[segment++].snapshot().iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (V) current.next();
+        }
+    }
+}
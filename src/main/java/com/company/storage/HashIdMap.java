@@ -0,0 +1,31 @@
+package com.company.storage;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/** {@link IdMap} over a {@link ConcurrentHashMap}, the id string of every value is held as its key. */
+final class HashIdMap<V> extends ConcurrentHashMap<String, V> implements IdMap<V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Function<V, String> idOf;
+
+    HashIdMap(final Function<V, String> idOf) {
+        this.idOf = idOf;
+    }
+
+    @Override
+    public V putValue(final V value) {
+        return put(idOf.apply(value), value);
+    }
+
+    @Override
+    public V putValueIfAbsent(final V value) {
+        return putIfAbsent(idOf.apply(value), value);
+    }
+
+    @Override
+    public V removeValue(final V value) {
+        return remove(idOf.apply(value));
+    }
+}
@@ -0,0 +1,46 @@
+package com.company.storage;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** {@link IntMap} over a {@link ConcurrentHashMap}, one entry and one boxed key per mapping. */
+final class HashIntMap<V> implements IntMap<V> {
+
+    private final Map<Integer, V> map = new ConcurrentHashMap<>();
+
+    @Override
+    public V get(final int key) {
+        return map.get(key);
+    }
+
+    @Override
+    public V put(final int key, final V value) {
+        return map.put(key, value);
+    }
+
+    @Override
+    public V putIfAbsent(final int key, final V value) {
+        return map.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean containsKey(final int key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V remove(final int key) {
+        return map.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return map.values();
+    }
+}
@@ -0,0 +1,19 @@
+package com.company.storage;
+
+import java.util.Map;
+
+/**
+ * Concurrent map of values by string id which can also be updated from the values themselves, so callers holding a
+ * value don't need to build its id string. See {@link StorageMode} for the implementations.
+ */
+public interface IdMap<V> extends Map<String, V> {
+
+    /** Maps the value under its own id. @return the value previously held for that id, null if none. */
+    V putValue(V value);
+
+    /** Maps the value under its own id only if the id isn't mapped yet, atomically. @return the value already held. */
+    V putValueIfAbsent(V value);
+
+    /** Removes the mapping of the value's id. @return the value removed, null if none. */
+    V removeValue(V value);
+}
@@ -0,0 +1,26 @@
+package com.company.storage;
+
+import java.util.Collection;
+
+/** Concurrent map keyed by primitive ints, see {@link StorageMode} for the implementations. */
+public interface IntMap<V> {
+
+    /** @return the value for the key, null if none. */
+    V get(int key);
+
+    /** @return the value previously held for the key, null if none. */
+    V put(int key, V value);
+
+    /** Maps the key only if it isn't mapped yet, atomically. @return the value already held, null if none. */
+    V putIfAbsent(int key, V value);
+
+    boolean containsKey(int key);
+
+    /** @return the value removed, null if none. */
+    V remove(int key);
+
+    int size();
+
+    /** Weakly consistent view of the values, changes made while iterating may or may not be seen. */
+    Collection<V> values();
+}
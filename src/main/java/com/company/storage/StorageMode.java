@@ -0,0 +1,28 @@
+package com.company.storage;
+
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * How the managers hold drivers, riders and trips in memory.
+ *
+ * <p>{@link #HASH_MAP} keeps them in concurrent hash maps keyed by boxed ids, one entry object and one key object
+ * per entity. {@link #COMPACT} keeps them in open addressing tables of primitive keys, which saves the entry, the
+ * boxed key and for trips the id string, worth it once there are millions of them.
+ */
+public enum StorageMode {
+    HASH_MAP,
+    COMPACT;
+
+    public <V> IntMap<V> newIntMap() {
+        return this == COMPACT ? new CompactIntMap<>() : new HashIntMap<>();
+    }
+
+    /**
+     * Map of values by string id. In compact mode ids in the {@link com.company.model.TripIds} format are held as
+     * longs, so the map needs to be able to tell both the long key and the id string of a value.
+     */
+    public <V> IdMap<V> newIdMap(final ToLongFunction<V> keyOf, final Function<V, String> idOf) {
+        return this == COMPACT ? new CompactIdMap<>(keyOf, idOf) : new HashIdMap<>(idOf);
+    }
+}
@@ -0,0 +1,178 @@
+package com.company.strategy;
+
+import com.company.model.Location;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorator caching origin / destination distances of an expensive strategy in a segmented LRU.
+ *
+ * <p>Coordinates are quantized to cells of {@code cellSize} units and the distance is computed once between the
+ * centres of the two cells, so every pair of locations falling in the same cells shares the entry. A cell size of 1
+ * keeps distances exact. Each segment is an access ordered map behind its own lock so lookups from different
+ * booking threads rarely contend.
+ *
+ * <p>Only {@link #distance} is cached. Radius checks go through {@link #squaredDistance}, which is passed straight
+ * to the wrapped strategy since driver positions change all the time and would only churn the cache.
+ */
+public class CachingDistanceFindingStrategy implements DistanceFindingStrategy {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private final DistanceFindingStrategy delegate;
+    private final int cellSize;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingDistanceFindingStrategy(final DistanceFindingStrategy delegate, final int maxEntries,
+            final int cellSize) {
+        this(delegate, maxEntries, cellSize, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param maxEntries upper bound on cached pairs, split evenly across the segments.
+     * @param cellSize quantization step in coordinate units, 1 for exact distances.
+     * @param segmentCount number of independently locked LRU segments.
+     */
+    public CachingDistanceFindingStrategy(final DistanceFindingStrategy delegate, final int maxEntries,
+            final int cellSize, final int segmentCount) {
+        if (maxEntries <= 0 || cellSize <= 0 || segmentCount <= 0) {
+            throw new IllegalArgumentException("Cache size, cell size and segment count should be positive");
+        }
+        this.delegate = delegate;
+        this.cellSize = cellSize;
+        this.segments = new Segment[segmentCount];
+        int perSegment = Math.max(1, maxEntries / segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    @Override
+    public Double distanceBetweenLocations(Location location1, Location location2) {
+        return distance(location1, location2);
+    }
+
+    @Override
+    public double distance(int lat1, int long1, int lat2, int long2) {
+        PairKey key = new PairKey(Math.floorDiv(lat1, cellSize), Math.floorDiv(long1, cellSize),
+                Math.floorDiv(lat2, cellSize), Math.floorDiv(long2, cellSize));
+        Segment segment = segments[(key.hashCode() & 0x7FFFFFFF) % segments.length];
+
+        Double cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        double distance = delegate.distance(centre(key.lat1), centre(key.long1), centre(key.lat2),
+                centre(key.long2));
+        synchronized (segment) {
+            segment.put(key, distance);
+        }
+        return distance;
+    }
+
+    @Override
+    public double squaredDistance(int lat1, int long1, int lat2, int long2) {
+        return delegate.squaredDistance(lat1, long1, lat2, long2);
+    }
+
+    @Override
+    public double coordinateReach(Location origin, double distance) {
+        return delegate.coordinateReach(origin, distance);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private int centre(final int cell) {
+        long centre = (long) cell * cellSize + cellSize / 2;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, centre));
+    }
+
+    private final class Segment extends LinkedHashMap<PairKey, Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<PairKey, Double> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class PairKey {
+        private final int lat1;
+        private final int long1;
+        private final int lat2;
+        private final int long2;
+
+        PairKey(final int lat1, final int long1, final int lat2, final int long2) {
+            this.lat1 = lat1;
+            this.long1 = long1;
+            this.lat2 = lat2;
+            this.long2 = long2;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof PairKey)) {
+                return false;
+            }
+            PairKey key = (PairKey) other;
+            return lat1 == key.lat1 && long1 == key.long1 && lat2 == key.lat2 && long2 == key.long2;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = lat1;
+            hash = 31 * hash + long1;
+            hash = 31 * hash + lat2;
+            hash = 31 * hash + long2;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
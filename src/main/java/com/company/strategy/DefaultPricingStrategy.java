@@ -7,18 +7,18 @@ import com.company.model.Location;
 
 public class DefaultPricingStrategy implements PricingStrategy {
 
-    private static final Double MIN_PRICE = 50.0;
-    private static final Double PART_ONE_PRICE_PER_KM_HATCHBACK = 10.0;
-    private static final Double PART_TWO_PRICE_PER_KM_HATCHBACK = 8.0;
-    private static final Double PART_THREE_PRICE_PER_KM_HATCHBACK = 5.0;
-    private static final Double PART_ONE_PRICE_PER_KM_SEDAN = 15.0;
-    private static final Double PART_TWO_PRICE_PER_KM_SEDAN = 20.0;
-    private static final Double PART_THREE_PRICE_PER_KM_SEDAN = 30.0;
+    private static final double MIN_PRICE = 50.0;
+    private static final double PART_ONE_PRICE_PER_KM_HATCHBACK = 10.0;
+    private static final double PART_TWO_PRICE_PER_KM_HATCHBACK = 8.0;
+    private static final double PART_THREE_PRICE_PER_KM_HATCHBACK = 5.0;
+    private static final double PART_ONE_PRICE_PER_KM_SEDAN = 15.0;
+    private static final double PART_TWO_PRICE_PER_KM_SEDAN = 20.0;
+    private static final double PART_THREE_PRICE_PER_KM_SEDAN = 30.0;
 
   @Override
   public double calculateFare(CarType carType, final Location origin,
           final Location destination, DistanceFindingStrategy distanceFindingStrategy) {
-      Double distance = distanceFindingStrategy.distanceBetweenLocations(origin, destination);
+      double distance = distanceFindingStrategy.distance(origin, destination);
     // automatic upgrade is handled in this by itself, since request parameter takes in original car type requested
       double fare = 0D;
     switch (carType) {
@@ -57,7 +57,7 @@ public class DefaultPricingStrategy implements PricingStrategy {
   @Override
   public double calculateFareForPreferred(CarType carType, final Location origin,
           final Location destination, DistanceFindingStrategy distanceFindingStrategy) {
-      Double distance = distanceFindingStrategy.distanceBetweenLocations(origin, destination);
+      double distance = distanceFindingStrategy.distance(origin, destination);
       // automatic upgrade is handled in this by itself, since request parameter takes in original car type requested
       double fare = 0D;
       switch (carType) {
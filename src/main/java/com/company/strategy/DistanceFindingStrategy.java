@@ -9,4 +9,48 @@ public interface DistanceFindingStrategy {
      */
     Double distanceBetweenLocations(Location location1, Location location2);
 
+    /**
+     * Primitive variant of {@link #distanceBetweenLocations} on raw coordinates. Hot paths call this one, so
+     * implementations should override it to compute the distance without allocating.
+     */
+    default double distance(int latitude1, int longitude1, int latitude2, int longitude2) {
+        return distanceBetweenLocations(new Location(latitude1, longitude1), new Location(latitude2, longitude2));
+    }
+
+    /** Distance between the two locations without boxing the result. */
+    default double distance(Location location1, Location location2) {
+        return distance(location1.getLatitude(), location1.getLongitude(),
+                location2.getLatitude(), location2.getLongitude());
+    }
+
+    /**
+     * Square of the distance, lets radius checks skip the square root. Compare it against the squared radius,
+     * see {@link #isWithinRadius}.
+     */
+    default double squaredDistance(int latitude1, int longitude1, int latitude2, int longitude2) {
+        double distance = distance(latitude1, longitude1, latitude2, longitude2);
+        return distance * distance;
+    }
+
+    /**
+     * Largest latitude or longitude difference, in coordinate units, between the origin and any location at most
+     * distance away from it. Spatial indexes use it to bound the cells a radius query has to visit. The default
+     * suits strategies that measure distance in coordinate units and never report less than the per-axis
+     * difference, like the euclidean one.
+     */
+    default double coordinateReach(Location origin, double distance) {
+        return distance;
+    }
+
+    /** Whether the location is at most radius away from the origin, allocation free. */
+    default boolean isWithinRadius(Location location, Location origin, double radius) {
+        return isWithinRadius(location.getLatitude(), location.getLongitude(), origin, radius);
+    }
+
+    /** Whether the coordinates are at most radius away from the origin, allocation free. */
+    default boolean isWithinRadius(int latitude, int longitude, Location origin, double radius) {
+        return radius >= 0 && squaredDistance(latitude, longitude, origin.getLatitude(), origin.getLongitude())
+                <= radius * radius;
+    }
+
 }
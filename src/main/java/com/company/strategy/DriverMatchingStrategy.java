@@ -4,10 +4,42 @@ import com.company.model.CarType;
 import com.company.model.Driver;
 import com.company.model.Location;
 import com.company.model.Rider;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 public interface DriverMatchingStrategy {
 
   Optional<Driver> findDriver(Rider rider, List<Driver> nearByDrivers, Location origin, Location destination, CarType requestedCarType);
+
+  /**
+   * Orders the nearby drivers by preference, best match first. The booking path tries to reserve them in this
+   * order until one reservation succeeds, so the ranking can be computed optimistically without any lock.
+   * Strategies that only know how to pick a single driver get a one element ranking by default.
+   */
+  default List<Driver> rankDrivers(Rider rider, List<Driver> nearByDrivers, Location origin, Location destination,
+          CarType requestedCarType) {
+    return findDriver(rider, nearByDrivers, origin, destination, requestedCarType)
+        .map(Collections::singletonList)
+        .orElse(Collections.emptyList());
+  }
+
+  /**
+   * Orders the nearby drivers with the booking's distance strategy, for the strategies ranking by distance. Defaults
+   * to {@link #rankDrivers(Rider, List, Location, Location, CarType)}.
+   */
+  default List<Driver> rankDrivers(Rider rider, List<Driver> nearByDrivers, Location origin, Location destination,
+          CarType requestedCarType, DistanceFindingStrategy distanceFindingStrategy) {
+    return rankDrivers(rider, nearByDrivers, origin, destination, requestedCarType);
+  }
+
+  /**
+   * Ranks the drivers around the origin, asking the index for the car types the strategy cares about instead of
+   * filtering a list of every nearby driver. Defaults to ranking {@link NearbyDrivers#all()}.
+   */
+  default List<Driver> rankDrivers(Rider rider, NearbyDrivers nearbyDrivers, Location origin, Location destination,
+          CarType requestedCarType) {
+    return rankDrivers(rider, nearbyDrivers.all(), origin, destination, requestedCarType,
+        nearbyDrivers.distanceFindingStrategy());
+  }
 }
@@ -6,11 +6,19 @@ public class EuclideanDistanceFindingStrategy implements DistanceFindingStrategy
 
     @Override
     public Double distanceBetweenLocations(Location location1, Location location2) {
-        int lat1 = location1.getLatitude();
-        int long1 = location1.getLongitude();
-        int lat2 = location2.getLatitude();
-        int long2 = location2.getLongitude();
+        return distance(location1, location2);
+    }
 
-        return Math.sqrt(Math.pow((lat1-lat2), 2) + Math.pow((long1-long2), 2));
+    @Override
+    public double distance(int lat1, int long1, int lat2, int long2) {
+        return Math.sqrt(squaredDistance(lat1, long1, lat2, long2));
+    }
+
+    @Override
+    public double squaredDistance(int lat1, int long1, int lat2, int long2) {
+        // widen before subtracting so far apart coordinates can't overflow
+        double latDiff = (double) lat1 - lat2;
+        double longDiff = (double) long1 - long2;
+        return latDiff * latDiff + longDiff * longDiff;
     }
 }
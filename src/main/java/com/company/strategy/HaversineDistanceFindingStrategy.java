@@ -0,0 +1,60 @@
+package com.company.strategy;
+
+import com.company.model.Location;
+
+/**
+ * Great circle distance in kilometres. Location coordinates are read as fixed point degrees, by default in
+ * micro degrees (latitude 12.971599 is stored as 12971599).
+ */
+public class HaversineDistanceFindingStrategy implements DistanceFindingStrategy {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    public static final int MICRO_DEGREES = 1_000_000;
+
+    private final double radiansPerUnit;
+    private final double unitsPerDegree;
+
+    public HaversineDistanceFindingStrategy() {
+        this(MICRO_DEGREES);
+    }
+
+    /** @param unitsPerDegree how many coordinate units make one degree. */
+    public HaversineDistanceFindingStrategy(final int unitsPerDegree) {
+        if (unitsPerDegree <= 0) {
+            throw new IllegalArgumentException("Units per degree should be positive, got " + unitsPerDegree);
+        }
+        this.unitsPerDegree = unitsPerDegree;
+        this.radiansPerUnit = Math.toRadians(1.0 / unitsPerDegree);
+    }
+
+    @Override
+    public Double distanceBetweenLocations(Location location1, Location location2) {
+        return distance(location1, location2);
+    }
+
+    @Override
+    public double distance(int lat1, int long1, int lat2, int long2) {
+        double phi1 = lat1 * radiansPerUnit;
+        double phi2 = lat2 * radiansPerUnit;
+        double sinHalfLat = Math.sin(((double) lat2 - lat1) * radiansPerUnit / 2);
+        double sinHalfLong = Math.sin(((double) long2 - long1) * radiansPerUnit / 2);
+        double a = sinHalfLat * sinHalfLat + Math.cos(phi1) * Math.cos(phi2) * sinHalfLong * sinHalfLong;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    @Override
+    public double coordinateReach(Location origin, double distance) {
+        double latReachDegrees = Math.toDegrees(distance / EARTH_RADIUS_KM);
+        // a degree of longitude shrinks towards the poles, use the latitude closest to a pole the circle reaches
+        double extremeLatitude = Math.abs(origin.getLatitude() / unitsPerDegree) + latReachDegrees;
+        double longReachDegrees = extremeLatitude >= 90
+                ? 180
+                : Math.min(180, latReachDegrees / Math.cos(Math.toRadians(extremeLatitude)));
+        // past the antimeridian longitudes jump from 180 to -180, the reach then spans to the far end of the range
+        double originLongitude = Math.abs(origin.getLongitude() / unitsPerDegree);
+        if (originLongitude + longReachDegrees > 180) {
+            longReachDegrees = originLongitude + 180;
+        }
+        return Math.max(latReachDegrees, longReachDegrees) * unitsPerDegree;
+    }
+}
@@ -0,0 +1,76 @@
+package com.company.strategy;
+
+import com.company.model.Location;
+
+/**
+ * Request scoped decorator remembering the last few distances it computed, so the origin / destination distance of
+ * a booking is computed once and shared by validation, matching and pricing. It also counts how many evaluations
+ * reached the wrapped strategy.
+ *
+ * <p>Meant to be created per booking and used from a single thread, it is not thread safe.
+ */
+public class MemoizingDistanceFindingStrategy implements DistanceFindingStrategy {
+
+    private static final int SLOTS = 4;
+
+    private final DistanceFindingStrategy delegate;
+
+    // remembered pairs, filled round robin: coordinates are stored as lat1, long1, lat2, long2 per slot
+    private final int[] coordinates = new int[SLOTS * 4];
+    private final double[] distances = new double[SLOTS];
+    private int filledSlots;
+    private int nextSlot;
+
+    private int evaluations;
+
+    public MemoizingDistanceFindingStrategy(final DistanceFindingStrategy delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Double distanceBetweenLocations(Location location1, Location location2) {
+        return distance(location1, location2);
+    }
+
+    @Override
+    public double distance(int lat1, int long1, int lat2, int long2) {
+        for (int slot = 0; slot < filledSlots; slot++) {
+            int base = slot * 4;
+            if (coordinates[base] == lat1 && coordinates[base + 1] == long1
+                    && coordinates[base + 2] == lat2 && coordinates[base + 3] == long2) {
+                return distances[slot];
+            }
+        }
+
+        evaluations++;
+        double distance = delegate.distance(lat1, long1, lat2, long2);
+
+        int base = nextSlot * 4;
+        coordinates[base] = lat1;
+        coordinates[base + 1] = long1;
+        coordinates[base + 2] = lat2;
+        coordinates[base + 3] = long2;
+        distances[nextSlot] = distance;
+        nextSlot = (nextSlot + 1) % SLOTS;
+        filledSlots = Math.max(filledSlots, nextSlot == 0 ? SLOTS : nextSlot);
+        return distance;
+    }
+
+    // radius checks compare drivers against the origin, every pair is different so they are only counted. Nothing
+    // else is touched here, so a parallel driver scan may call it from its workers, at worst losing some counts
+    @Override
+    public double squaredDistance(int lat1, int long1, int lat2, int long2) {
+        evaluations++;
+        return delegate.squaredDistance(lat1, long1, lat2, long2);
+    }
+
+    @Override
+    public double coordinateReach(Location origin, double distance) {
+        return delegate.coordinateReach(origin, distance);
+    }
+
+    /** Number of distances computed by the wrapped strategy through this instance. */
+    public int getEvaluations() {
+        return evaluations;
+    }
+}
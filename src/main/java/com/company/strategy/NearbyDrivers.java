@@ -0,0 +1,24 @@
+package com.company.strategy;
+
+import com.company.model.CarType;
+import com.company.model.Driver;
+import java.util.List;
+
+/**
+ * Drivers around a booking origin, looked up in the driver index on demand so a matching strategy only pays for the
+ * car types it asks for.
+ */
+public interface NearbyDrivers {
+
+  /** Every driver within the search radius, whatever the car type. */
+  List<Driver> all();
+
+  /** Drivers of the car type available for a trip within the search radius, nearest first. */
+  List<Driver> availableOfType(CarType carType);
+
+  /** At most count drivers of the car type available for a trip within the search radius, nearest first. */
+  List<Driver> nearestAvailableOfType(CarType carType, int count);
+
+  /** How the booking measures distances, the lookups are made with it. */
+  DistanceFindingStrategy distanceFindingStrategy();
+}
@@ -0,0 +1,95 @@
+package com.company.strategy;
+
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Matches the rider with the closest available drivers, which keeps pickups short. Drivers of the requested car
+ * type come first, nearest first, then sedans when a hatchback can be upgraded. Only the few nearest drivers are
+ * asked to the index, booking retries ask again.
+ *
+ * <p>Distances are those of the booking's distance strategy. A plain list handed over without one is ranked by
+ * straight line distance.
+ */
+public class NearestDriverStrategy implements DriverMatchingStrategy {
+
+    public static final int DEFAULT_CANDIDATES = 5;
+
+    private static final DistanceFindingStrategy STRAIGHT_LINE = new EuclideanDistanceFindingStrategy();
+
+    private final int candidates;
+
+    public NearestDriverStrategy() {
+        this(DEFAULT_CANDIDATES);
+    }
+
+    /** @param candidates number of nearest drivers ranked per car type. */
+    public NearestDriverStrategy(final int candidates) {
+        if (candidates <= 0) {
+            throw new IllegalArgumentException("Number of candidates should be positive");
+        }
+        this.candidates = candidates;
+    }
+
+    @Override
+    public Optional<Driver> findDriver(Rider rider, List<Driver> nearByDrivers, Location origin, Location destination,
+            CarType requestedCarType) {
+        List<Driver> rankedDrivers = rankDrivers(rider, nearByDrivers, origin, destination, requestedCarType);
+        return rankedDrivers.isEmpty() ? Optional.empty() : Optional.of(rankedDrivers.get(0));
+    }
+
+    @Override
+    public List<Driver> rankDrivers(Rider rider, List<Driver> nearByDrivers, Location origin, Location destination,
+            CarType requestedCarType) {
+        return rankDrivers(rider, nearByDrivers, origin, destination, requestedCarType, STRAIGHT_LINE);
+    }
+
+    @Override
+    public List<Driver> rankDrivers(Rider rider, List<Driver> nearByDrivers, Location origin, Location destination,
+            CarType requestedCarType, DistanceFindingStrategy distanceFindingStrategy) {
+        List<Driver> rankedDrivers = nearestOfType(nearByDrivers, origin, requestedCarType, distanceFindingStrategy);
+        if (requestedCarType == CarType.HATCHBACK) {
+            rankedDrivers.addAll(nearestOfType(nearByDrivers, origin, CarType.SEDAN, distanceFindingStrategy));
+        }
+        return rankedDrivers;
+    }
+
+    @Override
+    public List<Driver> rankDrivers(Rider rider, NearbyDrivers nearbyDrivers, Location origin, Location destination,
+            CarType requestedCarType) {
+        List<Driver> rankedDrivers = new ArrayList<>(nearbyDrivers.nearestAvailableOfType(requestedCarType, candidates));
+        if (requestedCarType == CarType.HATCHBACK) {
+            rankedDrivers.addAll(nearbyDrivers.nearestAvailableOfType(CarType.SEDAN, candidates));
+        }
+        return rankedDrivers;
+    }
+
+    private List<Driver> nearestOfType(final List<Driver> drivers, final Location origin, final CarType carType,
+            final DistanceFindingStrategy distanceFindingStrategy) {
+        List<Driver> matching = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        for (Driver driver : drivers) {
+            Location location = driver.getCurrentLocation();
+            if (driver.getCar().getCarType() == carType && driver.isAvailable() && location != null) {
+                matching.add(driver);
+                distances.add(distanceFindingStrategy.distance(location, origin));
+            }
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < matching.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(distances::get));
+        List<Driver> nearest = new ArrayList<>();
+        for (int i = 0; i < Math.min(candidates, order.size()); i++) {
+            nearest.add(matching.get(order.get(i)));
+        }
+        return nearest;
+    }
+}
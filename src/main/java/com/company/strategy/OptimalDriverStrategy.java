@@ -4,6 +4,7 @@ import com.company.model.CarType;
 import com.company.model.Driver;
 import com.company.model.Location;
 import com.company.model.Rider;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,9 +13,17 @@ public class OptimalDriverStrategy implements DriverMatchingStrategy {
     @Override
     public Optional<Driver> findDriver(Rider rider, List<Driver> nearByDrivers, Location origin, Location destination,
             CarType requestedCarType) {
+        List<Driver> rankedDrivers = rankDrivers(rider, nearByDrivers, origin, destination, requestedCarType);
+        return rankedDrivers.isEmpty() ? Optional.empty() : Optional.of(rankedDrivers.get(0));
+    }
+
+    @Override
+    public List<Driver> rankDrivers(Rider rider, List<Driver> nearByDrivers, Location origin, Location destination,
+            CarType requestedCarType) {
+        List<Driver> rankedDrivers = new ArrayList<>();
         for (Driver driver : nearByDrivers) {
             if (driver.getCar().getCarType() == requestedCarType && driver.isAvailable()) {
-                return Optional.of(driver);
+                rankedDrivers.add(driver);
             }
         }
 
@@ -22,11 +31,24 @@ public class OptimalDriverStrategy implements DriverMatchingStrategy {
         if (requestedCarType == CarType.HATCHBACK) {
             for (Driver driver : nearByDrivers) {
                 // if a car of type SEDAN is available, we upgrade the rider
-                if (driver.getCar().getCarType() == CarType.SEDAN) {
-                    return Optional.of(driver);
+                if (driver.getCar().getCarType() == CarType.SEDAN && driver.isAvailable()) {
+                    rankedDrivers.add(driver);
                 }
             }
         }
-        return Optional.empty();
+        return rankedDrivers;
+    }
+
+    /** Nearest drivers of the requested car type first, then nearest sedans when a hatchback can be upgraded. */
+    @Override
+    public List<Driver> rankDrivers(Rider rider, NearbyDrivers nearbyDrivers, Location origin, Location destination,
+            CarType requestedCarType) {
+        List<Driver> rankedDrivers = new ArrayList<>(nearbyDrivers.availableOfType(requestedCarType));
+
+        // the upgrade is a second indexed query, only run when a hatchback was requested
+        if (requestedCarType == CarType.HATCHBACK) {
+            rankedDrivers.addAll(nearbyDrivers.availableOfType(CarType.SEDAN));
+        }
+        return rankedDrivers;
     }
 }
@@ -0,0 +1,124 @@
+package com.company.strategy;
+
+import com.company.model.CarType;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Immutable, compiled form of the tiered pricing configuration. Every car type is flattened into primitive arrays
+ * indexed by the car type ordinal, with the fare at the start of each tier precomputed, so a lookup is a binary
+ * search over the breakpoints followed by one multiply-add.
+ */
+public final class PricingTable {
+
+    private final double[][] breakpoints;
+    private final double[][] tierStartFares;
+    private final double[][] rates;
+    private final double[] minimumFares;
+    private final double[] preferredMultipliers;
+
+    private PricingTable(final double[][] breakpoints, final double[][] tierStartFares, final double[][] rates,
+            final double[] minimumFares, final double[] preferredMultipliers) {
+        this.breakpoints = breakpoints;
+        this.tierStartFares = tierStartFares;
+        this.rates = rates;
+        this.minimumFares = minimumFares;
+        this.preferredMultipliers = preferredMultipliers;
+    }
+
+    /**
+     * Compiles the tables of every car type from properties of the form {@code <CAR_TYPE>.breakpoints},
+     * {@code .rates}, {@code .minimumFare} and {@code .preferredMultiplier}.
+     *
+     * @throws IllegalArgumentException if a car type is missing or its table is inconsistent.
+     */
+    public static PricingTable compile(final Properties properties) {
+        CarType[] carTypes = CarType.values();
+        double[][] breakpoints = new double[carTypes.length][];
+        double[][] tierStartFares = new double[carTypes.length][];
+        double[][] rates = new double[carTypes.length][];
+        double[] minimumFares = new double[carTypes.length];
+        double[] preferredMultipliers = new double[carTypes.length];
+
+        for (CarType carType : carTypes) {
+            int index = carType.ordinal();
+            double[] tierBreakpoints = numbers(properties, carType + ".breakpoints");
+            double[] tierRates = numbers(properties, carType + ".rates");
+            if (tierBreakpoints.length == 0 || tierBreakpoints.length != tierRates.length) {
+                throw new IllegalArgumentException(carType + ": breakpoints and rates should be non empty and match");
+            }
+            if (tierBreakpoints[0] != 0) {
+                throw new IllegalArgumentException(carType + ": first breakpoint should be 0");
+            }
+
+            double[] startFares = new double[tierBreakpoints.length];
+            for (int tier = 1; tier < tierBreakpoints.length; tier++) {
+                if (tierBreakpoints[tier] <= tierBreakpoints[tier - 1]) {
+                    throw new IllegalArgumentException(carType + ": breakpoints should be increasing");
+                }
+                startFares[tier] = startFares[tier - 1]
+                        + tierRates[tier - 1] * (tierBreakpoints[tier] - tierBreakpoints[tier - 1]);
+            }
+
+            breakpoints[index] = tierBreakpoints;
+            tierStartFares[index] = startFares;
+            rates[index] = tierRates;
+            minimumFares[index] = number(properties, carType + ".minimumFare");
+            preferredMultipliers[index] = number(properties, carType + ".preferredMultiplier");
+        }
+        return new PricingTable(breakpoints, tierStartFares, rates, minimumFares, preferredMultipliers);
+    }
+
+    public double fare(final CarType carType, final double distance) {
+        int index = carType.ordinal();
+        double[] tierBreakpoints = breakpoints[index];
+        int tier = tierOf(tierBreakpoints, distance);
+        double fare = tierStartFares[index][tier] + rates[index][tier] * (distance - tierBreakpoints[tier]);
+        return Math.max(fare, minimumFares[index]);
+    }
+
+    public double fareForPreferred(final CarType carType, final double distance) {
+        return fare(carType, distance) * preferredMultipliers[carType.ordinal()];
+    }
+
+    /** Index of the last breakpoint not greater than the distance, distances below 0 fall in the first tier. */
+    private static int tierOf(final double[] tierBreakpoints, final double distance) {
+        int low = 0;
+        int high = tierBreakpoints.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (tierBreakpoints[middle] <= distance) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private static double[] numbers(final Properties properties, final String key) {
+        String value = required(properties, key);
+        try {
+            return Arrays.stream(value.split(",")).map(String::trim).mapToDouble(Double::parseDouble).toArray();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number list for " + key + ": " + value, e);
+        }
+    }
+
+    private static double number(final Properties properties, final String key) {
+        String value = required(properties, key);
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+        }
+    }
+
+    private static String required(final Properties properties, final String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing pricing property " + key);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,220 @@
+package com.company.strategy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable road network kept in flat arrays (compressed sparse rows), loaded from a local text file:
+ *
+ * <pre>
+ * # comment
+ * node &lt;id&gt; &lt;latitude&gt; &lt;longitude&gt;
+ * edge &lt;fromId&gt; &lt;toId&gt; &lt;length&gt; [oneway]
+ * </pre>
+ *
+ * <p>Coordinates use the same integer units as {@link com.company.model.Location} and edge lengths the same unit as
+ * the euclidean distance between them. Edges are two way unless marked {@code oneway}.
+ */
+public final class RoadGraph {
+
+    private static final int SNAP_CELL_SIZE = 16;
+    private static final int MAX_SNAP_RINGS = 64;
+
+    final int[] latitudes;
+    final int[] longitudes;
+    // outgoing edges of node n are edgeTargets / edgeLengths[firstEdge[n] .. firstEdge[n + 1])
+    final int[] firstEdge;
+    final int[] edgeTargets;
+    final double[] edgeLengths;
+    // smallest ratio of edge length to straight line distance, scales the A* heuristic so it stays admissible
+    final double minLengthRatio;
+
+    // nodes bucketed by coordinate cell, used to snap a location to its nearest node
+    private final Map<Long, int[]> snapCells;
+
+    private RoadGraph(final int[] latitudes, final int[] longitudes, final List<int[]> edges,
+            final List<Double> lengths) {
+        int nodeCount = latitudes.length;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.firstEdge = new int[nodeCount + 1];
+        this.edgeTargets = new int[edges.size()];
+        this.edgeLengths = new double[edges.size()];
+
+        for (int[] edge : edges) {
+            firstEdge[edge[0] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            firstEdge[node + 1] += firstEdge[node];
+        }
+        int[] fill = Arrays.copyOf(firstEdge, nodeCount);
+        double ratio = 1.0;
+        for (int i = 0; i < edges.size(); i++) {
+            int[] edge = edges.get(i);
+            int slot = fill[edge[0]]++;
+            edgeTargets[slot] = edge[1];
+            edgeLengths[slot] = lengths.get(i);
+            double straightLine = straightLine(edge[0], edge[1]);
+            if (straightLine > 0) {
+                ratio = Math.min(ratio, lengths.get(i) / straightLine);
+            }
+        }
+        this.minLengthRatio = ratio;
+
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int node = 0; node < nodeCount; node++) {
+            buckets.computeIfAbsent(cellKey(Math.floorDiv(latitudes[node], SNAP_CELL_SIZE),
+                    Math.floorDiv(longitudes[node], SNAP_CELL_SIZE)), key -> new ArrayList<>()).add(node);
+        }
+        this.snapCells = new HashMap<>();
+        for (Map.Entry<Long, List<Integer>> bucket : buckets.entrySet()) {
+            snapCells.put(bucket.getKey(), bucket.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * Loads a graph from the given file.
+     *
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the file is malformed.
+     */
+    public static RoadGraph load(final Path path) throws IOException {
+        Map<Long, Integer> nodeIndexes = new HashMap<>();
+        List<int[]> coordinates = new ArrayList<>();
+        List<int[]> edges = new ArrayList<>();
+        List<Double> lengths = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                try {
+                    if (parts[0].equals("node") && parts.length == 4) {
+                        long id = Long.parseLong(parts[1]);
+                        if (nodeIndexes.putIfAbsent(id, coordinates.size()) != null) {
+                            throw new IllegalArgumentException("Duplicate node " + id);
+                        }
+                        coordinates.add(new int[] {Integer.parseInt(parts[2]), Integer.parseInt(parts[3])});
+                    } else if (parts[0].equals("edge") && (parts.length == 4 || parts.length == 5)) {
+                        int from = nodeIndex(nodeIndexes, Long.parseLong(parts[1]));
+                        int to = nodeIndex(nodeIndexes, Long.parseLong(parts[2]));
+                        double length = Double.parseDouble(parts[3]);
+                        if (length < 0) {
+                            throw new IllegalArgumentException("Negative edge length " + length);
+                        }
+                        edges.add(new int[] {from, to});
+                        lengths.add(length);
+                        if (parts.length == 4) {
+                            edges.add(new int[] {to, from});
+                            lengths.add(length);
+                        } else if (!parts[4].equals("oneway")) {
+                            throw new IllegalArgumentException("Unknown edge flag " + parts[4]);
+                        }
+                    } else {
+                        throw new IllegalArgumentException("Unknown record");
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+
+        if (coordinates.isEmpty()) {
+            throw new IllegalArgumentException(path + ": road graph has no nodes");
+        }
+        int[] latitudes = new int[coordinates.size()];
+        int[] longitudes = new int[coordinates.size()];
+        for (int i = 0; i < coordinates.size(); i++) {
+            latitudes[i] = coordinates.get(i)[0];
+            longitudes[i] = coordinates.get(i)[1];
+        }
+        return new RoadGraph(latitudes, longitudes, edges, lengths);
+    }
+
+    public int nodeCount() {
+        return latitudes.length;
+    }
+
+    /** Index of the node closest to the given coordinates. */
+    int nearestNode(final int latitude, final int longitude) {
+        long latCell = Math.floorDiv(latitude, SNAP_CELL_SIZE);
+        long longCell = Math.floorDiv(longitude, SNAP_CELL_SIZE);
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+
+        // walk rings of cells outwards, nodes in ring k are at least (k - 1) cells away so stop once that is
+        // farther than the best node found
+        for (int ring = 0; ring <= MAX_SNAP_RINGS; ring++) {
+            if (best >= 0 && (double) (ring - 1) * SNAP_CELL_SIZE > Math.sqrt(bestDistance)) {
+                return best;
+            }
+            for (long dLat = -ring; dLat <= ring; dLat++) {
+                // only the border of the ring, the inside has been visited already
+                long step = Math.abs(dLat) == ring ? 1 : 2L * ring;
+                for (long dLong = -ring; dLong <= ring; dLong += Math.max(1, step)) {
+                    int[] nodes = snapCells.get(cellKey(latCell + dLat, longCell + dLong));
+                    if (nodes == null) {
+                        continue;
+                    }
+                    for (int node : nodes) {
+                        double distance = squaredDistance(latitude, longitude, node);
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = node;
+                        }
+                    }
+                }
+            }
+        }
+
+        // far away from the road network, fall back to looking at every node
+        for (int node = 0; node < latitudes.length; node++) {
+            double distance = squaredDistance(latitude, longitude, node);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = node;
+            }
+        }
+        return best;
+    }
+
+    double straightLine(final int node1, final int node2) {
+        return Math.sqrt(squaredDistance(latitudes[node1], longitudes[node1], node2));
+    }
+
+    double straightLine(final int latitude, final int longitude, final int node) {
+        return Math.sqrt(squaredDistance(latitude, longitude, node));
+    }
+
+    private double squaredDistance(final int latitude, final int longitude, final int node) {
+        double latDiff = (double) latitude - latitudes[node];
+        double longDiff = (double) longitude - longitudes[node];
+        return latDiff * latDiff + longDiff * longDiff;
+    }
+
+    private static int nodeIndex(final Map<Long, Integer> nodeIndexes, final long id) {
+        Integer index = nodeIndexes.get(id);
+        if (index == null) {
+            throw new IllegalArgumentException("Edge references unknown node " + id);
+        }
+        return index;
+    }
+
+    private static long cellKey(final long latCell, final long longCell) {
+        return (latCell << 32) | (longCell & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,185 @@
+package com.company.strategy;
+
+import com.company.model.Location;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Driving distance over a {@link RoadGraph}: both locations are snapped to their nearest road node, the legs to
+ * those nodes are counted as straight lines and the distance between the nodes is the shortest path found with A*.
+ * Returns {@link Double#POSITIVE_INFINITY} when the destination can't be reached.
+ *
+ * <p>Path searches are not cheap, wrap the strategy in a {@link CachingDistanceFindingStrategy} when the same
+ * origin / destination pairs come back. Their buffers are sized to the graph and taken from a small pool rather
+ * than kept per thread, so many short-lived or virtual threads don't each hold a copy. A search finding the pool
+ * empty allocates its own buffers, which are dropped afterwards if the pool is full again.
+ */
+public class RoadGraphDistanceFindingStrategy implements DistanceFindingStrategy {
+
+    private final RoadGraph graph;
+
+    // idle search buffers, reset lazily through a generation stamp when taken again
+    private final ArrayBlockingQueue<SearchState> searchStates;
+
+    /** Keeps up to one idle search state per processor. */
+    public RoadGraphDistanceFindingStrategy(final RoadGraph graph) {
+        this(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** @param pooledSearchStates number of idle search states kept for reuse. */
+    public RoadGraphDistanceFindingStrategy(final RoadGraph graph, final int pooledSearchStates) {
+        if (pooledSearchStates <= 0) {
+            throw new IllegalArgumentException("Pooled search states should be positive, got " + pooledSearchStates);
+        }
+        this.graph = graph;
+        this.searchStates = new ArrayBlockingQueue<>(pooledSearchStates);
+    }
+
+    /** @throws IOException if the graph file can't be read. */
+    public static RoadGraphDistanceFindingStrategy fromFile(final Path graphFile) throws IOException {
+        return new RoadGraphDistanceFindingStrategy(RoadGraph.load(graphFile));
+    }
+
+    @Override
+    public Double distanceBetweenLocations(Location location1, Location location2) {
+        return distance(location1, location2);
+    }
+
+    @Override
+    public double distance(int lat1, int long1, int lat2, int long2) {
+        int source = graph.nearestNode(lat1, long1);
+        int target = graph.nearestNode(lat2, long2);
+        return graph.straightLine(lat1, long1, source) + shortestPath(source, target)
+                + graph.straightLine(lat2, long2, target);
+    }
+
+    @Override
+    public double coordinateReach(Location origin, double distance) {
+        // roads shorter than the straight line between their ends let a route cover more ground than its length
+        return distance / graph.minLengthRatio;
+    }
+
+    private double shortestPath(final int source, final int target) {
+        if (source == target) {
+            return 0;
+        }
+        SearchState state = searchStates.poll();
+        if (state == null) {
+            state = new SearchState(graph.nodeCount());
+        }
+        try {
+            return shortestPath(source, target, state);
+        } finally {
+            searchStates.offer(state);
+        }
+    }
+
+    private double shortestPath(final int source, final int target, final SearchState state) {
+        state.reset();
+        state.relax(source, 0, heuristic(source, target));
+
+        while (!state.isEmpty()) {
+            int node = state.poll();
+            if (node == target) {
+                return state.cost(node);
+            }
+            double nodeCost = state.cost(node);
+            for (int edge = graph.firstEdge[node]; edge < graph.firstEdge[node + 1]; edge++) {
+                int next = graph.edgeTargets[edge];
+                double nextCost = nodeCost + graph.edgeLengths[edge];
+                if (nextCost < state.cost(next)) {
+                    state.relax(next, nextCost, nextCost + heuristic(next, target));
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private double heuristic(final int node, final int target) {
+        return graph.straightLine(node, target) * graph.minLengthRatio;
+    }
+
+    /**
+     * A* bookkeeping of one search at a time: tentative costs plus a binary min-heap of nodes keyed by estimated total
+     * cost.
+     */
+    private static final class SearchState {
+        private final double[] costs;
+        private final int[] generations;
+        private int generation;
+
+        private int[] heapNodes = new int[64];
+        private double[] heapKeys = new double[64];
+        private int heapSize;
+
+        SearchState(final int nodeCount) {
+            this.costs = new double[nodeCount];
+            this.generations = new int[nodeCount];
+        }
+
+        void reset() {
+            heapSize = 0;
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(generations, 0);
+                generation = 1;
+            }
+        }
+
+        double cost(final int node) {
+            return generations[node] == generation ? costs[node] : Double.POSITIVE_INFINITY;
+        }
+
+        boolean isEmpty() {
+            return heapSize == 0;
+        }
+
+        // nodes may sit in the heap more than once, stale entries are skipped in poll
+        void relax(final int node, final double cost, final double key) {
+            costs[node] = cost;
+            generations[node] = generation;
+            if (heapSize == heapNodes.length) {
+                heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            }
+            int index = heapSize++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heapKeys[parent] <= key) {
+                    break;
+                }
+                heapNodes[index] = heapNodes[parent];
+                heapKeys[index] = heapKeys[parent];
+                index = parent;
+            }
+            heapNodes[index] = node;
+            heapKeys[index] = key;
+        }
+
+        int poll() {
+            int node = heapNodes[0];
+            int lastNode = heapNodes[--heapSize];
+            double lastKey = heapKeys[heapSize];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                    child++;
+                }
+                if (heapKeys[child] >= lastKey) {
+                    break;
+                }
+                heapNodes[index] = heapNodes[child];
+                heapKeys[index] = heapKeys[child];
+                index = child;
+            }
+            heapNodes[index] = lastNode;
+            heapKeys[index] = lastKey;
+            return node;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.company.strategy;
+
+import com.company.model.CarType;
+import com.company.model.Location;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pricing driven by tier tables loaded from configuration instead of hardcoded per car type rules.
+ *
+ * <p>The tables are compiled into a {@link PricingTable} and published through a volatile field, so bookings always
+ * see a complete table and a reload swaps it in without pausing them. When backed by a file the tables can be
+ * reloaded on demand or watched for changes.
+ */
+public class TablePricingStrategy implements PricingStrategy, AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(TablePricingStrategy.class.getName());
+
+    /** Classpath resource holding the default tables, same fares as {@link DefaultPricingStrategy}. */
+    public static final String DEFAULT_RESOURCE = "/pricing.properties";
+
+    private final Path configFile;
+    private volatile PricingTable table;
+    private volatile FileTime loadedVersion;
+    private ScheduledExecutorService watcher;
+
+    private TablePricingStrategy(final Path configFile, final PricingTable table, final FileTime loadedVersion) {
+        this.configFile = configFile;
+        this.table = table;
+        this.loadedVersion = loadedVersion;
+    }
+
+    /** Strategy using the default tables bundled with the application. */
+    public static TablePricingStrategy fromDefaultTables() {
+        try (InputStream input = TablePricingStrategy.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing pricing resource " + DEFAULT_RESOURCE);
+            }
+            Properties properties = new Properties();
+            properties.load(input);
+            return new TablePricingStrategy(null, PricingTable.compile(properties), null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Strategy backed by a tables file which can later be reloaded.
+     *
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the tables are invalid.
+     */
+    public static TablePricingStrategy fromFile(final Path configFile) throws IOException {
+        FileTime version = Files.getLastModifiedTime(configFile);
+        return new TablePricingStrategy(configFile, load(configFile), version);
+    }
+
+    @Override
+    public double calculateFare(CarType carType, final Location origin,
+            final Location destination, DistanceFindingStrategy distanceFindingStrategy) {
+        return table.fare(carType, distanceFindingStrategy.distance(origin, destination));
+    }
+
+    @Override
+    public double calculateFareForPreferred(CarType carType, final Location origin,
+            final Location destination, DistanceFindingStrategy distanceFindingStrategy) {
+        return table.fareForPreferred(carType, distanceFindingStrategy.distance(origin, destination));
+    }
+
+    /**
+     * Reads and compiles the tables file again and swaps the new tables in. The current tables stay in use if the
+     * new ones can't be loaded.
+     *
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the new tables are invalid.
+     */
+    public void reload() throws IOException {
+        if (configFile == null) {
+            throw new IllegalStateException("Strategy is not backed by a file, nothing to reload");
+        }
+        FileTime version = Files.getLastModifiedTime(configFile);
+        table = load(configFile);
+        loadedVersion = version;
+    }
+
+    /** Polls the tables file and reloads it whenever its modification time changes. */
+    public synchronized void watch(final long interval, final TimeUnit unit) {
+        if (configFile == null) {
+            throw new IllegalStateException("Strategy is not backed by a file, nothing to watch");
+        }
+        if (watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pricing-table-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, unit);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    private void reloadIfChanged() {
+        try {
+            if (!Files.getLastModifiedTime(configFile).equals(loadedVersion)) {
+                reload();
+            }
+        } catch (IOException | RuntimeException e) {
+            // keep pricing with the last good tables, a half written file is picked up on the next poll
+            LOGGER.log(Level.WARNING, "Could not reload pricing tables from " + configFile, e);
+        }
+    }
+
+    private static PricingTable load(final Path configFile) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(configFile)) {
+            properties.load(input);
+        }
+        return PricingTable.compile(properties);
+    }
+}
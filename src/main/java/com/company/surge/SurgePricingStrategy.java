@@ -0,0 +1,32 @@
+package com.company.surge;
+
+import com.company.model.CarType;
+import com.company.model.Location;
+import com.company.strategy.DistanceFindingStrategy;
+import com.company.strategy.PricingStrategy;
+
+/** Pricing strategy applying the surge multiplier of the pickup cell on top of another pricing strategy. */
+public class SurgePricingStrategy implements PricingStrategy {
+
+    private final PricingStrategy basePricingStrategy;
+    private final SurgeTracker surgeTracker;
+
+    public SurgePricingStrategy(final PricingStrategy basePricingStrategy, final SurgeTracker surgeTracker) {
+        this.basePricingStrategy = basePricingStrategy;
+        this.surgeTracker = surgeTracker;
+    }
+
+    @Override
+    public double calculateFare(CarType carType, final Location origin, final Location destination,
+            DistanceFindingStrategy distanceFindingStrategy) {
+        return basePricingStrategy.calculateFare(carType, origin, destination, distanceFindingStrategy)
+                * surgeTracker.multiplierAt(origin);
+    }
+
+    @Override
+    public double calculateFareForPreferred(CarType carType, final Location origin, final Location destination,
+            DistanceFindingStrategy distanceFindingStrategy) {
+        return basePricingStrategy.calculateFareForPreferred(carType, origin, destination, distanceFindingStrategy)
+                * surgeTracker.multiplierAt(origin);
+    }
+}
@@ -0,0 +1,195 @@
+package com.company.surge;
+
+import com.company.model.Location;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding window counters of ride requests (demand) per geo cell, and the surge multiplier derived from them and
+ * the drivers available in the cell right now (supply).
+ *
+ * <p>Each cell keeps a ring of time buckets updated with atomic increments only, so recording from the booking
+ * path never takes a lock. The multiplier of a cell sums a fixed number of buckets, which keeps reads O(1) whatever
+ * the traffic. Supply isn't counted from events but asked to the attached {@link Supply}, so a driver waiting in a
+ * cell keeps counting however long ago it became available. Cells nothing was requested in for a whole window are
+ * dropped. Counts are approximate by design: an increment racing with the recycling of an expired bucket, or with
+ * the dropping of an expired cell, can be lost.
+ */
+public class SurgeTracker {
+
+    public static final int DEFAULT_CELL_SIZE = 10;
+    public static final long DEFAULT_BUCKET_MILLIS = 10_000;
+    public static final int DEFAULT_BUCKETS = 30;
+    public static final double DEFAULT_SENSITIVITY = 0.5;
+    public static final double DEFAULT_MAX_MULTIPLIER = 3.0;
+
+    /** Supply of a tracker nothing is attached to, no driver anywhere. */
+    public static final Supply NO_SUPPLY = (minLatitude, minLongitude, size) -> 0;
+
+    private final int cellSize;
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final double sensitivity;
+    private final double maxMultiplier;
+    private final LongSupplier clock;
+
+    private final Map<Long, CellCounters> cells = new ConcurrentHashMap<>();
+    // epoch of the last pass dropping expired cells, one pass per window at most
+    private final AtomicLong sweptEpoch = new AtomicLong();
+
+    private volatile Supply supply = NO_SUPPLY;
+
+    /** Five minute window of ten second buckets over cells of 10 x 10 coordinate units. */
+    public SurgeTracker() {
+        this(DEFAULT_CELL_SIZE, DEFAULT_BUCKET_MILLIS, DEFAULT_BUCKETS, DEFAULT_SENSITIVITY, DEFAULT_MAX_MULTIPLIER,
+                System::currentTimeMillis);
+    }
+
+    /**
+     * @param cellSize side of a geo cell in coordinate units.
+     * @param bucketMillis width of one time bucket, the window is bucketMillis * bucketCount long.
+     * @param sensitivity how fast the multiplier grows with the demand / supply ratio.
+     * @param maxMultiplier cap on the multiplier.
+     * @param clock millisecond clock, injectable for tests.
+     */
+    public SurgeTracker(final int cellSize, final long bucketMillis, final int bucketCount, final double sensitivity,
+            final double maxMultiplier, final LongSupplier clock) {
+        if (cellSize <= 0 || bucketMillis <= 0 || bucketCount <= 0 || maxMultiplier < 1) {
+            throw new IllegalArgumentException("Invalid surge configuration");
+        }
+        this.cellSize = cellSize;
+        this.bucketMillis = bucketMillis;
+        this.bucketCount = bucketCount;
+        this.sensitivity = sensitivity;
+        this.maxMultiplier = maxMultiplier;
+        this.clock = clock;
+    }
+
+    /** Where the drivers available in a cell are counted, null attaches {@link #NO_SUPPLY}. */
+    public void setSupply(final Supply supply) {
+        this.supply = supply == null ? NO_SUPPLY : supply;
+    }
+
+    /** A rider asked for a ride starting at the location. */
+    public void recordDemand(final Location location) {
+        long epoch = clock.getAsLong() / bucketMillis;
+        dropExpiredCells(epoch);
+        cellAt(location).record(epoch);
+    }
+
+    /**
+     * Multiplier to apply to fares starting at the location: 1 while the drivers available in the cell keep up with
+     * the requests of the window, growing with the demand / supply ratio up to the configured cap.
+     */
+    public double multiplierAt(final Location location) {
+        long demand = demandAt(location);
+        if (demand == 0) {
+            return 1.0;
+        }
+        long supply = supplyAt(location);
+        if (demand <= supply) {
+            return 1.0;
+        }
+        double ratio = (double) demand / Math.max(1, supply);
+        return Math.min(maxMultiplier, 1.0 + sensitivity * (ratio - 1.0));
+    }
+
+    public long demandAt(final Location location) {
+        CellCounters cell = cells.get(cellKey(location));
+        return cell == null ? 0 : cell.sum(clock.getAsLong() / bucketMillis);
+    }
+
+    /** Drivers available right now in the cell of the location. */
+    public long supplyAt(final Location location) {
+        return supply.availableIn(Math.floorDiv(location.getLatitude(), cellSize) * (long) cellSize,
+                Math.floorDiv(location.getLongitude(), cellSize) * (long) cellSize, cellSize);
+    }
+
+    /** Number of cells holding requests, expired ones included until the next pass drops them. */
+    public int cellCount() {
+        return cells.size();
+    }
+
+    private CellCounters cellAt(final Location location) {
+        long key = cellKey(location);
+        CellCounters cell = cells.get(key);
+        return cell != null ? cell : cells.computeIfAbsent(key, ignored -> new CellCounters(bucketCount));
+    }
+
+    private long cellKey(final Location location) {
+        long latCell = Math.floorDiv(location.getLatitude(), cellSize);
+        long longCell = Math.floorDiv(location.getLongitude(), cellSize);
+        return (latCell << 32) | (longCell & 0xFFFFFFFFL);
+    }
+
+    // the thread winning the pass for this window walks the cells, the others go on recording
+    private void dropExpiredCells(final long epoch) {
+        long swept = sweptEpoch.get();
+        if (epoch - swept < bucketCount || !sweptEpoch.compareAndSet(swept, epoch)) {
+            return;
+        }
+        cells.values().removeIf(cell -> cell.isExpired(epoch));
+    }
+
+    /** Drivers available for a trip right now, counted over a square of the map. */
+    @FunctionalInterface
+    public interface Supply {
+
+        /** Available drivers located within size coordinate units from the corner, on both axes. */
+        long availableIn(long minLatitude, long minLongitude, int size);
+    }
+
+    /** Ring of time buckets counting the requests of one cell. */
+    private static final class CellCounters {
+        private final int bucketCount;
+        // epoch (bucket number since the unix epoch) each slot currently counts for
+        private final AtomicLongArray epochs;
+        private final AtomicLongArray counts;
+
+        CellCounters(final int bucketCount) {
+            this.bucketCount = bucketCount;
+            this.epochs = new AtomicLongArray(bucketCount);
+            this.counts = new AtomicLongArray(bucketCount);
+            for (int slot = 0; slot < bucketCount; slot++) {
+                epochs.set(slot, -1);
+            }
+        }
+
+        void record(final long epoch) {
+            int slot = (int) (epoch % bucketCount);
+            long slotEpoch = epochs.get(slot);
+            if (slotEpoch != epoch && slotEpoch < epoch && epochs.compareAndSet(slot, slotEpoch, epoch)) {
+                // this thread recycled the expired slot, clear what it counted for the old epoch
+                counts.set(slot, 0);
+            }
+            if (epochs.get(slot) == epoch) {
+                counts.incrementAndGet(slot);
+            }
+        }
+
+        /** Requests summed over the buckets of the window ending at the epoch. */
+        long sum(final long epoch) {
+            long total = 0;
+            for (int slot = 0; slot < bucketCount; slot++) {
+                long slotEpoch = epochs.get(slot);
+                if (slotEpoch > epoch - bucketCount && slotEpoch <= epoch) {
+                    total += counts.get(slot);
+                }
+            }
+            return total;
+        }
+
+        /** Whether every bucket has left the window ending at the epoch. */
+        boolean isExpired(final long epoch) {
+            for (int slot = 0; slot < bucketCount; slot++) {
+                if (epochs.get(slot) > epoch - bucketCount) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
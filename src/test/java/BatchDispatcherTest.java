@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.company.dispatch.BatchDispatcher;
+import com.company.dispatch.HungarianAssignment;
+import com.company.exception.DriverNotFoundException;
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import com.company.surge.SurgeTracker;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchDispatcherTest {
+
+  TripManager tripManager;
+  RiderManager riderManager;
+
+  @BeforeEach
+  void setup() {
+    DriverManager driverManager = new DriverManager();
+    driverManager.createDriver(new Driver(1, "Aastik", "abcd", new Car(CarType.HATCHBACK, "ABCD-12")));
+    driverManager.createDriver(new Driver(2, "Sumit", "abcd", new Car(CarType.HATCHBACK, "ABCD-34")));
+    driverManager.makeAvailable(1, new Location(0, 0));
+    driverManager.makeAvailable(2, new Location(6, 0));
+
+    riderManager = new RiderManager();
+    riderManager.createRider(new Rider(1, "Ayush", "abcd"));
+    riderManager.createRider(new Rider(2, "Shubham", "abcd"));
+    riderManager.createRider(new Rider(3, "Prateek", "abcd"));
+
+    tripManager = new TripManager(riderManager, driverManager);
+  }
+
+  @Test
+  void test_batchAssignsDriversGlobally() throws Exception {
+    // Given.
+    SurgeTracker surgeTracker = new SurgeTracker();
+    tripManager.setSurgeTracker(surgeTracker);
+    // rider 1 at (3,0) is equally close to both drivers, rider 2 at (-2,0) only has driver 1 nearby.
+    // matching rider 1 first greedily could take driver 1 and strand rider 2.
+    try (BatchDispatcher dispatcher = new BatchDispatcher(tripManager, new DefaultPricingStrategy(),
+        new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(), 200, 16, 5.0)) {
+
+      // When.
+      CompletableFuture<String> trip1 = dispatcher.submit(riderManager.getRider(1), new Location(3, 0),
+          new Location(5, 5), CarType.HATCHBACK);
+      CompletableFuture<String> trip2 = dispatcher.submit(riderManager.getRider(2), new Location(-2, 0),
+          new Location(5, 5), CarType.HATCHBACK);
+
+      // Then.
+      assertEquals(2, tripManager.getTrips().get(trip1.get(5, TimeUnit.SECONDS)).getDriver().getId());
+      assertEquals(1, tripManager.getTrips().get(trip2.get(5, TimeUnit.SECONDS)).getDriver().getId());
+      assertEquals(2, dispatcher.getMetrics().getBatchMatched());
+      assertEquals(1, dispatcher.getMetrics().getBatches());
+      // batch matched bookings count as demand like the one-at-a-time ones
+      assertEquals(1, surgeTracker.demandAt(new Location(3, 0)));
+      assertEquals(1, surgeTracker.demandAt(new Location(-2, 0)));
+    }
+  }
+
+  @Test
+  void test_requestWithoutDriverFails() throws Exception {
+    try (BatchDispatcher dispatcher = new BatchDispatcher(tripManager, new DefaultPricingStrategy(),
+        new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(), 50, 16, 5.0)) {
+
+      // When.
+      CompletableFuture<String> trip = dispatcher.submit(riderManager.getRider(3), new Location(50, 50),
+          new Location(55, 55), CarType.SEDAN);
+
+      // Then.
+      ExecutionException exception = assertThrows(ExecutionException.class, () -> trip.get(5, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof DriverNotFoundException);
+      assertEquals(1, dispatcher.getMetrics().getFailed());
+    }
+  }
+
+  @Test
+  void test_closeDispatchesQueuedRequestsThenRejects() throws Exception {
+    // Given.
+    BatchDispatcher dispatcher = new BatchDispatcher(tripManager, new DefaultPricingStrategy(),
+        new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(), 10_000, 16, 5.0);
+    CompletableFuture<String> trip = dispatcher.submit(riderManager.getRider(1), new Location(1, 0),
+        new Location(5, 5), CarType.HATCHBACK);
+
+    // When.
+    dispatcher.close();
+
+    // Then.
+    // the request queued before close is still dispatched, none after it is accepted
+    assertTrue(trip.isDone());
+    assertEquals(1, tripManager.getTrips().get(trip.get()).getDriver().getId());
+    assertThrows(IllegalStateException.class, () -> dispatcher.submit(riderManager.getRider(2),
+        new Location(1, 0), new Location(5, 5), CarType.HATCHBACK));
+  }
+
+  @Test
+  void test_hungarianAssignment() {
+    // Given.
+    double[][] cost = {
+        {4, 1, 3},
+        {2, 0, 5},
+        {3, 2, 2}
+    };
+
+    // When.
+    int[] assignment = HungarianAssignment.solve(cost);
+
+    // Then.
+    // optimal total is 1 + 2 + 2 = 5
+    assertEquals(1, assignment[0]);
+    assertEquals(0, assignment[1]);
+    assertEquals(2, assignment[2]);
+
+    // more rows than columns leaves the most expensive row unassigned
+    int[] rectangular = HungarianAssignment.solve(new double[][] {{1}, {5}});
+    assertEquals(0, rectangular[0]);
+    assertEquals(-1, rectangular[1]);
+  }
+}
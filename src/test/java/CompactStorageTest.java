@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.company.history.TripHistory;
+import com.company.index.GridDriverIndex;
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.model.Trip;
+import com.company.model.TripIds;
+import com.company.model.TripStatus;
+import com.company.storage.CompactLongMap;
+import com.company.storage.StorageMode;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class CompactStorageTest {
+
+  @Test
+  void test_compactLongMapMatchesHashMap() {
+    // Given.
+    CompactLongMap<Long> map = new CompactLongMap<>();
+    Map<Long, Long> expected = new HashMap<>();
+    Random random = new Random(7);
+
+    // When.
+    // few distinct keys so puts, overwrites and removals keep hitting the same probe sequences
+    for (int i = 0; i < 200_000; i++) {
+      long key = random.nextInt(5_000) * 0x9E3779B97F4A7C15L;
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+      }
+    }
+
+    // Then.
+    assertEquals(expected.size(), map.size());
+    for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), map.get(entry.getKey()));
+    }
+    assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    assertNull(map.get(-1));
+  }
+
+  @Test
+  void test_compactTripIds() {
+    // Given.
+    long first = TripIds.next();
+    long second = TripIds.next();
+
+    // Then.
+    assertTrue(second > first);
+    assertEquals(first, TripIds.parse(TripIds.format(first)));
+    assertTrue(Math.abs(TripIds.timestampOf(first) - System.currentTimeMillis()) < 60_000);
+    assertEquals(TripIds.NOT_COMPACT, TripIds.parse(UUID.randomUUID().toString()));
+    assertEquals(TripIds.NOT_COMPACT, TripIds.parse("0" + TripIds.format(first)));
+    assertEquals(TripIds.NOT_COMPACT, TripIds.parse(TripIds.format(first).toUpperCase()));
+    assertEquals(TripIds.NOT_COMPACT, TripIds.parse("zzzzzzzzzzzzzzz"));
+  }
+
+  @Test
+  void test_tripLifecycleInCompactMode() {
+    // Given.
+    DriverManager driverManager = new DriverManager(new GridDriverIndex(), null, TripHistory.DEFAULT_WINDOW,
+        StorageMode.COMPACT);
+    RiderManager riderManager = new RiderManager(System::currentTimeMillis, null, TripHistory.DEFAULT_WINDOW,
+        StorageMode.COMPACT);
+    TripManager tripManager = new TripManager(riderManager, driverManager, StorageMode.COMPACT);
+    Rider rider = new Rider(1, "Ayush", "abcd");
+    riderManager.createRider(rider);
+    driverManager.createDriver(new Driver(1, "Aastik", "abcd", new Car(CarType.SEDAN, "AB-12")));
+    driverManager.makeAvailable(1, new Location(2, 3));
+
+    // When.
+    String tripId = tripManager.createTrip(rider, new Location(2, 3), new Location(4, 5),
+        new DefaultPricingStrategy(), new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(),
+        CarType.SEDAN);
+    tripManager.startTrip(tripId);
+    tripManager.endTrip(tripId);
+    // trips restored from older snapshots keep their UUID ids
+    Trip legacy = new Trip(UUID.randomUUID().toString(), rider, driverManager.getDriver(1), new Location(0, 0),
+        new Location(3, 4), 50, driverManager.getDriver(1).getCar(), TripStatus.COMPLETED);
+    tripManager.restoreTrip(legacy);
+
+    // Then.
+    assertTrue(TripIds.parse(tripId) != TripIds.NOT_COMPACT);
+    // the string id is built when asked for, none is kept on the trip
+    Trip trip = tripManager.getTripOrThrow(tripId);
+    assertNotSame(trip.getId(), trip.getId());
+    assertEquals(tripId, trip.getId());
+    assertEquals(TripStatus.COMPLETED, tripManager.getTripOrThrow(tripId).getStatus());
+    assertSame(legacy, tripManager.getTrips().get(legacy.getId()));
+    assertEquals(2, tripManager.getTrips().size());
+    assertEquals(new HashSet<>(Arrays.asList(tripId, legacy.getId())), tripManager.getTrips().keySet());
+    assertEquals(1, driverManager.getAllDrivers().size());
+    assertEquals(2, riderManager.getRiderStats(1).getCompletedTrips());
+  }
+}
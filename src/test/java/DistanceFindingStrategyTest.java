@@ -0,0 +1,156 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.company.index.GridDriverIndex;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.strategy.CachingDistanceFindingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.HaversineDistanceFindingStrategy;
+import com.company.strategy.RoadGraph;
+import com.company.strategy.RoadGraphDistanceFindingStrategy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DistanceFindingStrategyTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void test_haversineDistance() {
+    // Given.
+    // Bengaluru and Chennai, in micro degrees
+    HaversineDistanceFindingStrategy strategy = new HaversineDistanceFindingStrategy();
+    Location bengaluru = new Location(12_971_599, 77_594_566);
+    Location chennai = new Location(13_082_680, 80_270_718);
+
+    // When.
+    double distance = strategy.distance(bengaluru, chennai);
+
+    // Then.
+    assertEquals(290.2, distance, 1.0);
+    // the coordinate reach covers the other city when the radius does
+    double reach = strategy.coordinateReach(bengaluru, 300);
+    assertTrue(reach >= Math.abs(chennai.getLongitude() - bengaluru.getLongitude()));
+  }
+
+  @Test
+  void test_haversineReachWrapsAroundAntimeridian() {
+    // Given.
+    // two points on the equator a tenth of a degree apart, on either side of longitude 180
+    HaversineDistanceFindingStrategy strategy = new HaversineDistanceFindingStrategy();
+    GridDriverIndex index = new GridDriverIndex(100_000);
+    Driver driver = new Driver(1, "Sumit", "abcd", new Car(CarType.SEDAN, "ABCD-34"));
+    driver.setCurrentLocation(new Location(0, -179_950_000));
+    driver.setAcceptingRider(true);
+    index.upsert(driver);
+    // drivers far away, in enough cells that the index doesn't just walk all of them
+    for (int id = 2; id < 40; id++) {
+      Driver farAway = new Driver(id, "Driver" + id, "abcd", new Car(CarType.SEDAN, "FAR-" + id));
+      farAway.setCurrentLocation(new Location(0, id * 1_000_000));
+      farAway.setAcceptingRider(true);
+      index.upsert(farAway);
+    }
+    Location origin = new Location(0, 179_950_000);
+
+    // When.
+    double distance = strategy.distance(origin, driver.getCurrentLocation());
+
+    // Then.
+    assertEquals(11.1, distance, 0.1);
+    assertEquals(List.of(driver), index.findWithinRadius(origin, 20, strategy));
+  }
+
+  @Test
+  void test_roadGraphShortestPath() throws Exception {
+    // Given.
+    // a square without diagonals, 3 -> 4 -> 1 is one way
+    Path graphFile = tempDir.resolve("roads.txt");
+    Files.write(graphFile, Arrays.asList(
+        "# test graph",
+        "node 1 0 0",
+        "node 2 0 10",
+        "node 3 10 10",
+        "node 4 10 0",
+        "edge 1 2 10",
+        "edge 2 3 10",
+        "edge 3 4 12 oneway",
+        "edge 4 1 10 oneway"));
+    RoadGraphDistanceFindingStrategy strategy = RoadGraphDistanceFindingStrategy.fromFile(graphFile);
+
+    // Then.
+    assertEquals(20.0, strategy.distance(new Location(0, 0), new Location(10, 10)), 1e-9);
+    // 3 -> 2 -> 1 (20) beats the one way loop 3 -> 4 -> 1 (22)
+    assertEquals(20.0, strategy.distance(new Location(10, 10), new Location(0, 0)), 1e-9);
+    // 4 can only leave through its one way road to 1
+    assertEquals(30.0, strategy.distance(new Location(10, 0), new Location(10, 10)), 1e-9);
+    // snapping adds the straight legs from the locations to their nearest nodes
+    assertEquals(1.0 + 10.0, strategy.distance(new Location(0, -1), new Location(0, 10)), 1e-9);
+  }
+
+  @Test
+  void test_roadGraphSearchesFromManyThreads() throws Exception {
+    // Given.
+    // a line of nodes one unit apart, searched from more threads than there are pooled search states
+    Path graphFile = tempDir.resolve("line.txt");
+    List<String> lines = new ArrayList<>();
+    for (int node = 0; node < 100; node++) {
+      lines.add("node " + node + " 0 " + node);
+      if (node > 0) {
+        lines.add("edge " + (node - 1) + " " + node + " 1");
+      }
+    }
+    Files.write(graphFile, lines);
+    RoadGraphDistanceFindingStrategy strategy = new RoadGraphDistanceFindingStrategy(RoadGraph.load(graphFile), 2);
+
+    // When.
+    List<Future<Double>> distances = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 1000; i++) {
+        int end = i % 100;
+        distances.add(executor.submit(() -> strategy.distance(new Location(0, 0), new Location(0, end))));
+      }
+
+      // Then.
+      for (int i = 0; i < distances.size(); i++) {
+        assertEquals(i % 100, distances.get(i).get(), 1e-9);
+      }
+    }
+  }
+
+  @Test
+  void test_cachingDistance() {
+    // Given.
+    CachingDistanceFindingStrategy strategy =
+        new CachingDistanceFindingStrategy(new EuclideanDistanceFindingStrategy(), 4, 1, 1);
+
+    // When.
+    double first = strategy.distance(new Location(0, 0), new Location(3, 4));
+    double second = strategy.distance(new Location(0, 0), new Location(3, 4));
+
+    // Then.
+    assertEquals(5.0, first, 1e-9);
+    assertEquals(5.0, second, 1e-9);
+    assertEquals(1, strategy.getHits());
+    assertEquals(1, strategy.getMisses());
+    assertEquals(0.5, strategy.getHitRate(), 1e-9);
+
+    // the cache never grows beyond its size limit
+    for (int i = 0; i < 10; i++) {
+      strategy.distance(new Location(i, i), new Location(0, 0));
+    }
+    assertEquals(4, strategy.size());
+    assertTrue(strategy.getEvictions() > 0);
+  }
+}
@@ -1,21 +1,41 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.company.exception.CarAlreadyPresentException;
 import com.company.exception.DriverAlreadyPresentException;
 import com.company.exception.DriverNotFoundException;
 import com.company.manager.DriverManager;
+import com.company.manager.LocationBatch;
 import com.company.model.Car;
 import com.company.model.CarType;
 import com.company.model.Driver;
 import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.model.Trip;
+import com.company.persistence.DriverLocationStore;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class DriverManagerTest {
 
 	DriverManager driverManager;
 
+	@TempDir
+	Path tempDir;
+
 	@BeforeEach
 	void setup() {
 		driverManager = new DriverManager();
@@ -103,4 +123,388 @@ class DriverManagerTest {
 			driverManager.updateDriverAvailability(10, false);
 		});
 	}
+
+	@Test
+	void test_spatialIndexMatchesFullScan() {
+		// Given.
+		Random random = new Random(42);
+		for (int id = 1; id <= 500; id++) {
+			driverManager.createDriver(new Driver(id, "Driver" + id, "abcd", new Car(CarType.HATCHBACK, "REG-" + id)));
+			driverManager.makeAvailable(id, new Location(random.nextInt(200) - 100, random.nextInt(200) - 100));
+		}
+		// some drivers move around, some go offline
+		for (int id = 1; id <= 500; id += 7) {
+			driverManager.updateDriverLocation(id, new Location(random.nextInt(200) - 100, random.nextInt(200) - 100));
+		}
+		for (int id = 3; id <= 500; id += 11) {
+			driverManager.updateDriverAvailability(id, false);
+		}
+
+		EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+		for (int query = 0; query < 50; query++) {
+			Location origin = new Location(random.nextInt(240) - 120, random.nextInt(240) - 120);
+			double radius = random.nextInt(40);
+
+			// When.
+			driverManager.setUseSpatialIndex(true);
+			Set<Integer> indexed = ids(driverManager.getDriversWithinRadius(origin, radius, distanceFindingStrategy));
+			driverManager.setUseSpatialIndex(false);
+			Set<Integer> scanned = ids(driverManager.getDriversWithinRadius(origin, radius, distanceFindingStrategy));
+
+			// Then.
+			assertEquals(scanned, indexed);
+		}
+	}
+
+	@Test
+	void test_reserveDriver() {
+		// Given.
+		Car car = new Car(CarType.SEDAN, "ABCD-34");
+		Driver driver = new Driver(1, "Prashant", "abcd", car);
+		driverManager.createDriver(driver);
+		Rider rider = new Rider(1, "Aastik", "abcd");
+		Trip trip1 = new Trip(rider, driver, new Location(2, 3), new Location(4, 5), 50, car);
+		Trip trip2 = new Trip(rider, driver, new Location(2, 3), new Location(4, 5), 50, car);
+
+		// Then.
+		// a driver who is not accepting rides can't be reserved
+		assertFalse(driverManager.reserveDriver(1, trip1));
+
+		// When.
+		driverManager.makeAvailable(1, new Location(2, 3));
+
+		// Then.
+		// only the first reservation wins
+		assertTrue(driverManager.reserveDriver(1, trip1));
+		assertFalse(driverManager.reserveDriver(1, trip2));
+
+		// releasing with a stale trip is a no-op
+		driverManager.releaseDriver(1, trip2);
+		assertFalse(driver.isAvailable());
+
+		driverManager.releaseDriver(1, trip1);
+		assertTrue(driverManager.reserveDriver(1, trip2));
+	}
+
+	@Test
+	void test_locationStoreSurvivesRestart() throws Exception {
+		// Given.
+		Path storeFile = tempDir.resolve("locations.bin");
+		try (DriverLocationStore store = DriverLocationStore.open(storeFile, 16)) {
+			driverManager.setLocationStore(store);
+			driverManager.createDriver(new Driver(1, "Prashant", "abcd", new Car(CarType.SEDAN, "ABCD-34")));
+			driverManager.createDriver(new Driver(2, "Prateek", "abcd", new Car(CarType.HATCHBACK, "ABCD-56")));
+			driverManager.createDriver(new Driver(3, "Rajat", "abcd", new Car(CarType.HATCHBACK, "ABCD-78")));
+
+			// When.
+			driverManager.makeAvailable(1, new Location(2, 3));
+			driverManager.updateDriverLocation(1, -7, 11);
+			driverManager.makeAvailable(2, new Location(40, 50));
+		}
+
+		// When.
+		// a new process registers the same drivers again
+		DriverManager restarted = new DriverManager();
+		try (DriverLocationStore store = DriverLocationStore.open(storeFile, 16)) {
+			restarted.setLocationStore(store);
+			restarted.createDriver(new Driver(1, "Prashant", "abcd", new Car(CarType.SEDAN, "ABCD-34")));
+			restarted.createDriver(new Driver(2, "Prateek", "abcd", new Car(CarType.HATCHBACK, "ABCD-56")));
+			restarted.createDriver(new Driver(3, "Rajat", "abcd", new Car(CarType.HATCHBACK, "ABCD-78")));
+			restarted.updateDriverAvailability(1, true);
+
+			// Then.
+			assertEquals(3, store.size());
+			assertEquals(new Location(-7, 11), restarted.getDriver(1).getCurrentLocation());
+			assertEquals(new Location(40, 50), restarted.getDriver(2).getCurrentLocation());
+			assertFalse(restarted.getDriver(3).hasLocation());
+			// the restored location is indexed as soon as the driver accepts rides
+			assertEquals(Set.of(1), ids(restarted.getDriversWithinRadius(new Location(-7, 10), 2,
+					new EuclideanDistanceFindingStrategy())));
+		}
+	}
+
+	@Test
+	void test_batchLocationUpdates() {
+		// Given.
+		driverManager.createDriver(new Driver(1, "Prashant", "abcd", new Car(CarType.SEDAN, "ABCD-34")));
+		driverManager.createDriver(new Driver(2, "Prateek", "abcd", new Car(CarType.HATCHBACK, "ABCD-56")));
+		driverManager.makeAvailable(1, new Location(0, 0));
+		driverManager.makeAvailable(2, new Location(0, 0));
+		LocationBatch batch = new LocationBatch(8);
+		batch.add(1, 5, 5, 100);
+		batch.add(1, 9, 9, 300);
+		batch.add(7, 1, 1, 100);
+		batch.add(1, 7, 7, 200);
+		batch.add(2, 20, 20, 100);
+
+		// When.
+		int applied = driverManager.updateDriverLocations(batch);
+
+		// Then.
+		assertEquals(2, applied);
+		assertEquals(LocationBatch.COALESCED, batch.status(0));
+		assertEquals(LocationBatch.APPLIED, batch.status(1));
+		assertEquals(LocationBatch.UNKNOWN_DRIVER, batch.status(2));
+		assertEquals(LocationBatch.COALESCED, batch.status(3));
+		assertEquals(LocationBatch.APPLIED, batch.status(4));
+		assertEquals(new Location(9, 9), driverManager.getDriver(1).getCurrentLocation());
+		assertEquals(Set.of(2), ids(driverManager.getDriversWithinRadius(new Location(20, 21), 2,
+				new EuclideanDistanceFindingStrategy())));
+
+		// When.
+		// a fix arriving late is older than the one the driver is already at
+		batch.clear();
+		batch.add(1, 3, 3, 250);
+		applied = driverManager.updateDriverLocations(batch);
+
+		// Then.
+		assertEquals(0, applied);
+		assertEquals(LocationBatch.STALE, batch.status(0));
+		assertEquals(new Location(9, 9), driverManager.getDriver(1).getCurrentLocation());
+	}
+
+	@Test
+	void test_availableDriversOfCarTypeNearestFirst() {
+		// Given.
+		driverManager.createDriver(new Driver(1, "Prashant", "abcd", new Car(CarType.SEDAN, "ABCD-34")));
+		driverManager.createDriver(new Driver(2, "Prateek", "abcd", new Car(CarType.SEDAN, "ABCD-56")));
+		driverManager.createDriver(new Driver(3, "Rajat", "abcd", new Car(CarType.HATCHBACK, "ABCD-78")));
+		driverManager.createDriver(new Driver(4, "Rahul", "abcd", new Car(CarType.SEDAN, "ABCD-90")));
+		driverManager.makeAvailable(1, new Location(5, 0));
+		driverManager.makeAvailable(2, new Location(1, 1));
+		driverManager.makeAvailable(3, new Location(0, 1));
+		driverManager.makeAvailable(4, new Location(2, 0));
+		// driver 4 is on a trip, still indexed but not available
+		driverManager.reserveDriver(4, new Trip(new Rider(1, "Ayush", "abcd"), driverManager.getDriver(4),
+				new Location(2, 0), new Location(3, 0), 10, driverManager.getDriver(4).getCar()));
+
+		for (boolean useSpatialIndex : new boolean[] {true, false}) {
+			// When.
+			driverManager.setUseSpatialIndex(useSpatialIndex);
+			List<Driver> sedans = driverManager.getAvailableDriversWithinRadius(new Location(0, 0), 10,
+					CarType.SEDAN, new EuclideanDistanceFindingStrategy());
+
+			// Then.
+			assertEquals(List.of(2, 1), sedans.stream().map(Driver::getId).collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	void test_nearestAvailableDriversMatchFullScan() {
+		// Given.
+		Random random = new Random(7);
+		for (int id = 1; id <= 500; id++) {
+			CarType carType = id % 3 == 0 ? CarType.SEDAN : CarType.HATCHBACK;
+			driverManager.createDriver(new Driver(id, "Driver" + id, "abcd", new Car(carType, "REG-" + id)));
+			driverManager.makeAvailable(id, new Location(random.nextInt(400) - 200, random.nextInt(400) - 200));
+		}
+		for (int id = 5; id <= 500; id += 13) {
+			driverManager.updateDriverAvailability(id, false);
+		}
+
+		EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+		for (int query = 0; query < 100; query++) {
+			Location origin = new Location(random.nextInt(500) - 250, random.nextInt(500) - 250);
+			int count = 1 + random.nextInt(8);
+			double maxRadius = query % 2 == 0 ? 1000 : random.nextInt(60);
+			CarType carType = query % 3 == 0 ? CarType.SEDAN : CarType.HATCHBACK;
+
+			// When.
+			driverManager.setUseSpatialIndex(true);
+			List<Driver> indexed = driverManager.getNearestAvailableDrivers(origin, count, maxRadius, carType,
+					distanceFindingStrategy);
+			driverManager.setUseSpatialIndex(false);
+			List<Driver> scanned = driverManager.getNearestAvailableDrivers(origin, count, maxRadius, carType,
+					distanceFindingStrategy);
+
+			// Then.
+			// drivers at the same distance may come in any order, their distances may not
+			assertEquals(distances(scanned, origin), distances(indexed, origin));
+			assertTrue(indexed.stream().allMatch(driver -> driver.isAvailable()
+					&& driver.getCar().getCarType() == carType));
+		}
+	}
+
+	@Test
+	void test_nearestFirstOrdersNearlyEqualDistances() {
+		// Given.
+		// squared distances 10^10 + 1 and 10^10 are the same float, the farther driver registered first
+		driverManager.setUseSpatialIndex(false);
+		driverManager.createDriver(new Driver(1, "Far", "abcd", new Car(CarType.SEDAN, "REG-1")));
+		driverManager.createDriver(new Driver(2, "Near", "abcd", new Car(CarType.SEDAN, "REG-2")));
+		driverManager.makeAvailable(1, new Location(100_000, 1));
+		driverManager.makeAvailable(2, new Location(100_000, 0));
+
+		// When.
+		List<Driver> nearest = driverManager.getAvailableDriversWithinRadius(new Location(0, 0), 200_000,
+				CarType.SEDAN, new EuclideanDistanceFindingStrategy());
+
+		// Then.
+		assertEquals(List.of(2, 1), nearest.stream().map(Driver::getId).collect(Collectors.toList()));
+	}
+
+	@Test
+	void test_fullScanFollowsReservations() {
+		// Given.
+		// enough drivers to spread the state table over several chunks
+		driverManager.setUseSpatialIndex(false);
+		for (int id = 1; id <= 5000; id++) {
+			driverManager.createDriver(new Driver(id, "Driver" + id, "abcd", new Car(CarType.SEDAN, "REG-" + id)));
+			driverManager.makeAvailable(id, new Location(id % 100, id / 100));
+		}
+		Driver last = driverManager.getDriver(5000);
+		Trip trip = new Trip(new Rider(1, "Ayush", "abcd"), last, new Location(0, 50), new Location(3, 50), 10,
+				last.getCar());
+		EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+
+		// When.
+		assertTrue(driverManager.reserveDriver(5000, trip));
+		List<Driver> whileReserved = driverManager.getAvailableDriversWithinRadius(new Location(0, 50), 0,
+				CarType.SEDAN, distanceFindingStrategy);
+		int availableWhileReserved = driverManager.getDrivers().size();
+		driverManager.releaseDriver(5000, trip);
+		List<Driver> afterRelease = driverManager.getAvailableDriversWithinRadius(new Location(0, 50), 0,
+				CarType.SEDAN, distanceFindingStrategy);
+
+		// Then.
+		assertTrue(whileReserved.isEmpty());
+		assertEquals(List.of(last), afterRelease);
+		assertEquals(4999, availableWhileReserved);
+		assertEquals(5000, driverManager.getDrivers().size());
+		// drivers on a trip still accept rides
+		assertEquals(Set.of(5000), ids(driverManager.getDriversWithinRadius(new Location(0, 50), 0,
+				distanceFindingStrategy)));
+	}
+
+	@Test
+	void test_availableDriversFollowChurn() {
+		// Given.
+		Random random = new Random(5);
+		Trip[] trips = new Trip[200];
+		Set<Integer> expected = new HashSet<>();
+		for (int id = 1; id < trips.length; id++) {
+			driverManager.createDriver(new Driver(id, "Driver" + id, "abcd", new Car(CarType.SEDAN, "REG-" + id)));
+		}
+
+		// When.
+		for (int i = 0; i < 20_000; i++) {
+			int id = 1 + random.nextInt(trips.length - 1);
+			Driver driver = driverManager.getDriver(id);
+			switch (random.nextInt(4)) {
+				case 0:
+					driverManager.makeAvailable(id, new Location(id, id));
+					break;
+				case 1:
+					driverManager.updateDriverAvailability(id, false);
+					break;
+				case 2:
+					Trip trip = new Trip(new Rider(1, "Ayush", "abcd"), driver, new Location(0, 0), new Location(3, 4),
+							10, driver.getCar());
+					if (driverManager.reserveDriver(id, trip)) {
+						trips[id] = trip;
+					}
+					break;
+				default:
+					if (trips[id] != null) {
+						driverManager.releaseDriver(id, trips[id]);
+						trips[id] = null;
+					}
+			}
+			if (driver.isAvailable()) {
+				expected.add(id);
+			} else {
+				expected.remove(id);
+			}
+		}
+
+		// Then.
+		assertEquals(expected.size(), driverManager.getDrivers().size());
+		assertEquals(expected, ids(driverManager.getDrivers()));
+		assertEquals(expected, ids(driverManager.getAvailableDrivers()));
+		assertTrue(driverManager.getDrivers().stream().allMatch(Driver::isAvailable));
+	}
+
+	@Test
+	void test_availableDriversFollowConcurrentReservations() throws Exception {
+		// Given.
+		int drivers = 512;
+		for (int id = 1; id <= drivers; id++) {
+			driverManager.createDriver(new Driver(id, "Driver" + id, "abcd", new Car(CarType.SEDAN, "REG-" + id)));
+			driverManager.makeAvailable(id, new Location(id, id));
+		}
+		Rider rider = new Rider(1, "Ayush", "abcd");
+
+		// When.
+		// threads keep booking and freeing the same drivers, all of them end up free
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int seed = t;
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				for (int i = 0; i < 20_000; i++) {
+					int id = 1 + random.nextInt(drivers);
+					Driver driver = driverManager.getDriver(id);
+					Trip trip = new Trip(rider, driver, new Location(0, 0), new Location(3, 4), 10, driver.getCar());
+					if (driverManager.reserveDriver(id, trip)) {
+						driverManager.releaseDriver(id, trip);
+					}
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// Then.
+		assertEquals(drivers, driverManager.getAvailableDrivers().size());
+		assertEquals(drivers, ids(driverManager.getAvailableDrivers()).size());
+	}
+
+	@Test
+	void test_parallelScanMatchesSequentialScan() {
+		// Given.
+		driverManager.setUseSpatialIndex(false);
+		Random random = new Random(11);
+		for (int id = 1; id <= 20000; id++) {
+			CarType carType = id % 3 == 0 ? CarType.SEDAN : CarType.HATCHBACK;
+			driverManager.createDriver(new Driver(id, "Driver" + id, "abcd", new Car(carType, "REG-" + id)));
+			driverManager.makeAvailable(id, new Location(random.nextInt(300), random.nextInt(300)));
+		}
+		EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int query = 0; query < 20; query++) {
+				Location origin = new Location(random.nextInt(300), random.nextInt(300));
+				double radius = random.nextInt(50);
+
+				// When.
+				driverManager.setScanPool(null);
+				List<Driver> sequential = driverManager.getDriversWithinRadius(origin, radius, distanceFindingStrategy);
+				List<Driver> sequentialSedans = driverManager.getAvailableDriversWithinRadius(origin, radius,
+						CarType.SEDAN, distanceFindingStrategy);
+				driverManager.setScanPool(pool, 0);
+				List<Driver> parallel = driverManager.getDriversWithinRadius(origin, radius, distanceFindingStrategy);
+				List<Driver> parallelSedans = driverManager.getAvailableDriversWithinRadius(origin, radius,
+						CarType.SEDAN, distanceFindingStrategy);
+
+				// Then.
+				// both keep slot order, so the lists are equal and not only the same drivers
+				assertEquals(sequential, parallel);
+				assertEquals(distances(sequentialSedans, origin), distances(parallelSedans, origin));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static List<Double> distances(List<Driver> drivers, Location origin) {
+		EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+		return drivers.stream().map(driver -> distanceFindingStrategy.distance(driver.getCurrentLocation(), origin))
+				.collect(Collectors.toList());
+	}
+
+	private static Set<Integer> ids(Collection<Driver> drivers) {
+		return drivers.stream().map(Driver::getId).collect(Collectors.toSet());
+	}
 }
@@ -0,0 +1,129 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.company.events.Event;
+import com.company.events.EventBus;
+import com.company.events.EventFileSink;
+import com.company.events.EventType;
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventBusTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void test_tripLifecycleIsPublishedAndRecorded() throws Exception {
+    // Given.
+    TripManager tripManager = new TripManager(new RiderManager(), new DriverManager());
+    EventBus bus = new EventBus(1024, () -> 42L);
+    List<Event> received = new ArrayList<>();
+    bus.subscribe("collector", batch -> {
+      for (int i = 0; i < batch.size(); i++) {
+        received.add(batch.get(i).copy());
+      }
+    });
+    EventFileSink sink = new EventFileSink(tempDir.resolve("events"));
+    bus.subscribe("file", sink);
+    tripManager.setEventBus(bus);
+    tripManager.getDriverManager().setEventBus(bus);
+    tripManager.getRiderManager().createRider(new Rider(1, "Ayush", "abcd"));
+    tripManager.getDriverManager().createDriver(new Driver(1, "Aastik", "abcd", new Car(CarType.SEDAN, "AB-12")));
+
+    // When.
+    tripManager.getDriverManager().makeAvailable(1, new Location(2, 3));
+    String tripId = tripManager.createTrip(tripManager.getRiderManager().getRider(1), new Location(2, 3),
+        new Location(4, 5), new DefaultPricingStrategy(), new EuclideanDistanceFindingStrategy(),
+        new OptimalDriverStrategy(), CarType.SEDAN);
+    tripManager.startTrip(tripId);
+    double fare = tripManager.endTrip(tripId);
+    bus.close();
+    sink.close();
+
+    // Then.
+    List<EventType> expected = List.of(EventType.DRIVER_LOCATION, EventType.DRIVER_AVAILABILITY,
+        EventType.TRIP_BOOKED, EventType.DRIVER_LOCATION, EventType.TRIP_STARTED, EventType.DRIVER_LOCATION,
+        EventType.TRIP_COMPLETED);
+    assertEquals(expected, received.stream().map(Event::getType).collect(Collectors.toList()));
+    for (int i = 0; i < received.size(); i++) {
+      assertEquals(i, received.get(i).getSequence());
+      assertEquals(42L, received.get(i).getTimestamp());
+    }
+    Event completed = received.get(6);
+    assertEquals(tripId, completed.getTripId());
+    assertEquals(1, completed.getRiderId());
+    assertEquals(1, completed.getDriverId());
+    assertEquals(fare, completed.getFare());
+    assertEquals(Location.pack(4, 5), completed.getDestination());
+    assertTrue(received.get(1).isAvailable());
+    assertEquals(0, bus.getDropped());
+
+    // When.
+    List<Event> replayed = new ArrayList<>();
+    long count = EventFileSink.replay(tempDir.resolve("events"), event -> replayed.add(event.copy()));
+
+    // Then.
+    assertEquals(7, count);
+    assertEquals(expected, replayed.stream().map(Event::getType).collect(Collectors.toList()));
+    assertEquals(tripId, replayed.get(6).getTripId());
+    assertEquals(Location.pack(2, 3), replayed.get(0).getLocation());
+  }
+
+  @Test
+  void test_slowConsumerMakesPublishersDropInsteadOfBlocking() throws Exception {
+    // Given.
+    EventBus bus = new EventBus(4, System::currentTimeMillis);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Long> handled = new ArrayList<>();
+    bus.subscribe("slow", batch -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        handled.add(batch.get(i).getSequence());
+      }
+    });
+
+    // When.
+    int published = 0;
+    for (int i = 0; i < 10; i++) {
+      if (bus.publishDriverAvailability(i, true)) {
+        published++;
+      }
+    }
+
+    // Then.
+    // the consumer holds on to the first slot, so only a ring's worth of events fits
+    assertEquals(4, published);
+    assertEquals(6, bus.getDropped());
+    assertFalse(bus.publishDriverLocation(1, 2, 3));
+
+    // When.
+    release.countDown();
+    bus.close();
+
+    // Then.
+    assertEquals(List.of(0L, 1L, 2L, 3L), handled);
+    assertEquals(7, bus.getDropped());
+  }
+}
@@ -0,0 +1,207 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.model.Rider;
+import com.company.model.Trip;
+import com.company.model.TripStatus;
+import com.company.persistence.Journal;
+import com.company.persistence.WriteAheadLog;
+import com.company.persistence.WriteAheadLog.Durability;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTest {
+
+  @TempDir
+  Path tempDir;
+
+  private static TripManager newTripManager() {
+    return new TripManager(new RiderManager(), new DriverManager());
+  }
+
+  private static String book(TripManager tripManager, Rider rider, CarType carType) {
+    return tripManager.createTrip(rider, new Location(2, 3), new Location(4, 5), new DefaultPricingStrategy(),
+        new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(), carType);
+  }
+
+  /** Registers riders 1 and 2 and drivers 1 and 2, then completes, withdraws and leaves booked one trip each. */
+  private static String[] runDay(TripManager tripManager) {
+    tripManager.getRiderManager().createRider(new Rider(1, "Ayush", "abcd"));
+    tripManager.getRiderManager().createRider(new Rider(2, "Shubham", "abcd"));
+    tripManager.getDriverManager().createDriver(new Driver(1, "Aastik", "abcd", new Car(CarType.HATCHBACK, "AB-12")));
+    tripManager.getDriverManager().createDriver(new Driver(2, "Sumit", "abcd", new Car(CarType.SEDAN, "AB-34")));
+    tripManager.getDriverManager().makeAvailable(1, new Location(2, 3));
+    tripManager.getDriverManager().makeAvailable(2, new Location(2, 3));
+
+    Rider rider1 = tripManager.getRiderManager().getRider(1);
+    Rider rider2 = tripManager.getRiderManager().getRider(2);
+    String completed = book(tripManager, rider1, CarType.HATCHBACK);
+    tripManager.startTrip(completed);
+    tripManager.updateTrip(completed, new Location(2, 3), new Location(6, 8), new EuclideanDistanceFindingStrategy(),
+        new DefaultPricingStrategy());
+    tripManager.endTrip(completed);
+    String withdrawn = book(tripManager, rider2, CarType.SEDAN);
+    tripManager.withdrawTrip(withdrawn);
+    String booked = book(tripManager, rider2, CarType.SEDAN);
+    return new String[] {completed, withdrawn, booked};
+  }
+
+  private static void assertDayRecovered(TripManager recovered, TripManager original, String[] tripIds) {
+    assertEquals(3, recovered.getTrips().size());
+    for (String tripId : tripIds) {
+      Trip expected = original.getTrips().get(tripId);
+      Trip actual = recovered.getTrips().get(tripId);
+      assertEquals(expected.getStatus(), actual.getStatus());
+      assertEquals(expected.getFare(), actual.getFare());
+      assertEquals(expected.getDestination(), actual.getDestination());
+      assertEquals(expected.getDriver().getId(), actual.getDriver().getId());
+    }
+    Driver driver1 = recovered.getDriverManager().getDriver(1);
+    Driver driver2 = recovered.getDriverManager().getDriver(2);
+    assertEquals(new Location(6, 8), driver1.getCurrentLocation());
+    assertNull(driver1.getCurrentTrip());
+    assertSame(recovered.getTrips().get(tripIds[2]), driver2.getCurrentTrip());
+    assertEquals(1, recovered.getRiderManager().getRiderStats(1).getCompletedTrips());
+    assertEquals(1, recovered.getRiderManager().getRiderStats(2).getWithdrawnTrips());
+    assertEquals(2, recovered.getRiderManager().getRider(2).getTrips().size());
+    assertEquals(2, driver2.getTrips().size());
+  }
+
+  @Test
+  void test_recoverReplaysLog() throws Exception {
+    // Given.
+    TripManager original = newTripManager();
+    String[] tripIds;
+    try (Journal journal = new Journal(tempDir, Durability.SYNC)) {
+      assertEquals(0, journal.recover(original));
+      tripIds = runDay(original);
+    }
+
+    // When.
+    TripManager recovered = newTripManager();
+    try (Journal journal = new Journal(tempDir, Durability.SYNC)) {
+      long events = journal.recover(recovered);
+
+      // Then.
+      // 2 riders, 2 drivers with a location and availability each, 3 bookings, 1 update, 3 status changes and
+      // the driver moving at start and end
+      assertEquals(17, events);
+      assertDayRecovered(recovered, original, tripIds);
+
+      // the recovered managers keep journaling
+      recovered.getDriverManager().updateDriverAvailability(1, false);
+    }
+    TripManager again = newTripManager();
+    try (Journal journal = new Journal(tempDir, Durability.SYNC)) {
+      journal.recover(again);
+      assertFalse(again.getDriverManager().getDriver(1).isAcceptingRider());
+    }
+  }
+
+  @Test
+  void test_recoverFromSnapshotAndTornLog() throws Exception {
+    // Given.
+    TripManager original = newTripManager();
+    String[] tripIds;
+    String lastTrip;
+    try (Journal journal = new Journal(tempDir, Durability.ASYNC)) {
+      journal.recover(original);
+      tripIds = runDay(original);
+      journal.snapshot(original);
+      // the withdrawn trip's driver is free again, the first rider books and starts after the snapshot
+      original.getDriverManager().makeAvailable(1, new Location(2, 3));
+      lastTrip = book(original, original.getRiderManager().getRider(1), CarType.HATCHBACK);
+      original.startTrip(lastTrip);
+    }
+    // a crash in the middle of a write leaves half a record behind
+    List<Long> segments = WriteAheadLog.segments(tempDir);
+    assertEquals(1, segments.size());
+    Path lastSegment = Files.list(tempDir).filter(path -> path.getFileName().toString().startsWith("wal-"))
+        .findFirst().get();
+    Files.write(lastSegment, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    // When.
+    TripManager recovered = newTripManager();
+    try (Journal journal = new Journal(tempDir, Durability.ASYNC)) {
+      long events = journal.recover(recovered);
+
+      // Then.
+      // location, availability, booking, start and the move to the pickup after the snapshot
+      assertEquals(5, events);
+      assertEquals(4, recovered.getTrips().size());
+      assertEquals(TripStatus.IN_PROGRESS, recovered.getTrips().get(lastTrip).getStatus());
+      assertSame(recovered.getTrips().get(lastTrip), recovered.getDriverManager().getDriver(1).getCurrentTrip());
+      assertEquals(2, recovered.getRiderManager().getRider(1).getTrips().size());
+      assertEquals(tripIds[0], recovered.getRiderManager().getRider(1).getTrips().recent().get(0).getId());
+      assertEquals(TripStatus.WITHDRAWN, recovered.getTrips().get(tripIds[1]).getStatus());
+    }
+  }
+
+  @Test
+  void test_recoverCutsZeroFilledTail() throws Exception {
+    // Given.
+    TripManager original = newTripManager();
+    String[] tripIds;
+    try (Journal journal = new Journal(tempDir, Durability.SYNC)) {
+      journal.recover(original);
+      tripIds = runDay(original);
+    }
+    // a crash on a preallocated file leaves zeros past the last record
+    Path segment = Files.list(tempDir).filter(path -> path.getFileName().toString().startsWith("wal-"))
+        .findFirst().get();
+    long written = Files.size(segment);
+    Files.write(segment, new byte[4096], StandardOpenOption.APPEND);
+
+    // When.
+    TripManager recovered = newTripManager();
+    try (Journal journal = new Journal(tempDir, Durability.SYNC)) {
+      long events = journal.recover(recovered);
+
+      // Then.
+      assertEquals(17, events);
+      assertDayRecovered(recovered, original, tripIds);
+      assertEquals(written, Files.size(segment));
+    }
+  }
+
+  @Test
+  void test_bookingTheJournalRejectsLeavesNoTrip() throws Exception {
+    // Given.
+    TripManager tripManager = newTripManager();
+    Journal journal = new Journal(tempDir, Durability.SYNC);
+    journal.recover(tripManager);
+    Rider rider = new Rider(1, "Ayush", "abcd");
+    tripManager.getRiderManager().createRider(rider);
+    tripManager.getDriverManager().createDriver(new Driver(1, "Aastik", "abcd", new Car(CarType.SEDAN, "AB-12")));
+    tripManager.getDriverManager().makeAvailable(1, new Location(2, 3));
+    journal.close();
+
+    // When.
+    assertThrows(IllegalStateException.class, () -> book(tripManager, rider, CarType.SEDAN));
+
+    // Then.
+    assertTrue(tripManager.getTrips().isEmpty());
+    assertTrue(tripManager.getTripsWithStatus(TripStatus.BOOKED).isEmpty());
+    assertEquals(0, rider.getTrips().size());
+    assertNull(tripManager.getDriverManager().getDriver(1).getCurrentTrip());
+    assertEquals(1, tripManager.getDriverManager().getDrivers().size());
+  }
+}
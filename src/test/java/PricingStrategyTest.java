@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.company.manager.DriverManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.TablePricingStrategy;
+import com.company.surge.SurgePricingStrategy;
+import com.company.surge.SurgeTracker;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PricingStrategyTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void test_defaultTablesMatchDefaultPricing() {
+    // Given.
+    DefaultPricingStrategy defaultPricing = new DefaultPricingStrategy();
+    TablePricingStrategy tablePricing = TablePricingStrategy.fromDefaultTables();
+    EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+    Location origin = new Location(0, 0);
+
+    // Then.
+    // every tier, including the breakpoints themselves
+    for (CarType carType : CarType.values()) {
+      for (int lat = 0; lat <= 12; lat++) {
+        for (int lng = 0; lng <= 12; lng += 3) {
+          Location destination = new Location(lat, lng);
+          assertEquals(defaultPricing.calculateFare(carType, origin, destination, distanceFindingStrategy),
+              tablePricing.calculateFare(carType, origin, destination, distanceFindingStrategy), 1e-9);
+          assertEquals(defaultPricing.calculateFareForPreferred(carType, origin, destination, distanceFindingStrategy),
+              tablePricing.calculateFareForPreferred(carType, origin, destination, distanceFindingStrategy), 1e-9);
+        }
+      }
+    }
+  }
+
+  @Test
+  void test_reloadTables() throws Exception {
+    // Given.
+    Path tables = tempDir.resolve("pricing.properties");
+    Files.write(tables, Arrays.asList(
+        "HATCHBACK.breakpoints=0", "HATCHBACK.rates=10", "HATCHBACK.minimumFare=0", "HATCHBACK.preferredMultiplier=0.5",
+        "SEDAN.breakpoints=0,10", "SEDAN.rates=20,10", "SEDAN.minimumFare=0", "SEDAN.preferredMultiplier=1"));
+    TablePricingStrategy pricing = TablePricingStrategy.fromFile(tables);
+    EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+    Location origin = new Location(0, 0);
+    Location destination = new Location(0, 12);
+
+    // Then.
+    assertEquals(120, pricing.calculateFare(CarType.HATCHBACK, origin, destination, distanceFindingStrategy), 1e-9);
+    assertEquals(60, pricing.calculateFareForPreferred(CarType.HATCHBACK, origin, destination, distanceFindingStrategy),
+        1e-9);
+    assertEquals(220, pricing.calculateFare(CarType.SEDAN, origin, destination, distanceFindingStrategy), 1e-9);
+
+    // When.
+    Files.write(tables, Arrays.asList(
+        "HATCHBACK.breakpoints=0", "HATCHBACK.rates=1", "HATCHBACK.minimumFare=50", "HATCHBACK.preferredMultiplier=1",
+        "SEDAN.breakpoints=0", "SEDAN.rates=2", "SEDAN.minimumFare=0", "SEDAN.preferredMultiplier=1"));
+    pricing.reload();
+
+    // Then.
+    assertEquals(50, pricing.calculateFare(CarType.HATCHBACK, origin, destination, distanceFindingStrategy), 1e-9);
+    assertEquals(24, pricing.calculateFare(CarType.SEDAN, origin, destination, distanceFindingStrategy), 1e-9);
+
+    // a broken file is rejected and the current tables stay in use
+    Files.write(tables, Arrays.asList("HATCHBACK.breakpoints=0"));
+    assertThrows(IllegalArgumentException.class, pricing::reload);
+    assertEquals(24, pricing.calculateFare(CarType.SEDAN, origin, destination, distanceFindingStrategy), 1e-9);
+  }
+
+  @Test
+  void test_surgeMultiplierFollowsDemandAndSupply() {
+    // Given.
+    AtomicLong clock = new AtomicLong(1_000_000);
+    SurgeTracker surgeTracker = new SurgeTracker(10, 1000, 5, 0.5, 3.0, clock::get);
+    SurgePricingStrategy surgePricing = new SurgePricingStrategy(new DefaultPricingStrategy(), surgeTracker);
+    DefaultPricingStrategy defaultPricing = new DefaultPricingStrategy();
+    EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+    Location origin = new Location(1, 1);
+    Location destination = new Location(4, 5);
+    double baseFare = defaultPricing.calculateFare(CarType.SEDAN, origin, destination, distanceFindingStrategy);
+    DriverManager driverManager = new DriverManager();
+    driverManager.setSurgeTracker(surgeTracker);
+    driverManager.createDriver(new Driver(1, "Sumit", "abcd", new Car(CarType.SEDAN, "ABCD-34")));
+    driverManager.createDriver(new Driver(2, "Aastik", "abcd", new Car(CarType.HATCHBACK, "ABCD-12")));
+    driverManager.makeAvailable(1, new Location(2, 2));
+
+    // When.
+    surgeTracker.recordDemand(origin);
+    clock.addAndGet(1500);
+    surgeTracker.recordDemand(new Location(9, 9));
+    surgeTracker.recordDemand(origin);
+
+    // Then.
+    // three requests for one driver in the cell, another cell has no surge
+    assertEquals(3, surgeTracker.demandAt(origin));
+    assertEquals(1, surgeTracker.supplyAt(origin));
+    assertEquals(2.0, surgeTracker.multiplierAt(origin), 1e-9);
+    assertEquals(1.0, surgeTracker.multiplierAt(new Location(50, 50)), 1e-9);
+    assertEquals(2 * baseFare,
+        surgePricing.calculateFare(CarType.SEDAN, origin, destination, distanceFindingStrategy), 1e-9);
+
+    // When.
+    clock.addAndGet(5000);
+
+    // Then.
+    // every request has left the window
+    assertEquals(0, surgeTracker.demandAt(origin));
+    assertEquals(baseFare, surgePricing.calculateFare(CarType.SEDAN, origin, destination, distanceFindingStrategy),
+        1e-9);
+
+    // When.
+    // the first driver has been waiting for a whole window, a second one shows up elsewhere in the cell
+    driverManager.makeAvailable(2, new Location(8, 0));
+    surgeTracker.recordDemand(new Location(55, 55));
+    for (int i = 0; i < 4; i++) {
+      surgeTracker.recordDemand(origin);
+    }
+
+    // Then.
+    // both drivers count as supply, the expired cells were dropped before the new requests came in
+    assertEquals(2, surgeTracker.supplyAt(origin));
+    assertEquals(1.5, surgeTracker.multiplierAt(origin), 1e-9);
+    assertEquals(2, surgeTracker.cellCount());
+
+    // When.
+    driverManager.updateDriverAvailability(2, false);
+
+    // Then.
+    assertEquals(1, surgeTracker.supplyAt(origin));
+    assertEquals(2.5, surgeTracker.multiplierAt(origin), 1e-9);
+  }
+}
@@ -0,0 +1,144 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.company.http.RideServer;
+import com.company.manager.DriverManager;
+import com.company.manager.RiderManager;
+import com.company.manager.TripManager;
+import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.OptimalDriverStrategy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RideServerTest {
+
+  RideServer server;
+  HttpClient client;
+
+  @BeforeEach
+  void setup() throws IOException {
+    TripManager tripManager = new TripManager(new RiderManager(), new DriverManager());
+    server = new RideServer(tripManager, new DefaultPricingStrategy(), new EuclideanDistanceFindingStrategy(),
+        new OptimalDriverStrategy());
+    server.start(new InetSocketAddress("127.0.0.1", 0));
+    client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  @Test
+  void test_bookTripOverHttp() throws Exception {
+    // Given.
+    assertEquals(201, call("POST", "/riders", "{\"id\": 1, \"name\": \"Ravi\", \"password\": \"abcd\"}").statusCode());
+    assertEquals(201, call("POST", "/drivers", "{\"id\": 1, \"name\": \"Aastik\", \"password\": \"abcd\","
+        + " \"carType\": \"SEDAN\", \"registrationNumber\": \"ABCD-12\"}").statusCode());
+    assertEquals(200, call("PUT", "/drivers/1/availability",
+        "{\"available\": true, \"latitude\": 2, \"longitude\": 3}", RideServer.DRIVER_PASSWORD_HEADER, "abcd")
+        .statusCode());
+
+    // When.
+    HttpResponse<String> booking = call("POST", "/trips", "{\"riderId\": 1, \"originLatitude\": 0,"
+        + " \"originLongitude\": 0, \"destinationLatitude\": 30, \"destinationLongitude\": 40,"
+        + " \"carType\": \"HATCHBACK\"}", RideServer.PASSWORD_HEADER, "abcd");
+
+    // Then.
+    assertEquals(201, booking.statusCode());
+    assertTrue(booking.body().contains("\"driverId\":1"));
+    assertTrue(booking.body().contains("\"status\":\"BOOKED\""));
+    String tripId = field(booking.body(), "id");
+    // only the rider and the driver of the trip get to see it or act on it
+    assertEquals(404, call("GET", "/trips/" + tripId, null).statusCode());
+    assertEquals(404, call("POST", "/trips/" + tripId + "/start", "", RideServer.DRIVER_PASSWORD_HEADER, "wrong")
+        .statusCode());
+    assertEquals(404, call("POST", "/trips/" + tripId + "/start", "", RideServer.PASSWORD_HEADER, "abcd")
+        .statusCode());
+    assertEquals(200, call("GET", "/trips/" + tripId, null, RideServer.PASSWORD_HEADER, "abcd").statusCode());
+
+    assertEquals(200, call("POST", "/trips/" + tripId + "/start", "", RideServer.DRIVER_PASSWORD_HEADER, "abcd")
+        .statusCode());
+    HttpResponse<String> ended = call("POST", "/trips/" + tripId + "/end", "", RideServer.DRIVER_PASSWORD_HEADER,
+        "abcd");
+    assertEquals(200, ended.statusCode());
+    assertTrue(ended.body().contains("\"status\":\"COMPLETED\""));
+    // the driver is free again but the trip can't be ended twice
+    assertEquals(409, call("POST", "/trips/" + tripId + "/end", "", RideServer.DRIVER_PASSWORD_HEADER, "abcd")
+        .statusCode());
+  }
+
+  @Test
+  void test_errorsMapToStatusCodes() throws Exception {
+    // Given.
+    call("POST", "/riders", "{\"id\": 1, \"name\": \"Ravi\", \"password\": \"abcd\"}");
+
+    // When. / Then.
+    assertEquals(409, call("POST", "/riders", "{\"id\": 1, \"name\": \"Ravi\", \"password\": \"abcd\"}").statusCode());
+    assertEquals(404, call("GET", "/trips/missing", null).statusCode());
+    assertEquals(400, call("POST", "/riders", "{\"id\": \"one\"}").statusCode());
+    assertEquals(400, call("POST", "/riders", "{not json").statusCode());
+    String booking = "{\"riderId\": 1, \"originLatitude\": 0, \"originLongitude\": 0,"
+        + " \"destinationLatitude\": 3, \"destinationLongitude\": 4, \"carType\": \"SEDAN\"}";
+    // nobody is driving yet
+    assertEquals(503, call("POST", "/trips", booking, RideServer.PASSWORD_HEADER, "abcd").statusCode());
+    // nobody books or drives on behalf of someone else
+    assertEquals(403, call("POST", "/trips", booking).statusCode());
+    assertEquals(403, call("POST", "/trips", booking, RideServer.PASSWORD_HEADER, "wrong").statusCode());
+    call("POST", "/drivers", "{\"id\": 1, \"name\": \"Aastik\", \"password\": \"abcd\","
+        + " \"carType\": \"SEDAN\", \"registrationNumber\": \"ABCD-12\"}");
+    assertEquals(403, call("PUT", "/drivers/1/location", "{\"latitude\": 2, \"longitude\": 3}").statusCode());
+    assertEquals(403, call("PUT", "/drivers/1/availability", "{\"available\": false}",
+        RideServer.DRIVER_PASSWORD_HEADER, "wrong").statusCode());
+    assertEquals(404, call("PUT", "/drivers/2/location", "{\"latitude\": 2, \"longitude\": 3}",
+        RideServer.DRIVER_PASSWORD_HEADER, "abcd").statusCode());
+    assertEquals(200, call("PUT", "/drivers/1/location", "{\"latitude\": 2, \"longitude\": 3}",
+        RideServer.DRIVER_PASSWORD_HEADER, "abcd").statusCode());
+    // 2^32 + 1 would wrap onto driver 1
+    assertEquals(400, call("PUT", "/drivers/4294967297/location", "{\"latitude\": 2, \"longitude\": 3}",
+        RideServer.DRIVER_PASSWORD_HEADER, "abcd").statusCode());
+    assertEquals(400, call("GET", "/riders/1/trips?pageSize=4294967297", null, RideServer.PASSWORD_HEADER, "abcd")
+        .statusCode());
+    assertEquals(403, call("GET", "/riders/1/trips", null).statusCode());
+    HttpResponse<String> history = client.send(HttpRequest.newBuilder(uri("/riders/1/trips"))
+        .header(RideServer.PASSWORD_HEADER, "abcd").GET().build(), HttpResponse.BodyHandlers.ofString());
+    assertEquals(200, history.statusCode());
+    assertEquals("{\"trips\":[]}", history.body());
+  }
+
+  private HttpResponse<String> call(final String method, final String path, final String body) throws Exception {
+    return client.send(request(method, path, body).build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> call(final String method, final String path, final String body, final String header,
+      final String password) throws Exception {
+    return client.send(request(method, path, body).header(header, password).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpRequest.Builder request(final String method, final String path, final String body) {
+    HttpRequest.BodyPublisher publisher = body == null
+        ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body);
+    return HttpRequest.newBuilder(uri(path)).method(method, publisher);
+  }
+
+  private URI uri(final String path) {
+    return URI.create("http://127.0.0.1:" + server.getPort() + path);
+  }
+
+  private static String field(final String json, final String name) {
+    Matcher matcher = Pattern.compile("\"" + name + "\":\"([^\"]*)\"").matcher(json);
+    assertTrue(matcher.find());
+    return matcher.group(1);
+  }
+}
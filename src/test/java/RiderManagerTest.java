@@ -1,17 +1,39 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.company.exception.RiderAlreadyPresentException;
 import com.company.exception.RiderNotFoundException;
+import com.company.history.TripArchive;
+import com.company.history.TripHistory;
+import com.company.history.TripHistoryPage;
+import com.company.history.TripRecord;
+import com.company.loyalty.RiderStats;
+import com.company.loyalty.TripCountPreferredRiderPolicy;
 import com.company.manager.RiderManager;
+import com.company.model.Car;
+import com.company.model.CarType;
+import com.company.model.Driver;
+import com.company.model.Location;
 import com.company.model.Rider;
+import com.company.model.Trip;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class RiderManagerTest {
 
 	RiderManager riderManager;
 
+	@TempDir
+	Path tempDir;
+
 	@BeforeEach
 	void setup() {
 		riderManager = new RiderManager();
@@ -52,4 +74,92 @@ class RiderManagerTest {
 		});
 	}
 
+	@Test
+	void test_riderStatsRecentWindow() {
+		// Given.
+		AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toMillis(1000));
+		riderManager = new RiderManager(clock::get);
+		riderManager.createRider(new Rider(1, "Aastik", "abcd"));
+		TripCountPreferredRiderPolicy policy = new TripCountPreferredRiderPolicy(3, 2);
+
+		// When.
+		riderManager.recordCompletedTrip(1, 100);
+		clock.addAndGet(TimeUnit.DAYS.toMillis(20));
+		riderManager.recordCompletedTrip(1, 50);
+		riderManager.recordCompletedTrip(1, 25);
+		riderManager.recordWithdrawnTrip(1);
+		RiderStats stats = riderManager.getRiderStats(1);
+
+		// Then.
+		assertEquals(3, stats.getCompletedTrips());
+		assertEquals(1, stats.getWithdrawnTrips());
+		assertEquals(175, stats.getTotalSpend());
+		assertEquals(3, stats.getRecentCompletedTrips());
+		assertTrue(policy.isPreferred(stats));
+
+		// When.
+		// the first trip leaves the window, then the other two
+		clock.addAndGet(TimeUnit.DAYS.toMillis(15));
+
+		// Then.
+		assertEquals(2, stats.getRecentCompletedTrips());
+		assertTrue(policy.isPreferred(stats));
+
+		// When.
+		clock.addAndGet(TimeUnit.DAYS.toMillis(30));
+
+		// Then.
+		assertEquals(0, stats.getRecentCompletedTrips());
+		assertFalse(policy.isPreferred(stats));
+	}
+
+	@Test
+	void test_pagedHistorySpillsToArchive() throws Exception {
+		// Given.
+		Path archiveFile = tempDir.resolve("trips.archive");
+		Driver driver = new Driver(1, "Sumit", "abcd", new Car(CarType.SEDAN, "ABCD-34"));
+		Rider rider = new Rider(1, "Aastik", "abcd");
+		try (TripArchive archive = TripArchive.open(archiveFile)) {
+			riderManager = new RiderManager(System::currentTimeMillis, archive, 3);
+			riderManager.createRider(rider);
+
+			// When.
+			// the fare tells the trips apart
+			for (int i = 0; i < 10; i++) {
+				riderManager.updateTripForRider(1, new Trip(rider, driver, new Location(0, 0), new Location(3, 4), i,
+						driver.getCar()));
+			}
+			List<Double> fares = new ArrayList<>();
+			long cursor = TripHistory.FIRST_PAGE;
+			int pages = 0;
+			while (cursor != TripHistory.END) {
+				TripHistoryPage page = riderManager.tripHistory(rider, "abcd", cursor, 4);
+				for (TripRecord trip : page.getTrips()) {
+					fares.add(trip.getFare());
+				}
+				cursor = page.getNextCursor();
+				pages++;
+			}
+
+			// Then.
+			// only the window stays in memory, paging walks into the archive newest first
+			assertEquals(3, riderManager.tripHistoryInternal(rider).size());
+			assertEquals(List.of(9.0, 8.0, 7.0, 6.0, 5.0, 4.0, 3.0, 2.0, 1.0, 0.0), fares);
+			assertEquals(3, pages);
+		}
+
+		// When.
+		// reopening finds the archived chain again
+		try (TripArchive archive = TripArchive.open(archiveFile)) {
+			int archived = 0;
+			for (long offset = archive.head(TripArchive.riderKey(1)); offset != TripArchive.NONE;
+					offset = archive.read(offset).getPreviousOffset()) {
+				archived++;
+			}
+
+			// Then.
+			assertEquals(7, archived);
+			assertEquals(6.0, archive.read(archive.head(TripArchive.riderKey(1))).getTrip().getFare());
+		}
+	}
 }
@@ -7,6 +7,11 @@ import com.company.exception.DriverNotFoundException;
 import com.company.exception.InvalidRideParamException;
 import com.company.exception.TripNotFoundException;
 import com.company.exception.TripStatusException;
+import com.company.history.TripArchive;
+import com.company.index.GridDriverIndex;
+import com.company.index.AdaptiveRadius;
+import com.company.index.TripIndex;
+import com.company.loyalty.TripCountPreferredRiderPolicy;
 import com.company.manager.DriverManager;
 import com.company.manager.RiderManager;
 import com.company.manager.TripManager;
@@ -17,15 +22,28 @@ import com.company.model.Location;
 import com.company.model.Rider;
 import com.company.model.Trip;
 import com.company.model.TripStatus;
+import com.company.storage.StorageMode;
 import com.company.strategy.DefaultPricingStrategy;
+import com.company.strategy.DistanceFindingStrategy;
 import com.company.strategy.EuclideanDistanceFindingStrategy;
+import com.company.strategy.NearestDriverStrategy;
 import com.company.strategy.OptimalDriverStrategy;
 import com.company.strategy.PricingStrategy;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class TripManagerTest {
 
@@ -35,6 +53,9 @@ class TripManagerTest {
   Rider rider1, rider2, rider3;
   Car car1, car2;
 
+  @TempDir
+  Path tempDir;
+
   @BeforeEach
   void setup() {
 
@@ -165,7 +186,7 @@ class TripManagerTest {
     tripManager.withdrawTrip(tripId);
       List<Trip> tripsForRider = tripManager.getRiderManager().tripHistoryInternal(rider1);
       for (Trip trip : tripsForRider) {
-          if (trip.getId() == tripId) {
+          if (trip.getId().equals(tripId)) {
               currentTrip = trip;
           }
       }
@@ -194,4 +215,350 @@ class TripManagerTest {
           tripManager.withdrawTrip(tripId);
         });
   }
+
+  @Test
+  void test_tripQueriesFollowTransitionsAndAgeOut() {
+      // Given.
+      AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+      TripIndex tripIndex = new TripIndex(clock::get, TimeUnit.MINUTES.toMillis(5), TimeUnit.MINUTES.toMillis(1));
+      TripManager indexedTripManager = new TripManager(tripManager.getRiderManager(), tripManager.getDriverManager(),
+          StorageMode.HASH_MAP, tripIndex);
+      long bookingStart = clock.get() - 1;
+      String completedId = indexedTripManager.createTrip(rider1, new Location(2,3), new Location(4,5),
+          new DefaultPricingStrategy(), new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(),
+          CarType.HATCHBACK);
+      String liveId = indexedTripManager.createTrip(rider2, new Location(2,3), new Location(4,5),
+          new DefaultPricingStrategy(), new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(),
+          CarType.SEDAN);
+      Trip live = indexedTripManager.getTripOrThrow(liveId);
+
+      // When.
+      indexedTripManager.startTrip(completedId);
+      indexedTripManager.startTrip(liveId);
+      indexedTripManager.endTrip(completedId);
+
+      // Then.
+      assertEquals(List.of(live), indexedTripManager.getTripsWithStatus(TripStatus.IN_PROGRESS));
+      assertTrue(indexedTripManager.getTripsWithStatus(TripStatus.BOOKED).isEmpty());
+      assertEquals(List.of(indexedTripManager.getTripOrThrow(completedId)),
+          indexedTripManager.getTripsWithStatus(TripStatus.COMPLETED));
+      assertEquals(Optional.of(live), indexedTripManager.getActiveTripForDriver(live.getDriver().getId()));
+      assertEquals(Optional.empty(), indexedTripManager.getActiveTripForDriver(
+          indexedTripManager.getTripOrThrow(completedId).getDriver().getId()));
+      assertEquals(List.of(live), indexedTripManager.getActiveTripsForRider(rider2.getId()));
+      assertTrue(indexedTripManager.getActiveTripsForRider(rider1.getId()).isEmpty());
+      assertEquals(2, indexedTripManager.getTripsBookedSince(bookingStart).size());
+
+      // When.
+      // past the retention the finished trip is only reachable by id, the live one stays indexed
+      clock.addAndGet(TimeUnit.MINUTES.toMillis(10));
+
+      // Then.
+      assertTrue(indexedTripManager.getTripsBookedSince(bookingStart).isEmpty());
+      assertEquals(0, tripIndex.retainedSize());
+      assertTrue(indexedTripManager.getTripsWithStatus(TripStatus.COMPLETED).isEmpty());
+      assertEquals(List.of(live), indexedTripManager.getTripsWithStatus(TripStatus.IN_PROGRESS));
+      assertEquals(TripStatus.COMPLETED, indexedTripManager.getTripOrThrow(completedId).getStatus());
+  }
+
+  @Test
+  void test_concurrentBookingsNeverDoubleAssignDriver() throws Exception {
+      // Given.
+      // few drivers shared by a lot of riders, all standing at the same spot so every booking competes
+      DriverManager driverManager = new DriverManager();
+      for (int id = 1; id <= 20; id++) {
+          driverManager.createDriver(new Driver(id, "Driver" + id, "abcd",
+                  new Car(id % 2 == 0 ? CarType.SEDAN : CarType.HATCHBACK, "REG-" + id)));
+          driverManager.makeAvailable(id, new Location(2, 3));
+      }
+      RiderManager riderManager = new RiderManager();
+      for (int id = 1; id <= 400; id++) {
+          riderManager.createRider(new Rider(id, "Rider" + id, "abcd"));
+      }
+      TripManager concurrentTripManager = new TripManager(riderManager, driverManager);
+
+      // When.
+      ExecutorService executor = Executors.newFixedThreadPool(16);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int id = 1; id <= 400; id++) {
+          Rider rider = riderManager.getRider(id);
+          futures.add(executor.submit(() -> {
+              try {
+                  String tripId = concurrentTripManager.createTrip(rider, new Location(2, 3), new Location(4, 5),
+                          new DefaultPricingStrategy(), new EuclideanDistanceFindingStrategy(),
+                          new OptimalDriverStrategy(), CarType.HATCHBACK);
+                  // finish some of the trips so that their drivers get booked again
+                  if (ThreadLocalRandom.current().nextBoolean()) {
+                      concurrentTripManager.startTrip(tripId);
+                      concurrentTripManager.endTrip(tripId);
+                  }
+              } catch (DriverNotFoundException e) {
+                  // all drivers busy, expected under contention
+              }
+          }));
+      }
+      for (Future<?> future : futures) {
+          future.get();
+      }
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+      // Then.
+      // every driver holds at most one live trip and it is the one recorded as his current trip
+      for (int id = 1; id <= 20; id++) {
+          int driverId = id;
+          List<Trip> liveTrips = new ArrayList<>();
+          for (Trip trip : concurrentTripManager.getTrips().values()) {
+              if (trip.getDriver().getId() == driverId && (trip.getStatus() == TripStatus.BOOKED
+                      || trip.getStatus() == TripStatus.IN_PROGRESS)) {
+                  liveTrips.add(trip);
+              }
+          }
+          assertTrue(liveTrips.size() <= 1, "driver " + driverId + " holds " + liveTrips.size() + " live trips");
+          if (liveTrips.size() == 1) {
+              assertSame(liveTrips.get(0), liveTrips.get(0).getDriver().getCurrentTrip());
+          }
+      }
+  }
+
+  @Test
+  void test_createTripComputesTripDistanceOnce() {
+      // Given.
+      // counts how many times origin -> destination reaches the underlying strategy
+      int[] tripDistanceCalls = new int[1];
+      EuclideanDistanceFindingStrategy countingStrategy = new EuclideanDistanceFindingStrategy() {
+          @Override
+          public double distance(int lat1, int long1, int lat2, int long2) {
+              if (lat1 == 2 && long1 == 3 && lat2 == 4 && long2 == 5) {
+                  tripDistanceCalls[0]++;
+              }
+              return super.distance(lat1, long1, lat2, long2);
+          }
+      };
+
+      // When.
+      // validation and pricing both need the trip distance
+      tripManager.createTrip(rider1, new Location(2, 3), new Location(4, 5), new DefaultPricingStrategy(),
+              countingStrategy, new OptimalDriverStrategy(), CarType.HATCHBACK);
+
+      // Then.
+      assertEquals(1, tripDistanceCalls[0]);
+      // trip distance plus one radius check per available driver
+      assertEquals(3.0, tripManager.getAverageDistanceEvaluationsPerBooking());
+  }
+
+  @Test
+  void test_preferredFareCountsCompletedTripsOnly() {
+      // Given.
+      tripManager.setPreferredRiderPolicy(new TripCountPreferredRiderPolicy(2, 0));
+      DefaultPricingStrategy pricingStrategy = new DefaultPricingStrategy();
+      EuclideanDistanceFindingStrategy distanceFindingStrategy = new EuclideanDistanceFindingStrategy();
+      Location origin = new Location(2, 3);
+      Location destination = new Location(4, 5);
+      double fare = pricingStrategy.calculateFare(CarType.SEDAN, origin, destination, distanceFindingStrategy);
+      double preferredFare =
+          pricingStrategy.calculateFareForPreferred(CarType.SEDAN, origin, destination, distanceFindingStrategy);
+
+      // When.
+      // withdrawn trips don't make a rider preferred
+      for (int i = 0; i < 3; i++) {
+          tripManager.withdrawTrip(tripManager.createTrip(rider1, origin, destination, pricingStrategy,
+                  distanceFindingStrategy, new OptimalDriverStrategy(), CarType.SEDAN));
+      }
+      String notPreferredTrip = tripManager.createTrip(rider1, origin, destination, pricingStrategy,
+              distanceFindingStrategy, new OptimalDriverStrategy(), CarType.SEDAN);
+
+      // Then.
+      assertEquals(fare, tripManager.getTrips().get(notPreferredTrip).getFare());
+
+      // When.
+      tripManager.startTrip(notPreferredTrip);
+      tripManager.endTrip(notPreferredTrip);
+      String secondTrip = tripManager.createTrip(rider1, origin, destination, pricingStrategy,
+              distanceFindingStrategy, new OptimalDriverStrategy(), CarType.SEDAN);
+      tripManager.startTrip(secondTrip);
+      tripManager.endTrip(secondTrip);
+      String preferredTrip = tripManager.createTrip(rider1, origin, destination, pricingStrategy,
+              distanceFindingStrategy, new OptimalDriverStrategy(), CarType.SEDAN);
+
+      // Then.
+      assertEquals(preferredFare, tripManager.getTrips().get(preferredTrip).getFare());
+  }
+
+  @Test
+  void test_nearestDriverStrategyPicksClosestDriver() {
+    // Given.
+    DriverManager driverManager = new DriverManager();
+    driverManager.createDriver(new Driver(1, "Aastik", "abcd", new Car(CarType.HATCHBACK, "AB-12")));
+    driverManager.createDriver(new Driver(2, "Sumit", "abcd", new Car(CarType.HATCHBACK, "AB-34")));
+    driverManager.createDriver(new Driver(3, "Rajat", "abcd", new Car(CarType.SEDAN, "AB-56")));
+    driverManager.makeAvailable(1, new Location(8, 3));
+    driverManager.makeAvailable(2, new Location(3, 3));
+    driverManager.makeAvailable(3, new Location(2, 3));
+    RiderManager riders = new RiderManager();
+    riders.createRider(rider1);
+    TripManager manager = new TripManager(riders, driverManager);
+
+    // When.
+    String first = manager.createTrip(rider1, new Location(2, 3), new Location(4, 5), new DefaultPricingStrategy(),
+        new EuclideanDistanceFindingStrategy(), new NearestDriverStrategy(), CarType.HATCHBACK);
+    String second = manager.createTrip(rider1, new Location(2, 3), new Location(4, 5), new DefaultPricingStrategy(),
+        new EuclideanDistanceFindingStrategy(), new NearestDriverStrategy(), CarType.HATCHBACK);
+    String third = manager.createTrip(rider1, new Location(2, 3), new Location(4, 5), new DefaultPricingStrategy(),
+        new EuclideanDistanceFindingStrategy(), new NearestDriverStrategy(), CarType.HATCHBACK);
+
+    // Then.
+    // the nearest hatchback first, the sedan next door only once no hatchback is left
+    assertEquals(2, manager.getDriverForTrip(first).get().getId());
+    assertEquals(1, manager.getDriverForTrip(second).get().getId());
+    assertEquals(3, manager.getDriverForTrip(third).get().getId());
+  }
+
+  @Test
+  void test_nearestDriverStrategyRanksListsWithBookingDistance() {
+    // Given.
+    // a distance strategy where longitude costs ten times more than latitude
+    DistanceFindingStrategy eastWestIsSlow = (from, to) -> Math.hypot(from.getLatitude() - to.getLatitude(),
+        10.0 * (from.getLongitude() - to.getLongitude()));
+    Driver eastOfRider = new Driver(1, "Aastik", "abcd", new Car(CarType.HATCHBACK, "AB-12"));
+    Driver northOfRider = new Driver(2, "Sumit", "abcd", new Car(CarType.HATCHBACK, "AB-34"));
+    eastOfRider.setCurrentLocation(new Location(2, 5));
+    northOfRider.setCurrentLocation(new Location(7, 3));
+    eastOfRider.setAcceptingRider(true);
+    northOfRider.setAcceptingRider(true);
+    List<Driver> drivers = List.of(eastOfRider, northOfRider);
+    NearestDriverStrategy strategy = new NearestDriverStrategy();
+
+    // When.
+    List<Driver> straightLine = strategy.rankDrivers(rider1, drivers, new Location(2, 3), new Location(4, 5),
+        CarType.HATCHBACK);
+    List<Driver> bookingDistance = strategy.rankDrivers(rider1, drivers, new Location(2, 3), new Location(4, 5),
+        CarType.HATCHBACK, eastWestIsSlow);
+
+    // Then.
+    assertEquals(List.of(eastOfRider, northOfRider), straightLine);
+    assertEquals(List.of(northOfRider, eastOfRider), bookingDistance);
+  }
+
+  @Test
+  void test_adaptiveRadiusReachesSuburbsAndLearnsDenseCells() {
+    // Given.
+    DriverManager driverManager = new DriverManager();
+    // downtown: many drivers around (0, 0), suburbs: a single driver 25 units away from the rider
+    for (int id = 1; id <= 40; id++) {
+      driverManager.createDriver(new Driver(id, "Driver" + id, "abcd", new Car(CarType.SEDAN, "DT-" + id)));
+      driverManager.makeAvailable(id, new Location(id % 4, id / 10));
+    }
+    driverManager.createDriver(new Driver(100, "Far", "abcd", new Car(CarType.SEDAN, "SUB-1")));
+    driverManager.makeAvailable(100, new Location(525, 500));
+    RiderManager riders = new RiderManager();
+    riders.createRider(rider1);
+    TripManager manager = new TripManager(riders, driverManager);
+    AdaptiveRadius adaptiveRadius = new AdaptiveRadius(8, 40, 2, 3, 0.5, 10);
+    manager.setAdaptiveRadius(adaptiveRadius);
+
+    // When.
+    String suburbTrip = manager.createTrip(rider1, new Location(500, 500), new Location(510, 500),
+        new DefaultPricingStrategy(), new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(),
+        CarType.SEDAN);
+
+    // Then.
+    // 8 -> 16 -> 32 -> 40 looking for 3 drivers, the one found is a driver the fixed radius of 10 would have missed
+    assertEquals(100, manager.getDriverForTrip(suburbTrip).get().getId());
+    assertEquals(3.0, manager.getAverageRingExpansionsPerBooking());
+    assertEquals(1, adaptiveRadius.getExhausted());
+    // the suburb cell now starts halfway to the ceiling
+    assertEquals(24.0, adaptiveRadius.startRadius(new Location(500, 500)), 1e-9);
+
+    // When.
+    for (int i = 0; i < 5; i++) {
+      String trip = manager.createTrip(rider1, new Location(1, 1), new Location(3, 3), new DefaultPricingStrategy(),
+          new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(), CarType.SEDAN);
+      manager.withdrawTrip(trip);
+    }
+
+    // Then.
+    // downtown never expanded and its starting radius shrank towards the few units its drivers are within
+    assertEquals(3.0 / 6, manager.getAverageRingExpansionsPerBooking(), 1e-9);
+    assertTrue(adaptiveRadius.startRadius(new Location(1, 1)) < 4);
+    assertEquals(1, adaptiveRadius.getExhausted());
+  }
+
+  @Test
+  void test_finishedTripsLeaveMemoryOnceArchived() throws Exception {
+    // Given.
+    Driver driver = new Driver(1, "Sumit", "abcd", new Car(CarType.SEDAN, "ABCD-34"));
+    try (TripArchive archive = TripArchive.open(tempDir.resolve("trips.archive"))) {
+      DriverManager driverManager = new DriverManager(new GridDriverIndex(), archive, 2);
+      driverManager.createDriver(driver);
+      driverManager.makeAvailable(1, new Location(2, 3));
+      RiderManager riders = new RiderManager(System::currentTimeMillis, archive, 2);
+      riders.createRider(rider1);
+      TripManager manager = new TripManager(riders, driverManager, StorageMode.COMPACT);
+
+      // When.
+      // each trip ends where the next one starts
+      List<String> tripIds = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        Location origin = driver.getCurrentLocation();
+        String tripId = manager.createTrip(rider1, origin, new Location(origin.getLatitude() + 1, 3),
+            new DefaultPricingStrategy(), new EuclideanDistanceFindingStrategy(), new OptimalDriverStrategy(),
+            CarType.SEDAN);
+        manager.startTrip(tripId);
+        manager.endTrip(tripId);
+        tripIds.add(tripId);
+      }
+
+      // Then.
+      // the three oldest left both windows finished, they are read back from the archive
+      assertEquals(2, manager.getTrips().size());
+      Trip archived = manager.getTripOrThrow(tripIds.get(0));
+      assertEquals(tripIds.get(0), archived.getId());
+      assertEquals(TripStatus.COMPLETED, archived.getStatus());
+      assertEquals(new Location(3, 3), archived.getDestination());
+      assertEquals(driver, archived.getDriver());
+      assertThrows(TripStatusException.class, () -> manager.endTrip(tripIds.get(0)));
+      assertThrows(TripNotFoundException.class, () -> manager.getTripOrThrow("1"));
+    }
+  }
+
+  @Test
+  void test_nearestDriverBookingsTeachAdaptiveRadius() {
+    // Given.
+    DriverManager driverManager = new DriverManager();
+    for (int id = 1; id <= 3; id++) {
+      driverManager.createDriver(new Driver(id, "Driver" + id, "abcd", new Car(CarType.SEDAN, "NR-" + id)));
+    }
+    driverManager.makeAvailable(1, new Location(501, 500));
+    driverManager.makeAvailable(2, new Location(500, 502));
+    driverManager.makeAvailable(3, new Location(504, 500));
+    RiderManager riders = new RiderManager();
+    riders.createRider(rider1);
+    TripManager manager = new TripManager(riders, driverManager);
+    // remembers two cells at most
+    AdaptiveRadius adaptiveRadius = new AdaptiveRadius(8, 40, 2, 3, 0.5, 10, 2);
+    manager.setAdaptiveRadius(adaptiveRadius);
+
+    // When.
+    String tripId = manager.createTrip(rider1, new Location(500, 500), new Location(510, 500),
+        new DefaultPricingStrategy(), new EuclideanDistanceFindingStrategy(), new NearestDriverStrategy(1),
+        CarType.SEDAN);
+
+    // Then.
+    // one driver wanted, three asked for: the cell moves halfway from 8 to 1.25 times the third driver's 4 units
+    assertEquals(1, manager.getDriverForTrip(tripId).get().getId());
+    assertEquals(1, adaptiveRadius.getSearches());
+    assertEquals(6.5, adaptiveRadius.startRadius(new Location(500, 500)), 1e-9);
+
+    // When.
+    // two more cells where nothing is found
+    for (Location origin : List.of(new Location(0, 0), new Location(100, 100))) {
+      adaptiveRadius.nearest(origin, 1, wanted -> new ArrayList<>(), new EuclideanDistanceFindingStrategy());
+    }
+
+    // Then.
+    assertEquals(2, adaptiveRadius.getExhausted());
+    assertEquals(2, adaptiveRadius.cellCount());
+    assertEquals(40.0 / 2 + 8.0 / 2, adaptiveRadius.startRadius(new Location(100, 100)), 1e-9);
+  }
 }